@@ -0,0 +1,132 @@
+package librarysystem;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Books, students and a librarian seeded once per benchmark fork.
+// Without -Dlibrary.db.url the fork uses its own in-memory H2 database in MySQL mode.
+// The size is set with JMH parameters, e.g. -p books=100000 -p students=5000.
+// Seeded rows use IDs from BASE_ID upwards and are deleted again after the run.
+@State(Scope.Benchmark)
+public class BenchmarkDataset {
+    static final int BASE_ID = 800_000_000;
+    static final int COPIES = 1_000_000;   // Enough that issuing never runs a book out of stock
+    private static final String DEFAULT_URL = "jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;" +
+            "INIT=CREATE SCHEMA IF NOT EXISTS librarydb\\;SET SCHEMA librarydb";
+
+    @Param("10000")
+    public int books;
+
+    @Param("1000")
+    public int students;
+
+    final Library library = new Library();
+    Librarian librarian;
+    private final AtomicInteger nextStudent = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        // Must happen before DatabaseManager is first touched - it reads the URL once
+        if (System.getProperty("library.db.url") == null) {
+            System.setProperty("library.db.url", DEFAULT_URL);
+        }
+        DatabaseManager.initializeDatabase();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            removeSeed(conn);
+            insertSeed(conn);
+        }
+        DatabaseManager.booksInserted();
+        librarian = new Librarian(BASE_ID, "Benchmark");
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            removeSeed(conn);
+        }
+        DatabaseManager.booksInserted();
+        DatabaseManager.shutdown();
+    }
+
+    int randomBookId(Random random) {
+        return BASE_ID + random.nextInt(books);
+    }
+
+    int randomStudentId(Random random) {
+        return BASE_ID + random.nextInt(students);
+    }
+
+    // A student no other benchmark thread uses, so issue and return never collide on the one-loan rule
+    Student claimStudent() {
+        int index = nextStudent.getAndIncrement();
+        if (index >= students) {
+            throw new IllegalStateException("More benchmark threads than seeded students - raise -p students");
+        }
+        return new Student(BASE_ID + index, "Student " + index, "CSE", "B.Tech");
+    }
+
+    private void insertSeed(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try (PreparedStatement librarianInsert = conn.prepareStatement(
+                     "INSERT INTO librarians (librarian_id, name, password) VALUES (?, ?, ?)");
+             PreparedStatement studentInsert = conn.prepareStatement(
+                     "INSERT INTO students (student_id, name, department, course, password) VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement bookInsert = conn.prepareStatement(
+                     "INSERT INTO books (book_id, title, publisher, edition, copies) VALUES (?, ?, ?, ?, ?)")) {
+
+            librarianInsert.setInt(1, BASE_ID);
+            librarianInsert.setString(2, "Benchmark");
+            librarianInsert.setString(3, String.valueOf(BASE_ID));
+            librarianInsert.executeUpdate();
+
+            for (int i = 0; i < students; i++) {
+                studentInsert.setInt(1, BASE_ID + i);
+                studentInsert.setString(2, "Student " + i);
+                studentInsert.setString(3, "CSE");
+                studentInsert.setString(4, "B.Tech");
+                studentInsert.setString(5, String.valueOf(BASE_ID + i)); // Password = ID, like the real accounts
+                studentInsert.addBatch();
+            }
+            studentInsert.executeBatch();
+
+            for (int i = 0; i < books; i++) {
+                bookInsert.setInt(1, BASE_ID + i);
+                bookInsert.setString(2, "Benchmark Book " + i);
+                bookInsert.setString(3, "Publisher " + (i % 100));
+                bookInsert.setString(4, "1st");
+                bookInsert.setInt(5, COPIES);
+                bookInsert.addBatch();
+                if (i % 1_000 == 999) {
+                    bookInsert.executeBatch();
+                }
+            }
+            bookInsert.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static void removeSeed(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM issue_records WHERE student_id >= " + BASE_ID);
+            stmt.executeUpdate("DELETE FROM students WHERE student_id >= " + BASE_ID);
+            stmt.executeUpdate("DELETE FROM books WHERE book_id >= " + BASE_ID);
+            stmt.executeUpdate("DELETE FROM librarians WHERE librarian_id >= " + BASE_ID);
+        }
+    }
+}
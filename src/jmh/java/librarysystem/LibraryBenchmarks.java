@@ -0,0 +1,106 @@
+package librarysystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Hot paths of DatabaseManager and Library. SingleThreaded and MultiThreaded run the same
+// benchmarks with one thread and with several threads sharing the connection pool.
+// Every benchmark takes BenchmarkDataset, even if unused, so the database is set up first.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class LibraryBenchmarks {
+    // Per-thread student and random numbers
+    @State(Scope.Thread)
+    public static class Caller {
+        Student student;
+        Random random;
+
+        @Setup(Level.Trial)
+        public void claim(BenchmarkDataset dataset) {
+            student = dataset.claimStudent();
+            random = new Random(student.getStudentId());
+        }
+    }
+
+    // Returns the caller's open loan before each issueBook call so every call issues a book.
+    // Invocation-level setup costs some timer overhead, small next to a database transaction.
+    @State(Scope.Thread)
+    public static class NoOpenLoan {
+        @Setup(Level.Invocation)
+        public void returnOpenLoan(Caller caller) {
+            for (LoanStatus loan : DatabaseManager.getStudentLoans(caller.student.getStudentId())) {
+                DatabaseManager.returnBookAtomically(caller.student.getStudentId(), loan.bookId());
+            }
+        }
+    }
+
+    // Issues a book before each returnBook call so every call has a loan to close
+    @State(Scope.Thread)
+    public static class OpenLoan {
+        int bookId;
+
+        @Setup(Level.Invocation)
+        public void issue(BenchmarkDataset dataset, Caller caller) {
+            bookId = dataset.randomBookId(caller.random);
+            IssueResult result = DatabaseManager.issueBookAtomically(caller.student, bookId, dataset.librarian);
+            if (result.outcome() == IssueOutcome.LOAN_LIMIT_REACHED) {
+                // JMH may run this setup at the end of an iteration without calling the benchmark
+                bookId = DatabaseManager.getStudentLoans(caller.student.getStudentId()).get(0).bookId();
+            } else if (!result.isIssued()) {
+                throw new IllegalStateException("Could not prepare a loan: " + result.outcome());
+            }
+        }
+    }
+
+    @Benchmark
+    public Book getBook(BenchmarkDataset dataset, Caller caller) {
+        return DatabaseManager.getBook(dataset.randomBookId(caller.random));
+    }
+
+    @Benchmark
+    public List<Book> getAllBooks(BenchmarkDataset dataset) {
+        return DatabaseManager.getAllBooks();
+    }
+
+    @Benchmark
+    public IssueResult issueBook(BenchmarkDataset dataset, Caller caller, NoOpenLoan noOpenLoan) {
+        return dataset.library.issueBook(caller.student, dataset.randomBookId(caller.random), dataset.librarian);
+    }
+
+    @Benchmark
+    public ReturnResult returnBook(BenchmarkDataset dataset, Caller caller, OpenLoan loan) {
+        return dataset.library.returnBook(caller.student, loan.bookId, dataset.librarian);
+    }
+
+    @Benchmark
+    public boolean hasIssuedBook(BenchmarkDataset dataset, Caller caller) {
+        return DatabaseManager.hasIssuedBook(dataset.randomStudentId(caller.random));
+    }
+
+    @Benchmark
+    public List<LoanStatus> getStudentLoans(BenchmarkDataset dataset, Caller caller) {
+        return dataset.library.checkFineForStudent(caller.student);
+    }
+
+    @Benchmark
+    public Student login(BenchmarkDataset dataset, Caller caller) {
+        int studentId = dataset.randomStudentId(caller.random);
+        return DatabaseManager.authenticateStudent(studentId, String.valueOf(studentId));
+    }
+}
@@ -0,0 +1,8 @@
+package librarysystem;
+
+import org.openjdk.jmh.annotations.Threads;
+
+// LibraryBenchmarks with eight callers sharing the connection pool, catalog cache and row locks
+@Threads(8)
+public class MultiThreaded extends LibraryBenchmarks {
+}
@@ -0,0 +1,8 @@
+package librarysystem;
+
+import org.openjdk.jmh.annotations.Threads;
+
+// LibraryBenchmarks with one caller - the latency of each operation on its own
+@Threads(1)
+public class SingleThreaded extends LibraryBenchmarks {
+}
@@ -0,0 +1,36 @@
+import api.ApiServer;
+import librarysystem.*;
+
+// Headless start: the HTTP/JSON API for kiosks and the web catalog instead of the console or the GUI.
+// Port: -Dlibrary.api.port (default 8080). Stops on Ctrl+C.
+public class ApiMain {
+
+    public static void main(String[] args) throws Exception {
+        // Storage backend - MySQL unless started with -Dlibrary.store=memory
+        LibraryStore store = LibraryStores.fromSystemProperty();
+        LibraryStores.install(store);
+
+        if (!store.testConnection()) {
+            System.out.println("Database connection failed.");
+            return;
+        }
+
+        // Apply pending schema migrations - the first start also seeds the default accounts and books
+        store.initialize();
+
+        // Keeps the stored fines of open loans up to date in the background
+        FineAccrualJob fineAccrual = FineAccrualJob.start(store);
+
+        ApiServer api = ApiServer.start(new Library(), Integer.getInteger("library.api.port", 8080));
+        System.out.println("✅ Library API listening on port " + api.getPort());
+
+        // Stop taking requests, then stop fine accrual, release pooled database connections
+        // and flush the event journal
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            api.close();
+            fineAccrual.close();
+            store.shutdown();
+            EventJournal.current().close();
+        }, "api-shutdown"));
+    }
+}
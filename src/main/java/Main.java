@@ -1,41 +1,39 @@
 //Importing all packages and utilities
 import librarysystem.*;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.*;
 
 public class Main {
     private static Scanner sc = new Scanner(System.in);
+    private static final int SEARCH_PAGE_SIZE = 20;
 
     public static void main(String[] args) {
-        // Silent database setup
-        if (!DatabaseManager.testConnection()) {
+        // Storage backend - MySQL unless started with -Dlibrary.store=memory
+        LibraryStore store = LibraryStores.fromSystemProperty();
+        LibraryStores.install(store);
+
+        // Silent database setup - applies pending schema migrations only
+        if (!store.testConnection()) {
             System.out.println("Database connection failed.");
             return;
         }
 
-        DatabaseManager.initializeDatabase();
+        store.initialize();
+
+        // Keeps the stored fines of open loans up to date in the background
+        FineAccrualJob fineAccrual = FineAccrualJob.start(store);
 
         Library library = new Library();
 
-        // Predefined librarians - also add to database
+        // Predefined librarians - their database rows come from the seed migration in SchemaMigrations.
+        // Students log in with any account in the database.
         Librarian lib1 = new Librarian(101, "Mr. Sharma");
         Librarian lib2 = new Librarian(102, "Mrs. Sumita");
-        DatabaseManager.addLibrarian(lib1);
-        DatabaseManager.addLibrarian(lib2);
 
         // Store librarians in a list
         List<Librarian> librarians = Arrays.asList(lib1, lib2);
 
-        // Predefined students - also add to database
-        Student s1 = new Student(201, "Rahul", "CSE", "B.Tech");
-        Student s2 = new Student(202, "Priya", "ECE", "B.Tech");
-        DatabaseManager.addStudent(s1);
-        DatabaseManager.addStudent(s2);
-
-        // Preload books - will be stored in database
-        library.addBook(new Book(1001, "Java Programming", "Pearson", "3rd", 2));
-        library.addBook(new Book(1002, "Data Structures", "McGraw Hill", "2nd", 1));
-        library.addBook(new Book(1003, "Database Systems", "Elsevier", "4th", 3));
-
         // Only show this final message
         System.out.println("✅ Library Management System initialized successfully!");
 
@@ -52,11 +50,14 @@ public class Main {
             int choice = sc.nextInt();
 
             switch (choice) {
-                case 1 -> librarianMenu(librarians, library);
-                case 2 -> studentMenu(librarians, library, s1, s2);
+                case 1 -> librarianMenu(library);
+                case 2 -> studentMenu(librarians, library);
                 case 3 -> {
                     System.out.println("👋 Thank you for using Library Management System!");
                     System.out.println("💾 All data has been saved to database");
+                    fineAccrual.close();
+                    store.shutdown();
+                    EventJournal.current().close();
                     return;
                 }
                 default -> System.out.println("❌ Invalid choice! Please try again.");
@@ -65,21 +66,17 @@ public class Main {
     }
 
     // ================= Librarian Menu =================
-    private static void librarianMenu(List<Librarian> librarians, Library library) {
+    private static void librarianMenu(Library library) {
         System.out.print("🆔 Enter Librarian ID: ");
         int id = sc.nextInt();
         System.out.print("🔐 Enter Password: ");
         String password = sc.next();
 
-        Librarian loggedIn = null;
-        for (Librarian l : librarians) {
-            if (l.getLibrarianId() == id && DatabaseManager.verifyLibrarianPassword(id, password)) {
-                loggedIn = l;
-                break;
-            }
-        }
+        // Password check and profile in one query
+        Session session = AuthService.loginLibrarian(id, password);
 
-        if (loggedIn != null) {
+        if (session != null) {
+            Librarian loggedIn = session.librarian();
             while (true) {
                 System.out.println("\n" + "=".repeat(45));
                 System.out.println("👨‍💼 LIBRARIAN DASHBOARD");
@@ -94,7 +91,11 @@ public class Main {
                 System.out.println("6. 🔄 Update Book Details");
                 System.out.println("7. 👨‍🎓 Add New Student");      // NEW OPTION
                 System.out.println("8. 🔑 Change Password");        // NEW OPTION
-                System.out.println("9. 🚪 Logout");
+                System.out.println("9. 📥 Bulk Import Books (CSV/TSV)");
+                System.out.println("10. 📥 Bulk Enroll Students (CSV/TSV)");
+                System.out.println("11. 🔎 Search Books");
+                System.out.println("12. ➕ Add/Remove Copies");
+                System.out.println("13. 🚪 Logout");
                 System.out.println("=".repeat(45));
                 System.out.print("📝 Choice: ");
 
@@ -114,31 +115,45 @@ public class Main {
                         System.out.print("🔢 Enter Copies: ");
                         int copies = sc.nextInt();
 
-                        library.addBook(new Book(bid, title, pub, ed, copies));
+                        if (!library.addBook(new Book(bid, title, pub, ed, copies))) {
+                            System.out.println("❌ Failed to add book. The ID is already in use or a database error occurred!");
+                        }
                     }
                     case 2 -> {
                         System.out.print("🗑️ Enter Book ID to remove: ");
                         int bid = sc.nextInt();
-                        library.removeBook(bid);
+                        if (library.removeBook(bid)) {
+                            System.out.println("✅ Book with ID " + bid + " removed from database.");
+                        } else {
+                            System.out.println("❌ Book not found in database or removal failed!");
+                        }
                     }
-                    case 3 -> library.showBooks();
-                    case 4 -> library.showIssuedBooks();
+                    case 3 -> printBooks(library);
+                    case 4 -> printIssuedBooks(library.getIssuedBooks());
                     case 5 -> {
                         System.out.print("📖 Enter Book ID to update stock: ");
                         int bid = sc.nextInt();
 
-                        library.showBookForEdit(bid);
+                        Book current = library.getBook(bid);
+                        printBookForEdit(bid, current);
 
                         System.out.print("🔢 Enter new stock quantity: ");
                         int newStock = sc.nextInt();
 
-                        library.updateBookStock(bid, newStock);
+                        // Only saved if nobody changed the book while the quantity was typed
+                        BookUpdateResult result = library.updateBookStock(bid, newStock,
+                                current == null ? 0 : current.getVersion());
+                        printUpdateResult(bid, result, "✅ Stock updated successfully!", "❌ Failed to update stock!");
+                        if (result.isUpdated()) {
+                            System.out.println("📖 " + result.book().getTitle() + " stock changed to: " + newStock + " copies");
+                        }
                     }
                     case 6 -> {
                         System.out.print("📖 Enter Book ID to update: ");
                         int bid = sc.nextInt();
 
-                        library.showBookForEdit(bid);
+                        Book current = library.getBook(bid);
+                        printBookForEdit(bid, current);
 
                         sc.nextLine(); // consume newline
                         System.out.print("📝 Enter new title: ");
@@ -150,7 +165,12 @@ public class Main {
                         System.out.print("🔢 Enter new stock: ");
                         int copies = sc.nextInt();
 
-                        library.updateBookDetails(bid, title, pub, ed, copies);
+                        BookUpdateResult result = library.updateBookDetails(bid, title, pub, ed, copies,
+                                current == null ? 0 : current.getVersion());
+                        printUpdateResult(bid, result, "✅ Book details updated successfully!", "❌ Failed to update book details!");
+                        if (result.isUpdated()) {
+                            System.out.println("📖 Updated: " + title + " by " + pub + ", Edition: " + ed + ", Stock: " + copies);
+                        }
                     }
                     case 7 -> {
                         // NEW: Add new student
@@ -164,7 +184,14 @@ public class Main {
                         System.out.print("📚 Enter Course: ");
                         String course = sc.nextLine();
 
-                        library.addNewStudent(sid, name, dept, course);
+                        if (library.addNewStudent(sid, name, dept, course)) {
+                            System.out.println("✅ New student added successfully!");
+                            System.out.println("👨‍🎓 Student: " + name + " (ID: " + sid + ")");
+                            System.out.println("🏫 Department: " + dept + ", Course: " + course);
+                            System.out.println("🔐 Default password set to: " + sid);
+                        } else {
+                            System.out.println("❌ Failed to add student! (Student ID may already exist)");
+                        }
                     }
                     case 8 -> {
                         // NEW: Change password
@@ -174,13 +201,65 @@ public class Main {
                         String confirmPassword = sc.next();
 
                         if (newPassword.equals(confirmPassword)) {
-                            library.changeLibrarianPassword(loggedIn.getLibrarianId(), newPassword);
+                            printPasswordChange(library.changeLibrarianPassword(loggedIn.getLibrarianId(), newPassword));
                         } else {
                             System.out.println("❌ Passwords don't match!");
                         }
                     }
                     case 9 -> {
+                        sc.nextLine(); // consume newline
+                        System.out.println("📄 Columns: book_id, title, publisher, edition, copies");
+                        System.out.print("📂 Enter file path: ");
+                        String path = sc.nextLine().trim();
+
+                        try {
+                            ImportSummary summary = library.importBooks(Path.of(path), progress ->
+                                    System.out.printf("\r⏳ %3.0f%% - %s", progress.fractionDone() * 100, progress));
+                            System.out.println();
+                            System.out.println("✅ Import finished in " + summary.elapsedMillis() + " ms");
+                            summary.rejections().forEach(r -> System.out.println("   ⚠️ " + r));
+                        } catch (Exception e) {
+                            System.out.println();
+                            System.out.println("❌ Import failed: " + e.getMessage());
+                        }
+                    }
+                    case 10 -> {
+                        sc.nextLine(); // consume newline
+                        System.out.println("📄 Columns: student_id, name, department, course");
+                        System.out.print("📂 Enter file path: ");
+                        String path = sc.nextLine().trim();
+                        System.out.print("🧪 Dry run only? (y/n): ");
+                        boolean dryRun = sc.next().trim().equalsIgnoreCase("y");
+
+                        try {
+                            ImportSummary summary = library.importStudents(Path.of(path), dryRun, progress ->
+                                    System.out.printf("\r⏳ %3.0f%% - %s", progress.fractionDone() * 100, progress));
+                            System.out.println();
+                            System.out.println((dryRun ? "✅ Dry run finished in " : "✅ Enrollment finished in ") +
+                                    summary.elapsedMillis() + " ms");
+                            summary.rejections().forEach(r -> System.out.println("   ⚠️ " + r));
+                        } catch (Exception e) {
+                            System.out.println();
+                            System.out.println("❌ Import failed: " + e.getMessage());
+                        }
+                    }
+                    case 11 -> searchBooks(library);
+                    case 12 -> {
+                        System.out.print("📖 Enter Book ID: ");
+                        int bid = sc.nextInt();
+                        System.out.print("🔢 Copies to add (negative to remove): ");
+                        int change = sc.nextInt();
+
+                        BookUpdateResult result = library.adjustBookStock(bid, change);
+                        printUpdateResult(bid, result, "✅ Stock updated successfully!", "❌ Failed to update stock!");
+                        if (result.isUpdated()) {
+                            System.out.println("📖 " + result.book().getTitle() + " now has " +
+                                    result.book().getCopies() + " copies");
+                        }
+                    }
+                    case 13 -> {
                         System.out.println("👋 Logging out...");
+                        AuthService.logout(session.token());
                         return;
                     }
                     default -> System.out.println("❌ Invalid choice!");
@@ -192,29 +271,17 @@ public class Main {
     }
 
     // ================= Student Menu =================
-    private static void studentMenu(List<Librarian> librarians, Library library, Student... students) {
+    private static void studentMenu(List<Librarian> librarians, Library library) {
         System.out.print("🆔 Enter Student ID: ");
         int sid = sc.nextInt();
         System.out.print("🔐 Enter Password: ");
         String password = sc.next();
 
-        Student loggedIn = null;
-        for (Student s : students) {
-            if (s.getStudentId() == sid && DatabaseManager.verifyStudentPassword(sid, password)) {
-                loggedIn = s;
-                break;
-            }
-        }
+        // Password check and profile in one query - also finds students added by a librarian
+        Session session = AuthService.loginStudent(sid, password);
 
-        // Also check database for any new students added by librarian
-        if (loggedIn == null) {
-            Student dbStudent = DatabaseManager.getStudent(sid);
-            if (dbStudent != null && DatabaseManager.verifyStudentPassword(sid, password)) {
-                loggedIn = dbStudent;
-            }
-        }
-
-        if (loggedIn != null) {
+        if (session != null) {
+            Student loggedIn = session.student();
             while (true) {
                 System.out.println("\n" + "=".repeat(40));
                 System.out.println("👨‍🎓 STUDENT DASHBOARD");
@@ -225,7 +292,8 @@ public class Main {
                 System.out.println("2. 📚 Return Book");
                 System.out.println("3. 💰 Check Fine Status");
                 System.out.println("4. 🔑 Change Password");      // NEW OPTION
-                System.out.println("5. 🚪 Logout");
+                System.out.println("5. 🔎 Search Books");
+                System.out.println("6. 🚪 Logout");
                 System.out.println("=".repeat(40));
                 System.out.print("📝 Choice: ");
 
@@ -233,20 +301,20 @@ public class Main {
 
                 switch (ch) {
                     case 1 -> {
-                        library.showBooks();
+                        printBooks(library);
                         System.out.print("📖 Enter Book ID to issue: ");
                         int bid = sc.nextInt();
 
-                        library.issueBook(loggedIn, bid, librarians.get(0));
+                        printIssueResult(library.issueBook(loggedIn, bid, librarians.get(0)), loggedIn, bid);
                     }
                     case 2 -> {
                         System.out.print("📚 Enter Book ID to return: ");
                         int bid = sc.nextInt();
 
-                        library.returnBook(loggedIn, bid, librarians.get(0));
+                        printReturnResult(library.returnBook(loggedIn, bid, librarians.get(0)), loggedIn, bid);
                     }
                     case 3 -> {
-                        library.checkFineForStudent(loggedIn);
+                        printFineStatus(library.checkFineForStudent(loggedIn));
                     }
                     case 4 -> {
                         // NEW: Change password
@@ -256,13 +324,15 @@ public class Main {
                         String confirmPassword = sc.next();
 
                         if (newPassword.equals(confirmPassword)) {
-                            library.changeStudentPassword(loggedIn.getStudentId(), newPassword);
+                            printPasswordChange(library.changeStudentPassword(loggedIn.getStudentId(), newPassword));
                         } else {
                             System.out.println("❌ Passwords don't match!");
                         }
                     }
-                    case 5 -> {
+                    case 5 -> searchBooks(library);
+                    case 6 -> {
                         System.out.println("👋 Logging out...");
+                        AuthService.logout(session.token());
                         return;
                     }
                     default -> System.out.println("❌ Invalid choice!");
@@ -272,4 +342,142 @@ public class Main {
             System.out.println("❌ Invalid Student ID or Password!");
         }
     }
+
+    // ================= Console Output =================
+
+    // All books - streamed from database row by row
+    private static void printBooks(Library library) {
+        System.out.println("\n=== BOOKS IN LIBRARY ===");
+        long[] count = {0};
+        library.forEachBook(book -> {
+            System.out.println(book);
+            count[0]++;
+        });
+        if (count[0] == 0) {
+            System.out.println("📚 No books available in library database.");
+        }
+    }
+
+    // Ranked search over title and publisher, shown one page at a time
+    private static void searchBooks(Library library) {
+        sc.nextLine(); // consume newline
+        System.out.print("🔎 Search title or publisher: ");
+        String query = sc.nextLine();
+
+        int offset = 0;
+        while (true) {
+            SearchResult result = library.searchBooks(query, offset, SEARCH_PAGE_SIZE);
+            if (offset == 0) {
+                System.out.printf("%n=== %d MATCHES FOR \"%s\" (%.1f ms) ===%n",
+                        result.totalHits(), query.trim(), result.elapsedMillis());
+            }
+            result.books().forEach(System.out::println);
+            if (!result.hasMore()) {
+                return;
+            }
+            offset += SEARCH_PAGE_SIZE;
+            System.out.print("➡️ More results? (y/n): ");
+            if (!sc.next().trim().equalsIgnoreCase("y")) {
+                return;
+            }
+        }
+    }
+
+    private static void printIssuedBooks(List<IssuedBookRow> rows) {
+        System.out.println("\n=== ISSUED BOOKS ===");
+        rows.forEach(System.out::println);
+    }
+
+    private static void printBookForEdit(int bookId, Book book) {
+        if (book != null) {
+            System.out.println("\n=== CURRENT BOOK DETAILS ===");
+            System.out.println("📖 Book ID: " + book.getBookId());
+            System.out.println("📝 Title: " + book.getTitle());
+            System.out.println("🏢 Publisher: " + book.getPublisher());
+            System.out.println("📄 Edition: " + book.getEdition());
+            System.out.println("🔢 Current Stock: " + book.getCopies());
+            System.out.println("=".repeat(35));
+        } else {
+            System.out.println("❌ Book with ID " + bookId + " not found!");
+        }
+    }
+
+    private static void printUpdateResult(int bookId, BookUpdateResult result, String updated, String failed) {
+        switch (result.outcome()) {
+            case UPDATED -> System.out.println(updated);
+            case NOT_FOUND -> System.out.println("❌ Book with ID " + bookId + " not found!");
+            case CONFLICT -> System.out.println("⚠️ Book " + bookId +
+                    " was changed by someone else meanwhile - nothing saved, please check it and try again.");
+            case NOT_ENOUGH_COPIES -> System.out.println("❌ Book " + bookId + " only has " +
+                    result.book().getCopies() + " copies!");
+            case ERROR -> System.out.println(failed);
+        }
+    }
+
+    private static void printPasswordChange(boolean success) {
+        if (success) {
+            System.out.println("✅ Password changed successfully!");
+            System.out.println("🔐 Your new password has been updated in the database.");
+        } else {
+            System.out.println("❌ Failed to change password!");
+        }
+    }
+
+    private static void printIssueResult(IssueResult result, Student student, int bookId) {
+        switch (result.outcome()) {
+            case ISSUED -> {
+                Book book = result.book();
+                System.out.println("✅ Book issued successfully!");
+                System.out.println("📖 " + book.getTitle() + " by " + book.getPublisher() +
+                        " issued to " + student.getName());
+                System.out.println("📅 Due date: " + FinePolicy.current().dueDate(LocalDate.now()));
+            }
+            case LOAN_LIMIT_REACHED -> System.out.println("❌ Error! " + student.getName() + " already has " +
+                    LoanLimitPolicy.current().limitFor(student) + " book(s) issued, the limit. Return one first!");
+            case UNKNOWN_BOOK -> System.out.println("❌ Book with ID " + bookId + " not found in database!");
+            case NO_COPIES -> System.out.println("❌ Book not available! No copies left in stock.");
+            case ERROR -> System.out.println("❌ Failed to issue book. Database error occurred!");
+        }
+    }
+
+    private static void printReturnResult(ReturnResult result, Student student, int bookId) {
+        switch (result.outcome()) {
+            case RETURNED -> {
+                System.out.println("✅ Book returned successfully!");
+                System.out.println("📅 Issue date: " + result.issueDate());
+                System.out.println("📅 Return date: " + result.returnDate());
+                System.out.println("📊 Total days: " + result.daysKept());
+
+                if (result.fine() > 0) {
+                    System.out.println("💰 Fine applied: ₹" + result.fine() +
+                            " (Late by " + result.daysLate() + " days)");
+                } else {
+                    System.out.println("👍 No fine applied - returned on time!");
+                }
+            }
+            case NOT_ISSUED -> System.out.println("❌ No issued book with ID " + bookId +
+                    " found for student " + student.getName());
+            case ERROR -> System.out.println("❌ Failed to return book. Database error occurred!");
+        }
+    }
+
+    private static void printFineStatus(List<LoanStatus> loans) {
+        if (loans.isEmpty()) {
+            System.out.println("✅ No books currently issued.");
+            return;
+        }
+        System.out.println("\n=== FINE STATUS ===");
+        for (LoanStatus loan : loans) {
+            System.out.println("📖 Book: " + loan.title());
+            System.out.println("📅 Issue Date: " + loan.issueDate());
+            System.out.println("📊 Days Issued: " + loan.daysIssued());
+            System.out.println("⏰ Due Date: " + loan.dueDate());
+
+            if (loan.isLate()) {
+                System.out.println("💰 Current Fine: ₹" + loan.fine() + " (Late by " + loan.daysLate() + " days)");
+            } else {
+                System.out.println("✅ No fine yet. " + loan.daysLeft() + " days left to return.");
+            }
+        }
+    }
 }
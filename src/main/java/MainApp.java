@@ -6,35 +6,26 @@ import javafx.stage.Stage;
 import librarysystem.*;
 
 public class MainApp extends Application {
+    private FineAccrualJob fineAccrual;
 
     @Override
     public void start(Stage primaryStage) {
         try {
+            // Storage backend - MySQL unless started with -Dlibrary.store=memory
+            LibraryStore store = LibraryStores.fromSystemProperty();
+            LibraryStores.install(store);
+
             // Initialize database
-            if (!DatabaseManager.testConnection()) {
+            if (!store.testConnection()) {
                 System.out.println("Database connection failed.");
                 return;
             }
 
-            DatabaseManager.initializeDatabase();
-
-            // Predefined librarians
-            Librarian lib1 = new Librarian(101, "Mr. Sharma");
-            Librarian lib2 = new Librarian(102, "Mrs. Sumita");
-            DatabaseManager.addLibrarian(lib1);
-            DatabaseManager.addLibrarian(lib2);
+            // Apply pending schema migrations - the first start also seeds the default accounts and books
+            store.initialize();
 
-            // Predefined students
-            Student s1 = new Student(201, "Rahul", "CSE", "B.Tech");
-            Student s2 = new Student(202, "Priya", "ECE", "B.Tech");
-            DatabaseManager.addStudent(s1);
-            DatabaseManager.addStudent(s2);
-
-            // Preload books
-            Library library = new Library();
-            library.addBook(new Book(1001, "Java Programming", "Pearson", "3rd", 2));
-            library.addBook(new Book(1002, "Data Structures", "McGraw Hill", "2nd", 1));
-            library.addBook(new Book(1003, "Database Systems", "Elsevier", "4th", 3));
+            // Keeps the stored fines of open loans up to date in the background
+            fineAccrual = FineAccrualJob.start(store);
 
             System.out.println("✅ Library Management System initialized successfully!");
 
@@ -53,6 +44,16 @@ public class MainApp extends Application {
         }
     }
 
+    @Override
+    public void stop() {
+        // Stop fine accrual, release pooled database connections and flush the event journal
+        if (fineAccrual != null) {
+            fineAccrual.close();
+        }
+        LibraryStores.current().shutdown();
+        EventJournal.current().close();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
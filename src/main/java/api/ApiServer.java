@@ -0,0 +1,419 @@
+package api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import librarysystem.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Headless HTTP/JSON front end for self-checkout kiosks and the web catalog - see ApiMain.
+// Every request runs on its own virtual thread, so thousands of idle or slow kiosk connections
+// cost next to nothing. Storage calls are what is scarce: at most library.api.maxConcurrentDb
+// run at once (default: the size of the connection pool) and the rest queue for a permit; one that
+// waits longer than library.api.dbWaitMs gets 503 instead of piling up on the pool.
+//
+//   POST /api/login    {"role": "student" | "librarian", "id": 201, "password": "..."} -> token
+//   POST /api/logout
+//   GET  /api/books    ?after=<last book ID>&limit=   (keyset pages in ID order)
+//   GET  /api/books/<id>
+//   GET  /api/search   ?q=&offset=&limit=
+//   GET  /api/loans    open loans with due dates and fines (librarians pass ?studentId=)
+//   POST /api/issue    {"bookId": 1001}   student sessions only
+//   POST /api/return   {"bookId": 1001}   student sessions only
+//
+// Logged-in calls send "Authorization: Bearer <token>"; sessions are the ones AuthService keeps.
+public class ApiServer implements AutoCloseable {
+    private static final int DB_PERMITS = Integer.getInteger("library.api.maxConcurrentDb",
+            Integer.getInteger("library.pool.maxSize", 10));
+    private static final long DB_WAIT_MS = Long.getLong("library.api.dbWaitMs", 5_000);
+    private static final int BACKLOG = Integer.getInteger("library.api.backlog", 1_024);
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    // Self-service loans are booked to the same system librarian the student dashboard uses
+    private static final Librarian KIOSK_LIBRARIAN = new Librarian(0, "System");
+
+    private final Library library;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore dbPermits = new Semaphore(DB_PERMITS, true);
+
+    // A failed request - sent to the client as {"error": message} with the status
+    private static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private record Response(int status, Object body) {
+        static Response ok(Object body) {
+            return new Response(200, body);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Endpoint {
+        Response handle(HttpExchange exchange) throws Exception;
+    }
+
+    private ApiServer(Library library, HttpServer server) {
+        this.library = library;
+        this.server = server;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("api-", 0).factory());
+        server.setExecutor(executor);
+
+        route("/api/login", false, "POST", "api.login", this::login);
+        route("/api/logout", false, "POST", "api.logout", this::logout);
+        route("/api/books", true, "GET", "api.books", this::books);
+        route("/api/search", false, "GET", "api.search", this::search);
+        route("/api/loans", false, "GET", "api.loans", this::loans);
+        route("/api/issue", false, "POST", "api.issue", this::issue);
+        route("/api/return", false, "POST", "api.return", this::returnBook);
+    }
+
+    // Listen on the port (0 picks a free one) - close() stops the server
+    public static ApiServer start(Library library, int port) throws IOException {
+        ApiServer api = new ApiServer(library, HttpServer.create(new InetSocketAddress(port), BACKLOG));
+        api.server.start();
+        return api;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Stop accepting, give running requests a second to finish, then stop their threads
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    // === ENDPOINTS ===
+
+    private Response login(HttpExchange exchange) throws Exception {
+        Map<String, Object> body = readBody(exchange);
+        String role = requireString(body, "role");
+        int id = requireInt(body, "id");
+        String password = requireString(body, "password");
+
+        Session session = switch (role) {
+            case "student" -> withDb(() -> AuthService.loginStudent(id, password));
+            case "librarian" -> withDb(() -> AuthService.loginLibrarian(id, password));
+            default -> throw new ApiException(400, "role must be student or librarian");
+        };
+        if (session == null) {
+            throw new ApiException(401, "Invalid ID or password");
+        }
+        return Response.ok(Json.object("token", session.token(), "role", role, "name", session.userName()));
+    }
+
+    private Response logout(HttpExchange exchange) {
+        AuthService.logout(bearerToken(exchange));
+        return new Response(204, null);
+    }
+
+    // /api/books is the catalog in pages, /api/books/<id> one book
+    private Response books(HttpExchange exchange) throws Exception {
+        String rest = exchange.getRequestURI().getPath().substring("/api/books".length());
+        if (rest.isEmpty() || rest.equals("/")) {
+            Map<String, String> query = query(exchange);
+            int after = intParam(query, "after", 0);
+            int limit = pageSize(query);
+            List<Book> page = withDb(() -> library.getBooksPage(after, limit));
+            Integer next = page.size() < limit ? null : page.get(page.size() - 1).getBookId();
+            return Response.ok(Json.object("books", Json.list(page, ApiServer::book), "nextAfter", next));
+        }
+        int bookId = parseId(rest.substring(1));
+        Book book = withDb(() -> library.getBook(bookId));
+        if (book == null) {
+            throw new ApiException(404, "Book " + bookId + " not found");
+        }
+        return Response.ok(book(book));
+    }
+
+    private Response search(HttpExchange exchange) throws Exception {
+        Map<String, String> query = query(exchange);
+        String q = query.getOrDefault("q", "").trim();
+        if (q.isEmpty()) {
+            throw new ApiException(400, "q is required");
+        }
+        int offset = intParam(query, "offset", 0);
+        int limit = pageSize(query);
+        SearchResult result = withDb(() -> library.searchBooks(q, offset, limit));
+        return Response.ok(Json.object(
+                "query", result.query(),
+                "totalHits", result.totalHits(),
+                "offset", result.offset(),
+                "hasMore", result.hasMore(),
+                "books", Json.list(result.books(), ApiServer::book)));
+    }
+
+    private Response loans(HttpExchange exchange) throws Exception {
+        Session session = requireSession(exchange);
+        int studentId;
+        if (session.isLibrarian()) {
+            studentId = intParam(query(exchange), "studentId", -1);
+            if (studentId < 0) {
+                throw new ApiException(400, "studentId is required for librarians");
+            }
+        } else {
+            studentId = session.student().getStudentId();
+        }
+        List<LoanStatus> loans = withDb(() -> library.getStudentLoans(studentId));
+        int totalFine = loans.stream().mapToInt(LoanStatus::fine).sum();
+        return Response.ok(Json.object(
+                "studentId", studentId,
+                "loans", Json.list(loans, ApiServer::loan),
+                "totalFine", totalFine));
+    }
+
+    private Response issue(HttpExchange exchange) throws Exception {
+        Student student = requireStudent(exchange);
+        int bookId = requireInt(readBody(exchange), "bookId");
+        IssueResult result = withDb(() -> library.issueBook(student, bookId, KIOSK_LIBRARIAN));
+
+        Map<String, Object> body = Json.object("outcome", result.outcome().name(),
+                "book", result.book() == null ? null : book(result.book()));
+        int status = switch (result.outcome()) {
+            case ISSUED -> {
+                body.put("dueDate", FinePolicy.current().dueDate(LocalDate.now()));
+                yield 200;
+            }
+            case LOAN_LIMIT_REACHED -> {
+                body.put("loanLimit", LoanLimitPolicy.current().limitFor(student));
+                yield 409;
+            }
+            case NO_COPIES -> 409;
+            case UNKNOWN_BOOK -> 404;
+            case ERROR -> 500;
+        };
+        return new Response(status, body);
+    }
+
+    private Response returnBook(HttpExchange exchange) throws Exception {
+        Student student = requireStudent(exchange);
+        int bookId = requireInt(readBody(exchange), "bookId");
+        ReturnResult result = withDb(() -> library.returnBook(student, bookId, KIOSK_LIBRARIAN));
+
+        return switch (result.outcome()) {
+            case RETURNED -> Response.ok(Json.object(
+                    "outcome", result.outcome().name(),
+                    "issueDate", result.issueDate(),
+                    "returnDate", result.returnDate(),
+                    "daysKept", result.daysKept(),
+                    "daysLate", result.daysLate(),
+                    "fine", result.fine()));
+            case NOT_ISSUED -> new Response(409, Json.object("outcome", result.outcome().name(),
+                    "error", "Book " + bookId + " is not issued to you"));
+            case ERROR -> new Response(500, Json.object("outcome", result.outcome().name()));
+        };
+    }
+
+    private static Map<String, Object> book(Book book) {
+        return Json.object(
+                "bookId", book.getBookId(),
+                "title", book.getTitle(),
+                "publisher", book.getPublisher(),
+                "edition", book.getEdition(),
+                "copies", book.getCopies(),
+                "version", book.getVersion());
+    }
+
+    private static Map<String, Object> loan(LoanStatus loan) {
+        return Json.object(
+                "bookId", loan.bookId(),
+                "title", loan.title(),
+                "issueDate", loan.issueDate(),
+                "dueDate", loan.dueDate(),
+                "daysIssued", loan.daysIssued(),
+                "daysLate", loan.daysLate(),
+                "fine", loan.fine(),
+                "fineAccruedOn", loan.fineAccruedOn());
+    }
+
+    // === PLUMBING ===
+
+    // Serve the path (and the paths below it if subPaths) with the endpoint,
+    // timed in LibraryMetrics under the operation name
+    private void route(String path, boolean subPaths, String method, String operation, Endpoint endpoint) {
+        OperationMetrics metrics = LibraryMetrics.operation(operation);
+        server.createContext(path, exchange -> {
+            long start = System.nanoTime();
+            try (exchange) {
+                Response response;
+                try {
+                    // A context matches every path that starts with its own, e.g. /api/loansXYZ
+                    String requested = exchange.getRequestURI().getPath();
+                    if (!requested.equals(path) && !(subPaths && requested.startsWith(path + "/"))) {
+                        throw new ApiException(404, "No such resource");
+                    }
+                    if (!method.equals(exchange.getRequestMethod())) {
+                        exchange.getResponseHeaders().set("Allow", method);
+                        throw new ApiException(405, "Use " + method);
+                    }
+                    response = endpoint.handle(exchange);
+                } catch (ApiException e) {
+                    response = new Response(e.status, Json.object("error", e.getMessage()));
+                } catch (IllegalArgumentException e) {
+                    response = new Response(400, Json.object("error", e.getMessage()));
+                } catch (Exception e) {
+                    System.err.println("Error handling " + exchange.getRequestMethod() + " " +
+                            exchange.getRequestURI().getPath() + ": " + e.getMessage());
+                    response = new Response(500, Json.object("error", "Internal error"));
+                }
+                if (response.status() >= 500) {
+                    metrics.recordError();
+                }
+                send(exchange, response);
+            } catch (IOException e) {
+                metrics.recordError(); // Client went away mid-response
+            } finally {
+                metrics.record(System.nanoTime() - start);
+            }
+        });
+    }
+
+    // Run a storage call once a permit is free - 503 if none frees up in time
+    private <T> T withDb(Callable<T> call) throws Exception {
+        boolean acquired;
+        try {
+            acquired = dbPermits.tryAcquire(DB_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(503, "Server shutting down");
+        }
+        if (!acquired) {
+            throw new ApiException(503, "Server busy - try again shortly");
+        }
+        try {
+            return call.call();
+        } finally {
+            dbPermits.release();
+        }
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        if (response.body() == null) {
+            exchange.sendResponseHeaders(response.status(), -1);
+            return;
+        }
+        byte[] bytes = Json.write(response.body()).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status(), bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new ApiException(413, "Request body too large");
+            }
+            return Json.parseObject(new String(bytes, StandardCharsets.UTF_8).trim());
+        }
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    private static Session requireSession(HttpExchange exchange) {
+        Session session = AuthService.getSession(bearerToken(exchange));
+        if (session == null) {
+            throw new ApiException(401, "Log in first - the session is missing or has expired");
+        }
+        return session;
+    }
+
+    private static Student requireStudent(HttpExchange exchange) {
+        Session session = requireSession(exchange);
+        if (session.isLibrarian()) {
+            throw new ApiException(403, "Issue and return are for student sessions");
+        }
+        return session.student();
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static int pageSize(Map<String, String> query) {
+        int limit = intParam(query, "limit", DEFAULT_PAGE_SIZE);
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ApiException(400, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+    private static int intParam(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, name + " must be a whole number");
+        }
+    }
+
+    private static int parseId(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(404, "No such resource");
+        }
+    }
+
+    private static String requireString(Map<String, Object> body, String name) {
+        if (!(body.get(name) instanceof String value) || value.isEmpty()) {
+            throw new ApiException(400, name + " is required");
+        }
+        return value;
+    }
+
+    private static int requireInt(Map<String, Object> body, String name) {
+        if (!(body.get(name) instanceof Long value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new ApiException(400, name + " must be a whole number");
+        }
+        return value.intValue();
+    }
+}
@@ -0,0 +1,137 @@
+package controllers;
+
+import javafx.application.Platform;
+import javafx.beans.binding.BooleanBinding;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+// Runs database work off the JavaFX application thread and hands results back on it.
+// Each controller owns one instance and calls it from the FX thread only. Requests are keyed:
+// starting a request cancels the still-running one with the same key (e.g. pressing Refresh twice),
+// and a cancelled or superseded request never delivers its result.
+// Cancelling never interrupts a call that is already running - an interrupt can abort a JDBC call
+// half way and close its connection - it only drops the result, or skips a call still waiting its turn.
+// Writes are started with runWrite and are left to finish when the screen is left.
+class AsyncDataAccess {
+    // Shared by all screens - at most this many database calls run at once, the rest wait their turn
+    private static final int MAX_CONCURRENT_CALLS = Integer.getInteger("library.async.maxConcurrent", 8);
+    private static final Semaphore CALL_PERMITS = new Semaphore(MAX_CONCURRENT_CALLS, true);
+    private static final ExecutorService EXECUTOR =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("db-call-", 0).factory());
+
+    private final Map<String, Request> latest = new HashMap<>();
+    private final IntegerProperty inFlight = new SimpleIntegerProperty();
+
+    // True while any request of this owner is running - bind progress indicators to it
+    BooleanBinding busyProperty() {
+        return inFlight.greaterThan(0);
+    }
+
+    // Run work in the background; onSuccess gets the result on the FX thread.
+    // Failures are printed and passed to onFailure, which may be null.
+    <T> void run(String key, Callable<T> work, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        submit(key, false, work, onSuccess, onFailure);
+    }
+
+    // Like run, for a change to the library - cancelAll leaves it running and it still reports back
+    <T> void runWrite(String key, Callable<T> work, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        submit(key, true, work, onSuccess, onFailure);
+    }
+
+    private <T> void submit(String key, boolean write, Callable<T> work, Consumer<T> onSuccess,
+                            Consumer<Throwable> onFailure) {
+        cancel(key);
+
+        Request request = new Request(write);
+        latest.put(key, request);
+        inFlight.set(inFlight.get() + 1);
+
+        request.future = EXECUTOR.submit(() -> {
+            T result = null;
+            Throwable failure = null;
+            try {
+                CALL_PERMITS.acquire();
+                try {
+                    if (request.cancelled) {
+                        return; // Cancelled while waiting for a permit
+                    }
+                    result = work.call();
+                } finally {
+                    CALL_PERMITS.release();
+                }
+            } catch (InterruptedException e) {
+                return; // The executor is shutting down
+            } catch (Throwable t) {
+                failure = t;
+            }
+
+            T value = result;
+            Throwable error = failure;
+            Platform.runLater(() -> {
+                if (!finish(key, request)) {
+                    return; // Stale - a newer request with the same key took over
+                }
+                if (error == null) {
+                    onSuccess.accept(value);
+                } else {
+                    System.err.println("Background database call '" + key + "' failed: " + error.getMessage());
+                    if (onFailure != null) {
+                        onFailure.accept(error);
+                    }
+                }
+            });
+        });
+    }
+
+    // Cancel the running request with this key, if any
+    void cancel(String key) {
+        Request previous = latest.remove(key);
+        if (previous != null) {
+            previous.cancelled = true;
+            previous.future.cancel(false);   // Only stops it if it has not started
+            inFlight.set(inFlight.get() - 1);
+        }
+    }
+
+    // Cancel every read this owner started, e.g. when leaving the screen - writes run to the end
+    void cancelAll() {
+        for (String key : latest.keySet().toArray(new String[0])) {
+            if (!latest.get(key).write) {
+                cancel(key);
+            }
+        }
+    }
+
+    boolean isRunning(String key) {
+        return latest.containsKey(key);
+    }
+
+    // Called on the FX thread when a request completes - false if it was cancelled or superseded
+    private boolean finish(String key, Request request) {
+        if (request.cancelled || latest.get(key) != request) {
+            return false;
+        }
+        latest.remove(key);
+        inFlight.set(inFlight.get() - 1);
+        return true;
+    }
+
+    private static final class Request {
+        final boolean write;
+        Future<?> future;
+        volatile boolean cancelled;   // Set on the FX thread, read by the call
+
+        Request(boolean write) {
+            this.write = write;
+        }
+    }
+}
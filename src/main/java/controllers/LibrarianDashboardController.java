@@ -1,24 +1,31 @@
 package controllers;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import librarysystem.*;
 
-import java.io.ByteArrayOutputStream;
-import java.io.PrintStream;
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 public class LibrarianDashboardController {
     
     @FXML private Label lblLibrarianName;
     @FXML private Button btnLogout;
+    @FXML private ProgressIndicator piBusy;
     
     // View Books Tab
     @FXML private TableView<Book> tblBooks;
@@ -27,6 +34,8 @@ public class LibrarianDashboardController {
     @FXML private TableColumn<Book, String> colPublisher;
     @FXML private TableColumn<Book, String> colEdition;
     @FXML private TableColumn<Book, Integer> colCopies;
+    @FXML private TextField txtSearchBooks;
+    @FXML private Label lblSearchBooks;
     
     // Add Book Tab
     @FXML private TextField txtAddBookId;
@@ -35,6 +44,9 @@ public class LibrarianDashboardController {
     @FXML private TextField txtAddEdition;
     @FXML private TextField txtAddCopies;
     @FXML private Label lblAddBookStatus;
+    @FXML private Button btnImportBooks;
+    @FXML private ProgressBar pbImportBooks;
+    @FXML private Label lblImportBooksStatus;
     
     // Remove Book Tab
     @FXML private TextField txtRemoveBookId;
@@ -42,6 +54,14 @@ public class LibrarianDashboardController {
     
     // Issued Books Tab
     @FXML private TextArea txtIssuedBooks;
+    @FXML private Button btnPrevIssued;
+    @FXML private Button btnNextIssued;
+    @FXML private Label lblIssuedPage;
+    @FXML private ComboBox<ReportType> cmbReport;
+    @FXML private Button btnExportReport;
+    @FXML private Button btnCancelExport;
+    @FXML private ProgressBar pbExportReport;
+    @FXML private Label lblExportReportStatus;
     
     // Add Student Tab
     @FXML private TextField txtAddStudentId;
@@ -49,14 +69,29 @@ public class LibrarianDashboardController {
     @FXML private TextField txtAddStudentDept;
     @FXML private TextField txtAddStudentCourse;
     @FXML private Label lblAddStudentStatus;
+    @FXML private CheckBox chkRosterDryRun;
+    @FXML private Button btnImportStudents;
+    @FXML private ProgressBar pbImportStudents;
+    @FXML private Label lblImportStudentsStatus;
     
     // Change Password Tab
     @FXML private PasswordField txtNewPassword;
     @FXML private PasswordField txtConfirmPassword;
     @FXML private Label lblChangePasswordStatus;
     
-    private Librarian librarian;
+    private Session session;
     private Library library = new Library();
+    private final AsyncDataAccess async = new AsyncDataAccess();
+    private PagedBookTable booksTable;
+    private AtomicBoolean exportCancelled;   // Set to stop the running export, null when none runs
+    
+    // Issued Books tab pages through open loans by issue ID
+    private static final int ISSUED_PAGE_SIZE = 100;
+    private final Deque<Integer> issuedPageStarts = new ArrayDeque<>();   // Page starts before the current one
+    private int issuedPageAfter;
+    private List<IssuedBookRow> issuedRows = List.of();
+    private boolean issuedHasNext;
+    private long issuedRevision = -1;   // Change revision of the shown page, -1 before the first load
     
     @FXML
     public void initialize() {
@@ -67,17 +102,37 @@ public class LibrarianDashboardController {
         colEdition.setCellValueFactory(new PropertyValueFactory<>("edition"));
         colCopies.setCellValueFactory(new PropertyValueFactory<>("copies"));
         
+        piBusy.visibleProperty().bind(async.busyProperty());
+        booksTable = new PagedBookTable(tblBooks, async);
+        booksTable.bindSearch(txtSearchBooks, lblSearchBooks);
+        cmbReport.getItems().setAll(ReportType.values());
+        cmbReport.getSelectionModel().selectFirst();
         loadBooks();
         loadIssuedBooks();
     }
     
-    public void setLibrarian(Librarian librarian) {
-        this.librarian = librarian;
-        lblLibrarianName.setText("Logged in as: " + librarian.getName());
+    public void setSession(Session session) {
+        this.session = session;
+        lblLibrarianName.setText("Logged in as: " + session.userName());
+    }
+    
+    // Logged-in librarian from the session cache - null once the session has expired
+    private Librarian activeLibrarian() {
+        Session active = AuthService.getSession(session == null ? null : session.token());
+        if (active == null) {
+            lblLibrarianName.setText("⚠️ Session expired - please log out and log in again");
+            return null;
+        }
+        return active.librarian();
     }
     
     @FXML
     private void handleLogout() {
+        handleCancelExport();
+        async.cancelAll();
+        if (session != null) {
+            AuthService.logout(session.token());
+        }
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/LoginView.fxml"));
             Parent root = loader.load();
@@ -97,10 +152,10 @@ public class LibrarianDashboardController {
         loadBooks();
     }
     
+    // Apply the books changed since the last load - the first call loads the first page,
+    // further pages load as the table is scrolled
     private void loadBooks() {
-        List<Book> books = DatabaseManager.getAllBooks();
-        ObservableList<Book> bookList = FXCollections.observableArrayList(books);
-        tblBooks.setItems(bookList);
+        booksTable.refresh();
     }
     
     @FXML
@@ -117,12 +172,20 @@ public class LibrarianDashboardController {
                 return;
             }
             
+            // Writes are never cancelled - a second click while one is running is ignored
+            if (async.isRunning("add-book")) {
+                return;
+            }
             Book newBook = new Book(bookId, title, publisher, edition, copies);
-            library.addBook(newBook);
-            
-            showAddBookStatus("✅ Book added successfully!", "green");
-            clearAddBookFields();
-            loadBooks();
+            async.runWrite("add-book", () -> library.addBook(newBook), added -> {
+                if (added) {
+                    showAddBookStatus("✅ Book added successfully!", "green");
+                    clearAddBookFields();
+                    loadBooks();
+                } else {
+                    showAddBookStatus("❌ Could not add the book - is the Book ID already in use?", "red");
+                }
+            }, null);
             
         } catch (NumberFormatException e) {
             showAddBookStatus("❌ Book ID and Copies must be numbers!", "red");
@@ -142,31 +205,80 @@ public class LibrarianDashboardController {
         lblAddBookStatus.setStyle("-fx-text-fill: " + color + ";");
     }
     
+    @FXML
+    private void handleImportBooks() {
+        File file = chooseImportFile("Import Books");
+        if (file != null) {
+            runImport("catalog-import", btnImportBooks, pbImportBooks, lblImportBooksStatus,
+                    progress -> library.importBooks(file.toPath(), progress), this::loadBooks);
+        }
+    }
+
+    private File chooseImportFile(String title) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(title);
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV / TSV files", "*.csv", "*.tsv", "*.txt"),
+                new FileChooser.ExtensionFilter("All files", "*.*"));
+        return chooser.showOpenDialog(btnLogout.getScene().getWindow());
+    }
+
+    // Bulk import that reports progress through the given listener
+    private interface ImportJob {
+        ImportSummary run(Consumer<ImportSummary> progress) throws Exception;
+    }
+
+    // Run an import in the background, following its progress on the given bar and label.
+    // An import is a write - leaving the screen does not stop it.
+    private void runImport(String key, Button button, ProgressBar bar, Label status,
+                           ImportJob job, Runnable onSuccess) {
+        if (async.isRunning(key)) {
+            return;
+        }
+        bar.setProgress(0);
+        status.setText("");
+        status.setStyle("-fx-text-fill: #333333;");
+        bar.setVisible(true);
+        button.setDisable(true);
+
+        async.runWrite(key, () -> job.run(progress -> Platform.runLater(() -> {
+            bar.setProgress((double) progress.bytesRead() / Math.max(1, progress.totalBytes()));
+            status.setText("⏳ " + progress);
+        })), summary -> {
+            String message = "✅ Finished in " + summary.elapsedMillis() + " ms - " + summary;
+            if (!summary.rejections().isEmpty()) {
+                message += "\nFirst problem: " + summary.rejections().get(0);
+            }
+            finishImport(button, bar, status, message, summary.rejected() > 0 ? "orange" : "green");
+            onSuccess.run();
+        }, error -> finishImport(button, bar, status, "❌ Import failed: " + error.getMessage(), "red"));
+    }
+
+    private void finishImport(Button button, ProgressBar bar, Label status, String message, String color) {
+        bar.setVisible(false);
+        button.setDisable(false);
+        status.setText(message);
+        status.setStyle("-fx-text-fill: " + color + ";");
+    }
+    
     @FXML
     private void handleRemoveBook() {
         try {
             int bookId = Integer.parseInt(txtRemoveBookId.getText().trim());
-            
-            // Capture console output
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            PrintStream ps = new PrintStream(baos);
-            PrintStream old = System.out;
-            System.setOut(ps);
-            
-            library.removeBook(bookId);
-            
-            System.out.flush();
-            System.setOut(old);
-            
-            String output = baos.toString();
-            if (output.contains("✅")) {
-                showRemoveBookStatus("✅ Book removed successfully!", "green");
-            } else {
-                showRemoveBookStatus("❌ Book not found!", "red");
+            if (async.isRunning("remove-book")) {
+                return;
             }
             
-            txtRemoveBookId.clear();
-            loadBooks();
+            async.runWrite("remove-book", () -> library.removeBook(bookId), removed -> {
+                if (removed) {
+                    showRemoveBookStatus("✅ Book removed successfully!", "green");
+                } else {
+                    showRemoveBookStatus("❌ Book not found!", "red");
+                }
+                
+                txtRemoveBookId.clear();
+                loadBooks();
+            }, error -> showRemoveBookStatus("❌ Could not remove the book!", "red"));
             
         } catch (NumberFormatException e) {
             showRemoveBookStatus("❌ Book ID must be a number!", "red");
@@ -178,24 +290,170 @@ public class LibrarianDashboardController {
         lblRemoveBookStatus.setStyle("-fx-text-fill: " + color + ";");
     }
     
+    // Apply the loans changed since the last load - when nothing changed this is one small query
     @FXML
     private void handleRefreshIssuedBooks() {
-        loadIssuedBooks();
+        if (issuedRevision < 0) {
+            loadIssuedBooks();
+            return;
+        }
+        long since = issuedRevision;
+        async.run("issued-changes", () -> library.getLoanChanges(since), this::applyIssuedChanges, null);
+    }
+    
+    @FXML
+    private void handleNextIssuedPage() {
+        if (!issuedRows.isEmpty()) {
+            issuedPageStarts.push(issuedPageAfter);
+            loadIssuedPage(issuedRows.get(issuedRows.size() - 1).issueId());
+        }
+    }
+    
+    @FXML
+    private void handlePrevIssuedPage() {
+        if (!issuedPageStarts.isEmpty()) {
+            loadIssuedPage(issuedPageStarts.pop());
+        }
     }
     
+    // Back to the first page. The revision is read first, so changes made meanwhile come with the next refresh.
     private void loadIssuedBooks() {
-        // Capture console output
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        PrintStream ps = new PrintStream(baos);
-        PrintStream old = System.out;
-        System.setOut(ps);
-        
-        DatabaseManager.displayIssuedBooks();
-        
-        System.out.flush();
-        System.setOut(old);
-        
-        txtIssuedBooks.setText(baos.toString());
+        issuedPageStarts.clear();
+        async.cancel("issued-changes");
+        async.run("issued-books", library::getChangeRevision, current -> {
+            issuedRevision = current;
+            loadIssuedPage(0);
+        }, null);
+    }
+    
+    // One extra row tells whether there is a next page. A second load replaces the one still running.
+    private void loadIssuedPage(int afterIssueId) {
+        async.run("issued-books", () -> library.getIssuedBooksPage(afterIssueId, ISSUED_PAGE_SIZE + 1),
+                rows -> showIssuedBooks(afterIssueId, rows), null);
+    }
+    
+    private void showIssuedBooks(int afterIssueId, List<IssuedBookRow> rows) {
+        issuedPageAfter = afterIssueId;
+        issuedHasNext = rows.size() > ISSUED_PAGE_SIZE;
+        issuedRows = issuedHasNext ? rows.subList(0, ISSUED_PAGE_SIZE) : rows;
+        renderIssuedBooks();
+    }
+    
+    // Closed loans leave the page; loans that fall inside it are added or updated in place
+    private void applyIssuedChanges(LoanChanges changes) {
+        if (changes.truncated()) {
+            loadIssuedBooks();
+            return;
+        }
+        if (async.isRunning("issued-books")) {
+            // The page on its way may have been read before these changes - keep the old
+            // revision, so the next refresh fetches them again and applies them to it
+            return;
+        }
+        issuedRevision = changes.revision();
+        if (changes.isEmpty()) {
+            return;
+        }
+        int lastOnPage = issuedHasNext ? issuedRows.get(issuedRows.size() - 1).issueId() : Integer.MAX_VALUE;
+        TreeMap<Integer, IssuedBookRow> page = new TreeMap<>();
+        for (IssuedBookRow row : issuedRows) {
+            page.put(row.issueId(), row);
+        }
+        changes.closedIssueIds().forEach(page::remove);
+        for (IssuedBookRow row : changes.open()) {
+            if (row.issueId() > issuedPageAfter && row.issueId() <= lastOnPage) {
+                page.put(row.issueId(), row);
+            }
+        }
+        List<IssuedBookRow> rows = new ArrayList<>(page.values());
+        if (rows.isEmpty() && issuedHasNext) {
+            loadIssuedPage(issuedPageAfter);   // Every loan on the page was returned - fill it from the next ones
+            return;
+        }
+        if (rows.size() > ISSUED_PAGE_SIZE) {
+            rows = rows.subList(0, ISSUED_PAGE_SIZE);
+            issuedHasNext = true;
+        }
+        issuedRows = rows;
+        renderIssuedBooks();
+    }
+    
+    private void renderIssuedBooks() {
+        StringBuilder text = new StringBuilder("=== ISSUED BOOKS ===\n");
+        for (IssuedBookRow row : issuedRows) {
+            text.append(row).append("\n");
+        }
+        if (issuedRows.isEmpty()) {
+            text.append(issuedPageStarts.isEmpty() ? "✅ No books currently issued.\n" : "No more issued books.\n");
+        }
+        txtIssuedBooks.setText(text.toString());
+        lblIssuedPage.setText("Page " + (issuedPageStarts.size() + 1));
+        btnPrevIssued.setDisable(issuedPageStarts.isEmpty());
+        btnNextIssued.setDisable(!issuedHasNext);
+    }
+    
+    // Reports are streamed to the file in the background - the bar follows the rows written
+    @FXML
+    private void handleExportReport() {
+        ReportType report = cmbReport.getValue();
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export " + report.getTitle());
+        chooser.setInitialFileName(report.getFileName() + "-" + LocalDate.now() + ".csv");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File file = chooser.showSaveDialog(btnLogout.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        if (async.isRunning("report-export")) {
+            return;
+        }
+        AtomicBoolean cancelled = new AtomicBoolean();
+        exportCancelled = cancelled;
+
+        pbExportReport.setProgress(0);
+        lblExportReportStatus.setText("");
+        lblExportReportStatus.setStyle("-fx-text-fill: #333333;");
+        pbExportReport.setVisible(true);
+        btnCancelExport.setDisable(false);
+        btnExportReport.setDisable(true);
+
+        async.run("report-export", () -> library.exportReport(report, file.toPath(),
+                progress -> Platform.runLater(() -> {
+                    pbExportReport.setProgress(progress.fractionDone());
+                    lblExportReportStatus.setText("⏳ " + progress);
+                }), cancelled::get), summary -> {
+            if (summary.cancelled()) {
+                finishExport("⚠️ Export cancelled - no file written", "orange");
+            } else {
+                finishExport("✅ Saved " + file.getName() + " in " + summary.elapsedMillis() + " ms - " + summary,
+                        "green");
+            }
+        }, error -> finishExport("❌ Export failed: " + error.getMessage(), "red"));
+    }
+
+    // The export notices on its next row, stops the query and deletes the partial file
+    @FXML
+    private void handleCancelExport() {
+        if (exportCancelled != null) {
+            exportCancelled.set(true);
+        }
+    }
+
+    private void finishExport(String message, String color) {
+        exportCancelled = null;
+        btnCancelExport.setDisable(true);
+        finishImport(btnExportReport, pbExportReport, lblExportReportStatus, message, color);
+    }
+
+    @FXML
+    private void handleImportStudents() {
+        File file = chooseImportFile("Import Student Roster");
+        if (file != null) {
+            boolean dryRun = chkRosterDryRun.isSelected();
+            runImport("roster-import", btnImportStudents, pbImportStudents, lblImportStudentsStatus,
+                    progress -> library.importStudents(file.toPath(), dryRun, progress), () -> { });
+        }
     }
     
     @FXML
@@ -211,11 +469,18 @@ public class LibrarianDashboardController {
                 return;
             }
             
+            if (async.isRunning("add-student")) {
+                return;
+            }
             Student student = new Student(studentId, name, department, course);
-            DatabaseManager.addStudent(student);
-            
-            showAddStudentStatus("✅ Student added successfully!", "green");
-            clearAddStudentFields();
+            async.runWrite("add-student", () -> library.addStudent(student), added -> {
+                if (added) {
+                    showAddStudentStatus("✅ Student added successfully!", "green");
+                    clearAddStudentFields();
+                } else {
+                    showAddStudentStatus("❌ Could not add the student!", "red");
+                }
+            }, null);
             
         } catch (NumberFormatException e) {
             showAddStudentStatus("❌ Student ID must be a number!", "red");
@@ -249,11 +514,19 @@ public class LibrarianDashboardController {
             return;
         }
         
-        library.changeLibrarianPassword(librarian.getLibrarianId(), newPassword);
-        showChangePasswordStatus("✅ Password changed successfully!", "green");
-        
-        txtNewPassword.clear();
-        txtConfirmPassword.clear();
+        Librarian librarian = activeLibrarian();
+        if (librarian == null || async.isRunning("change-password")) {
+            return;
+        }
+        async.runWrite("change-password", () -> library.changeLibrarianPassword(librarian.getLibrarianId(), newPassword), changed -> {
+            if (changed) {
+                showChangePasswordStatus("✅ Password changed successfully!", "green");
+                txtNewPassword.clear();
+                txtConfirmPassword.clear();
+            } else {
+                showChangePasswordStatus("❌ Failed to change password!", "red");
+            }
+        }, null);
     }
     
     private void showChangePasswordStatus(String message, String color) {
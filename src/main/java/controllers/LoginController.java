@@ -16,6 +16,16 @@ public class LoginController {
     @FXML private PasswordField txtPassword;
     @FXML private Button btnLogin;
     @FXML private Label lblStatus;
+    @FXML private ProgressIndicator piLogin;
+    
+    private final AsyncDataAccess async = new AsyncDataAccess();
+    
+    @FXML
+    public void initialize() {
+        piLogin.visibleProperty().bind(async.busyProperty());
+        piLogin.managedProperty().bind(piLogin.visibleProperty());
+        btnLogin.disableProperty().bind(async.busyProperty());
+    }
     
     @FXML
     private void handleLogin() {
@@ -30,32 +40,28 @@ public class LoginController {
         try {
             int userId = Integer.parseInt(userIdText);
             
+            lblStatus.setText("");
+            
             if (rbLibrarian.isSelected()) {
-                // Librarian Login
-                if (DatabaseManager.verifyLibrarianPassword(userId, password)) {
-                    Librarian librarian = DatabaseManager.getLibrarian(userId);
-                    if (librarian != null) {
-                        showSuccess("Login successful! Welcome, " + librarian.getName());
-                        openLibrarianDashboard(librarian);
+                // Librarian Login - the lookup runs in the background, the button stays disabled meanwhile
+                async.run("login", () -> AuthService.loginLibrarian(userId, password), session -> {
+                    if (session != null) {
+                        showSuccess("Login successful! Welcome, " + session.userName());
+                        openLibrarianDashboard(session);
                     } else {
-                        showError("Librarian not found!");
+                        showError("Invalid Librarian ID or Password!");
                     }
-                } else {
-                    showError("Invalid Librarian ID or Password!");
-                }
+                }, error -> showError("Login failed - database unavailable!"));
             } else {
                 // Student Login
-                if (DatabaseManager.verifyStudentPassword(userId, password)) {
-                    Student student = DatabaseManager.getStudent(userId);
-                    if (student != null) {
-                        showSuccess("Login successful! Welcome, " + student.getName());
-                        openStudentDashboard(student);
+                async.run("login", () -> AuthService.loginStudent(userId, password), session -> {
+                    if (session != null) {
+                        showSuccess("Login successful! Welcome, " + session.userName());
+                        openStudentDashboard(session);
                     } else {
-                        showError("Student not found!");
+                        showError("Invalid Student ID or Password!");
                     }
-                } else {
-                    showError("Invalid Student ID or Password!");
-                }
+                }, error -> showError("Login failed - database unavailable!"));
             }
             
         } catch (NumberFormatException e) {
@@ -63,18 +69,18 @@ public class LoginController {
         }
     }
     
-    private void openLibrarianDashboard(Librarian librarian) {
+    private void openLibrarianDashboard(Session session) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/LibrarianDashboard.fxml"));
             Parent root = loader.load();
             
             LibrarianDashboardController controller = loader.getController();
-            controller.setLibrarian(librarian);
+            controller.setSession(session);
             
             Stage stage = (Stage) btnLogin.getScene().getWindow();
             Scene scene = new Scene(root);
             stage.setScene(scene);
-            stage.setTitle("Librarian Dashboard - " + librarian.getName());
+            stage.setTitle("Librarian Dashboard - " + session.userName());
             
         } catch (Exception e) {
             e.printStackTrace();
@@ -82,18 +88,18 @@ public class LoginController {
         }
     }
     
-    private void openStudentDashboard(Student student) {
+    private void openStudentDashboard(Session session) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/StudentDashboard.fxml"));
             Parent root = loader.load();
             
             StudentDashboardController controller = loader.getController();
-            controller.setStudent(student);
+            controller.setSession(session);
             
             Stage stage = (Stage) btnLogin.getScene().getWindow();
             Scene scene = new Scene(root);
             stage.setScene(scene);
-            stage.setTitle("Student Dashboard - " + student.getName());
+            stage.setTitle("Student Dashboard - " + session.userName());
             
         } catch (Exception e) {
             e.printStackTrace();
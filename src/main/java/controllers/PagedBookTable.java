@@ -0,0 +1,180 @@
+package controllers;
+
+import javafx.animation.PauseTransition;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.util.Duration;
+import librarysystem.*;
+
+import java.util.List;
+
+// Fills a books TableView one keyset page at a time, fetching the next page
+// when the user scrolls close to the bottom instead of loading the whole catalog.
+// Pages are fetched in the background; a reload drops any page still on its way.
+// With a search query the table shows ranked search results instead, paged the same way.
+// refresh() applies only the books changed since the last load, by change revision.
+class PagedBookTable {
+    static final int PAGE_SIZE = 200;
+    private static final double LOAD_THRESHOLD = 0.9; // Fetch more once 90% of the loaded rows are scrolled past
+    private static final Duration SEARCH_DELAY = Duration.millis(250); // Wait for a pause in typing
+    private static final String PAGE_REQUEST = "books-page";
+    private static final String CHANGES_REQUEST = "books-changes";
+
+    private final TableView<Book> table;
+    private final AsyncDataAccess async;
+    private final Library library = new Library();
+    private final ObservableList<Book> items = FXCollections.observableArrayList();
+    private int lastBookId;
+    private boolean exhausted;
+    private String query;        // null while browsing the whole catalog
+    private int nextOffset;      // Position of the next search page
+    private Label searchStatus;
+    private long revision = -1;  // Change revision the loaded rows are at least as new as, -1 before a load
+
+    PagedBookTable(TableView<Book> table, AsyncDataAccess async) {
+        this.table = table;
+        this.async = async;
+        table.setItems(items);
+
+        // The scroll bar only exists once the table has been skinned
+        table.skinProperty().addListener((obs, oldSkin, newSkin) -> attachScrollListener());
+    }
+
+    // Search as the user types; the label shows the number of matches
+    void bindSearch(TextField field, Label status) {
+        this.searchStatus = status;
+        PauseTransition pause = new PauseTransition(SEARCH_DELAY);
+        pause.setOnFinished(e -> search(field.getText()));
+        field.textProperty().addListener((obs, oldText, newText) -> pause.playFromStart());
+        field.setOnAction(e -> {
+            pause.stop();
+            search(field.getText());
+        });
+    }
+
+    // Show ranked matches for the query, or the whole catalog again when it is blank
+    void search(String text) {
+        query = (text == null || text.isBlank()) ? null : text.trim();
+        if (query == null && searchStatus != null) {
+            searchStatus.setText("");
+        }
+        reload();
+    }
+
+    // Start again from the first page. The revision is read first, so changes made while
+    // the pages load are picked up by the next refresh.
+    void reload() {
+        async.cancel(CHANGES_REQUEST);
+        items.clear();
+        lastBookId = 0;
+        nextOffset = 0;
+        exhausted = false;
+        async.run(PAGE_REQUEST, library::getChangeRevision, current -> {
+            revision = current;
+            loadNextPage();
+        }, null);
+    }
+
+    // Apply the books changed since the last load (after refresh, add or remove) -
+    // when nothing changed this is one small query
+    void refresh() {
+        if (revision < 0 || async.isRunning(PAGE_REQUEST)) {
+            reload();
+            return;
+        }
+        long since = revision;
+        async.run(CHANGES_REQUEST, () -> library.getBookChanges(since), this::applyChanges, null);
+    }
+
+    private void applyChanges(BookChanges changes) {
+        // Search results are ranked, so any change means searching again
+        if (changes.truncated() || (query != null && !changes.isEmpty()) || async.isRunning(PAGE_REQUEST)) {
+            reload();
+            return;
+        }
+        revision = changes.revision();
+        for (int bookId : changes.removedBookIds()) {
+            int index = indexOf(bookId);
+            if (index >= 0) {
+                items.remove(index);
+            }
+        }
+        for (Book book : changes.changed()) {
+            int index = indexOf(book.getBookId());
+            if (index >= 0) {
+                items.set(index, book);
+            } else if (exhausted || book.getBookId() < lastBookId) {
+                items.add(-index - 1, book);   // Books past the loaded pages arrive with their page
+            }
+        }
+    }
+
+    // Binary search of the loaded rows, which are in book ID order while browsing
+    private int indexOf(int bookId) {
+        int low = 0;
+        int high = items.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = items.get(mid).getBookId();
+            if (midId < bookId) {
+                low = mid + 1;
+            } else if (midId > bookId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // Append the next page, if any - ignored while a page is already loading
+    void loadNextPage() {
+        if (exhausted || async.isRunning(PAGE_REQUEST)) {
+            return;
+        }
+        if (query != null) {
+            String text = query;
+            int offset = nextOffset;
+            async.run(PAGE_REQUEST, () -> library.searchBooks(text, offset, PAGE_SIZE),
+                    this::appendSearchPage, null);
+        } else {
+            int after = lastBookId;
+            async.run(PAGE_REQUEST, () -> library.getBooksPage(after, PAGE_SIZE), this::appendPage, null);
+        }
+    }
+
+    private void appendPage(List<Book> page) {
+        if (!page.isEmpty()) {
+            lastBookId = page.get(page.size() - 1).getBookId();
+            items.addAll(page);
+        }
+        exhausted = page.size() < PAGE_SIZE;
+    }
+
+    private void appendSearchPage(SearchResult result) {
+        items.addAll(result.books());
+        nextOffset = result.offset() + PAGE_SIZE;
+        exhausted = nextOffset >= result.totalHits();
+        if (searchStatus != null) {
+            searchStatus.setText(String.format("%d matches (%.1f ms)", result.totalHits(), result.elapsedMillis()));
+        }
+    }
+
+    private void attachScrollListener() {
+        for (Node node : table.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                bar.valueProperty().addListener((obs, oldValue, newValue) -> {
+                    if (newValue.doubleValue() >= bar.getMax() * LOAD_THRESHOLD) {
+                        loadNextPage();
+                    }
+                });
+            }
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package controllers;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -11,14 +9,14 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
 import librarysystem.*;
 
-import java.io.ByteArrayOutputStream;
-import java.io.PrintStream;
+import java.time.LocalDate;
 import java.util.List;
 
 public class StudentDashboardController {
     
     @FXML private Label lblStudentInfo;
     @FXML private Button btnLogout;
+    @FXML private ProgressIndicator piBusy;
     
     // View Available Books Tab
     @FXML private TableView<Book> tblAvailableBooks;
@@ -27,6 +25,8 @@ public class StudentDashboardController {
     @FXML private TableColumn<Book, String> colPublisher;
     @FXML private TableColumn<Book, String> colEdition;
     @FXML private TableColumn<Book, Integer> colCopiesAvailable;
+    @FXML private TextField txtSearchBooks;
+    @FXML private Label lblSearchBooks;
     
     // Issue Book Tab
     @FXML private TextField txtIssueBookId;
@@ -45,8 +45,15 @@ public class StudentDashboardController {
     @FXML private PasswordField txtConfirmPassword;
     @FXML private Label lblChangePasswordStatus;
     
-    private Student student;
+    private Session session;
     private Library library = new Library();
+    private final AsyncDataAccess async = new AsyncDataAccess();
+    private PagedBookTable availableBooksTable;
+    private long myLoansRevision = -1;   // Loan revision of the shown loans, -1 before the first load
+    private LocalDate myLoansShownOn;    // Days issued and left count to this day
+    
+    private record MyLoans(long revision, List<LoanStatus> loans) {
+    }
     
     @FXML
     public void initialize() {
@@ -57,26 +64,43 @@ public class StudentDashboardController {
         colEdition.setCellValueFactory(new PropertyValueFactory<>("edition"));
         colCopiesAvailable.setCellValueFactory(new PropertyValueFactory<>("copies"));
         
+        piBusy.visibleProperty().bind(async.busyProperty());
+        availableBooksTable = new PagedBookTable(tblAvailableBooks, async);
+        availableBooksTable.bindSearch(txtSearchBooks, lblSearchBooks);
         loadAvailableBooks();
         // Do NOT call loadMyIssuedBooks() here because initialize() is invoked
         // during FXMLLoader.load(), which happens before the caller (LoginController)
-        // has a chance to call setStudent(). Calling loadMyIssuedBooks() here
-        // can cause a NullPointerException when `student` is null.
-        // If the student was already set earlier (unlikely), call it safely.
-        if (this.student != null) {
+        // has a chance to call setSession(). Calling loadMyIssuedBooks() here
+        // would only report an expired session.
+        // If the session was already set earlier (unlikely), call it safely.
+        if (this.session != null) {
             loadMyIssuedBooks();
         }
     }
     
-    public void setStudent(Student student) {
-        this.student = student;
-        lblStudentInfo.setText("Logged in as: " + student.getName());
-        // Now that the student is set, safely load issued books for this student
+    public void setSession(Session session) {
+        this.session = session;
+        lblStudentInfo.setText("Logged in as: " + session.userName());
+        // Now that the student is known, safely load issued books for this student
         loadMyIssuedBooks();
     }
     
+    // Logged-in student from the session cache - null once the session has expired
+    private Student activeStudent() {
+        Session active = AuthService.getSession(session == null ? null : session.token());
+        if (active == null) {
+            lblStudentInfo.setText("⚠️ Session expired - please log out and log in again");
+            return null;
+        }
+        return active.student();
+    }
+    
     @FXML
     private void handleLogout() {
+        async.cancelAll();
+        if (session != null) {
+            AuthService.logout(session.token());
+        }
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/LoginView.fxml"));
             Parent root = loader.load();
@@ -96,41 +120,40 @@ public class StudentDashboardController {
         loadAvailableBooks();
     }
     
+    // Apply the books changed since the last load - the first call loads the first page,
+    // further pages load as the table is scrolled
     private void loadAvailableBooks() {
-        List<Book> books = DatabaseManager.getAllBooks();
-        ObservableList<Book> bookList = FXCollections.observableArrayList(books);
-        tblAvailableBooks.setItems(bookList);
+        availableBooksTable.refresh();
     }
     
     @FXML
     private void handleIssueBook() {
         try {
             int bookId = Integer.parseInt(txtIssueBookId.getText().trim());
-            
-            // Capture console output
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            PrintStream ps = new PrintStream(baos);
-            PrintStream old = System.out;
-            System.setOut(ps);
+            // Writes are never cancelled - a second click while one is running is ignored
+            Student student = activeStudent();
+            if (student == null || async.isRunning("issue-book")) {
+                return;
+            }
             
             // Note: Library needs Librarian object, using a default/system librarian
             Librarian defaultLibrarian = new Librarian(0, "System");
-            library.issueBook(student, bookId, defaultLibrarian);
-            
-            System.out.flush();
-            System.setOut(old);
-            
-            String output = baos.toString();
-            if (output.contains("✅")) {
-                showIssueBookStatus("✅ Book issued successfully! Due date is set.", "green");
-            } else {
-                showIssueBookStatus("❌ " + output.trim(), "red");
-            }
-            
-            txtIssueBookId.clear();
-            txtIssueDays.clear();
-            loadAvailableBooks();
-            loadMyIssuedBooks();
+            async.runWrite("issue-book", () -> library.issueBook(student, bookId, defaultLibrarian), result -> {
+                switch (result.outcome()) {
+                    case ISSUED -> showIssueBookStatus("✅ Book issued successfully! Due date: " +
+                            FinePolicy.current().dueDate(LocalDate.now()), "green");
+                    case LOAN_LIMIT_REACHED -> showIssueBookStatus("❌ You already have " +
+                            LoanLimitPolicy.current().limitFor(student) + " book(s) issued, your limit. Return one first!", "red");
+                    case UNKNOWN_BOOK -> showIssueBookStatus("❌ Book with ID " + bookId + " not found!", "red");
+                    case NO_COPIES -> showIssueBookStatus("❌ Book not available! No copies left in stock.", "red");
+                    case ERROR -> showIssueBookStatus("❌ Failed to issue book. Database error occurred!", "red");
+                }
+                
+                txtIssueBookId.clear();
+                txtIssueDays.clear();
+                loadAvailableBooks();
+                loadMyIssuedBooks();
+            }, error -> showIssueBookStatus("❌ Could not issue the book!", "red"));
             
         } catch (NumberFormatException e) {
             showIssueBookStatus("❌ Book ID must be a number!", "red");
@@ -146,32 +169,31 @@ public class StudentDashboardController {
     private void handleReturnBook() {
         try {
             int bookId = Integer.parseInt(txtReturnBookId.getText().trim());
-            
-            // Capture console output
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            PrintStream ps = new PrintStream(baos);
-            PrintStream old = System.out;
-            System.setOut(ps);
+            Student student = activeStudent();
+            if (student == null || async.isRunning("return-book")) {
+                return;
+            }
             
             // Note: Library needs Librarian object, using a default/system librarian
             Librarian defaultLibrarian = new Librarian(0, "System");
-            library.returnBook(student, bookId, defaultLibrarian);
-            
-            System.out.flush();
-            System.setOut(old);
-            
-            String output = baos.toString();
-            if (output.contains("✅")) {
-                showReturnBookStatus("✅ Book returned successfully!", "green");
-            } else if (output.contains("💰") || output.contains("Fine")) {
-                showReturnBookStatus("⚠️ Book returned with fine applied.", "orange");
-            } else {
-                showReturnBookStatus("❌ " + output.trim(), "red");
-            }
-            
-            txtReturnBookId.clear();
-            loadAvailableBooks();
-            loadMyIssuedBooks();
+            async.runWrite("return-book", () -> library.returnBook(student, bookId, defaultLibrarian), result -> {
+                switch (result.outcome()) {
+                    case RETURNED -> {
+                        if (result.fine() > 0) {
+                            showReturnBookStatus("⚠️ Book returned with fine applied: ₹" + result.fine() +
+                                    " (Late by " + result.daysLate() + " days)", "orange");
+                        } else {
+                            showReturnBookStatus("✅ Book returned successfully!", "green");
+                        }
+                    }
+                    case NOT_ISSUED -> showReturnBookStatus("❌ No issued book with ID " + bookId + " found!", "red");
+                    case ERROR -> showReturnBookStatus("❌ Failed to return book. Database error occurred!", "red");
+                }
+                
+                txtReturnBookId.clear();
+                loadAvailableBooks();
+                loadMyIssuedBooks();
+            }, error -> showReturnBookStatus("❌ Could not return the book!", "red"));
             
         } catch (NumberFormatException e) {
             showReturnBookStatus("❌ Book ID must be a number!", "red");
@@ -188,9 +210,50 @@ public class StudentDashboardController {
         loadMyIssuedBooks();
     }
     
+    // Reload only when one of the student's loans changed or the day rolled over - otherwise
+    // the refresh is the one revision query. A second refresh replaces the one still running.
     private void loadMyIssuedBooks() {
-        String issuedBooks = DatabaseManager.displayStudentIssuedBooks(student.getStudentId());
-        txtMyIssuedBooks.setText(issuedBooks);
+        Student student = activeStudent();
+        if (student == null) {
+            return;
+        }
+        long shown = LocalDate.now().equals(myLoansShownOn) ? myLoansRevision : -1;
+        async.run("my-issued-books", () -> {
+            long current = library.getStudentLoansRevision(student.getStudentId());
+            if (current >= 0 && current == shown) {
+                return null;
+            }
+            return new MyLoans(current, library.checkFineForStudent(student));
+        }, loaded -> {
+            if (loaded != null) {
+                myLoansRevision = loaded.revision();
+                myLoansShownOn = LocalDate.now();
+                showMyIssuedBooks(loaded.loans());
+            }
+        }, error -> txtMyIssuedBooks.setText("❌ Error retrieving issued books."));
+    }
+    
+    private void showMyIssuedBooks(List<LoanStatus> loans) {
+        StringBuilder output = new StringBuilder("=== MY ISSUED BOOKS ===\n\n");
+        for (LoanStatus loan : loans) {
+            output.append("📖 Book ID: ").append(loan.bookId()).append("\n");
+            output.append("   Title: ").append(loan.title()).append("\n");
+            output.append("   Issue Date: ").append(loan.issueDate()).append("\n");
+            output.append("   Due Date: ").append(loan.dueDate()).append("\n");
+            output.append("   Days Issued: ").append(loan.daysIssued()).append("\n");
+            
+            if (loan.isLate()) {
+                output.append("   Status: ⚠️ LATE (Fine: ₹").append(loan.fine())
+                        .append(", Late by ").append(loan.daysLate()).append(" days)\n");
+            } else {
+                output.append("   Status: ✅ OK (").append(loan.daysLeft()).append(" days left)\n");
+            }
+            output.append("\n");
+        }
+        if (loans.isEmpty()) {
+            output.append("✅ No books currently issued.\n");
+        }
+        txtMyIssuedBooks.setText(output.toString());
     }
     
     @FXML
@@ -208,11 +271,19 @@ public class StudentDashboardController {
             return;
         }
         
-        library.changeStudentPassword(student.getStudentId(), newPassword);
-        showChangePasswordStatus("✅ Password changed successfully!", "green");
-        
-        txtNewPassword.clear();
-        txtConfirmPassword.clear();
+        Student student = activeStudent();
+        if (student == null || async.isRunning("change-password")) {
+            return;
+        }
+        async.runWrite("change-password", () -> library.changeStudentPassword(student.getStudentId(), newPassword), changed -> {
+            if (changed) {
+                showChangePasswordStatus("✅ Password changed successfully!", "green");
+                txtNewPassword.clear();
+                txtConfirmPassword.clear();
+            } else {
+                showChangePasswordStatus("❌ Failed to change password!", "red");
+            }
+        }, null);
     }
     
     private void showChangePasswordStatus(String message, String color) {
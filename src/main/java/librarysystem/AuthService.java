@@ -0,0 +1,96 @@
+package librarysystem;
+
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Login and the sessions of logged-in users.
+// A login checks the password and loads the profile with one query; afterwards the dashboards
+// look the user up here in memory instead of asking the database again. A session ends on
+// logout or after it has not been used for the idle timeout (-Dlibrary.session.idleTimeoutMs).
+public class AuthService {
+    private static final long IDLE_TIMEOUT_NANOS =
+            Long.getLong("library.session.idleTimeoutMs", 1_800_000) * 1_000_000;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Map<String, Entry> SESSIONS = new ConcurrentHashMap<>();
+
+    private static final class Entry {
+        final Session session;
+        volatile long lastUsed;
+
+        Entry(Session session, long now) {
+            this.session = session;
+            this.lastUsed = now;
+        }
+
+        boolean isExpired(long now) {
+            return now - lastUsed > IDLE_TIMEOUT_NANOS;
+        }
+    }
+
+    private AuthService() {
+    }
+
+    // New session for the librarian - null if the ID is unknown or the password is wrong
+    public static Session loginLibrarian(int librarianId, String password) {
+        Librarian librarian = LibraryStores.current().authenticateLibrarian(librarianId, password);
+        return librarian == null ? null : open(librarian, null);
+    }
+
+    // New session for the student - null if the ID is unknown or the password is wrong
+    public static Session loginStudent(int studentId, String password) {
+        Student student = LibraryStores.current().authenticateStudent(studentId, password);
+        return student == null ? null : open(null, student);
+    }
+
+    // The session for the token, counting as activity - null once it has expired or was logged out
+    public static Session getSession(String token) {
+        if (token == null) {
+            return null;
+        }
+        Entry entry = SESSIONS.get(token);
+        if (entry == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (entry.isExpired(now)) {
+            SESSIONS.remove(token, entry);
+            return null;
+        }
+        entry.lastUsed = now;
+        return entry.session;
+    }
+
+    public static void logout(String token) {
+        if (token != null) {
+            SESSIONS.remove(token);
+        }
+    }
+
+    // Sessions currently held, including expired ones not yet swept
+    public static int sessionCount() {
+        return SESSIONS.size();
+    }
+
+    // Stored password check for every store - no password set means the ID is the default
+    static boolean passwordMatches(String storedPassword, int userId, String password) {
+        if (storedPassword == null) {
+            storedPassword = String.valueOf(userId);
+        }
+        return storedPassword.equals(password);
+    }
+
+    private static Session open(Librarian librarian, Student student) {
+        long now = System.nanoTime();
+        // Sweep sessions nobody came back for - logins are rare enough to pay for it
+        SESSIONS.values().removeIf(entry -> entry.isExpired(now));
+
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        Session session = new Session(HexFormat.of().formatHex(bytes), librarian, student);
+        SESSIONS.put(session.token(), new Entry(session, now));
+        return session;
+    }
+}
@@ -8,14 +8,20 @@ public class Book {
     private String publisher;
     private String edition;
     private int copies;
+    private int version;   // Bumped by every write to the stored row - see LibraryStore.updateBookStock
 
     //Constructors
     public Book(int bookId, String title, String publisher, String edition, int copies) {
+        this(bookId, title, publisher, edition, copies, 0);
+    }
+
+    public Book(int bookId, String title, String publisher, String edition, int copies, int version) {
         this.bookId = bookId;
         this.title = title;
         this.publisher = publisher;
         this.edition = edition;
         this.copies = copies;
+        this.version = version;
     }
 
     public int getBookId() {
@@ -42,6 +48,14 @@ public class Book {
         this.copies = copies;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Book ID: " + bookId + ", Title: " + title +
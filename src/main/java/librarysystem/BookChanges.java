@@ -0,0 +1,12 @@
+package librarysystem;
+
+import java.util.List;
+
+// Books added, updated or removed after a revision - apply to a loaded view, then ask again from revision.
+// truncated means there were too many changes to list: reload the view and continue from revision.
+public record BookChanges(long revision, List<Book> changed, List<Integer> removedBookIds, boolean truncated) {
+
+    public boolean isEmpty() {
+        return changed.isEmpty() && removedBookIds.isEmpty() && !truncated;
+    }
+}
@@ -0,0 +1,10 @@
+package librarysystem;
+
+// Possible outcomes of changing a book's stock or details
+public enum BookUpdateOutcome {
+    UPDATED,            // Row changed - book holds the new values
+    NOT_FOUND,          // No book with that ID
+    CONFLICT,           // The book changed since it was read - nothing was changed, read it again
+    NOT_ENOUGH_COPIES,  // Removing more copies than the book has - nothing was changed
+    ERROR               // Database error - nothing was changed
+}
@@ -0,0 +1,10 @@
+package librarysystem;
+
+// Result of a book update - book is the catalog entry after the update, or as it stands
+// for NOT_ENOUGH_COPIES (null otherwise)
+public record BookUpdateResult(BookUpdateOutcome outcome, Book book) {
+
+    public boolean isUpdated() {
+        return outcome == BookUpdateOutcome.UPDATED;
+    }
+}
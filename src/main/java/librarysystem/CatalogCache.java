@@ -0,0 +1,240 @@
+package librarysystem;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// In-process read-through cache for catalog rows, used by DatabaseManager.
+// Entries are kept in LRU order, but when the cache is full a new book only replaces the
+// least recently used one if it has been asked for more often (TinyLFU admission), so a single
+// scan over many books cannot flush the ones that are read all the time.
+// Loads carry the write generation they started in - a load that raced with a local write is
+// served to its caller but never stored, so the cache cannot hold a copy count older than the write.
+// Writes report their values after the commit, so two of them can arrive out of order - a write is
+// only applied over a cached book with a lower version; otherwise the book is dropped and read again.
+// Book is mutable, so books are copied on the way in and on the way out.
+public class CatalogCache {
+    private final int maxBooks;
+    private final Map<Integer, Book> books;        // Access ordered - eldest is the eviction victim
+    private final FrequencySketch frequencies;
+    private List<Book> allBooks;                   // Snapshot of the whole catalog, null until loaded
+    private long generation;                       // Bumped by every write, guarded by "this"
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+    private long invalidations;
+
+    public CatalogCache(int maxBooks) {
+        if (maxBooks < 1) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxBooks = maxBooks;
+        this.books = new LinkedHashMap<>(16, 0.75f, true);
+        this.frequencies = new FrequencySketch(maxBooks);
+    }
+
+    // Cached book or null - every lookup counts towards the book's popularity
+    public synchronized Book get(int bookId) {
+        frequencies.increment(bookId);
+        Book book = books.get(bookId);
+        if (book == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return copyOf(book);
+    }
+
+    // Cached full catalog or null
+    public synchronized List<Book> getAll() {
+        if (allBooks == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        List<Book> catalog = new ArrayList<>(allBooks.size());
+        for (Book book : allBooks) {
+            catalog.add(copyOf(book));
+        }
+        return catalog;
+    }
+
+    // Generation to pass to put/putAll for a load that is about to start
+    public synchronized long generation() {
+        return generation;
+    }
+
+    // Store a loaded book unless a write happened since the load started
+    public synchronized void put(Book book, long loadGeneration) {
+        if (loadGeneration != generation) {
+            return;
+        }
+        admit(book);
+    }
+
+    // Store a loaded full catalog unless a write happened since the load started.
+    // A catalog bigger than the cache is not kept at all.
+    public synchronized void putAll(List<Book> catalog, long loadGeneration) {
+        if (loadGeneration != generation || catalog.size() > maxBooks) {
+            return;
+        }
+        List<Book> snapshot = new ArrayList<>(catalog.size());
+        for (Book book : catalog) {
+            snapshot.add(copyOf(book));
+        }
+        allBooks = snapshot;
+    }
+
+    // Replace a cached book with the values just written (only if it is cached already)
+    public synchronized void update(Book book) {
+        generation++;
+        allBooks = null;
+        Book cached = books.get(book.getBookId());
+        if (cached == null) {
+            return;
+        }
+        if (book.getVersion() > cached.getVersion()) {
+            books.put(book.getBookId(), copyOf(book));
+        } else {
+            books.remove(book.getBookId());   // A later write got here first
+            invalidations++;
+        }
+    }
+
+    // Set the copy count and version just written on a cached book (only if it is cached already)
+    public synchronized void updateCopies(int bookId, int copies, int version) {
+        generation++;
+        allBooks = null;
+        Book book = books.get(bookId);
+        if (book == null) {
+            return;
+        }
+        if (version > book.getVersion()) {
+            book.setCopies(copies);
+            book.setVersion(version);
+        } else {
+            books.remove(bookId);             // A later write got here first
+            invalidations++;
+        }
+    }
+
+    // Drop one book after a write that changed it in an unknown way
+    public synchronized void invalidate(int bookId) {
+        generation++;
+        allBooks = null;
+        if (books.remove(bookId) != null) {
+            invalidations++;
+        }
+    }
+
+    // Drop only the full catalog snapshot - for writes that add new books, such as bulk imports
+    public synchronized void invalidateCatalog() {
+        generation++;
+        allBooks = null;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(maxBooks, books.size(), allBooks != null, hits, misses, evictions, rejections, invalidations);
+    }
+
+    private void admit(Book book) {
+        int bookId = book.getBookId();
+        if (books.containsKey(bookId) || books.size() < maxBooks) {
+            books.put(bookId, copyOf(book));
+            return;
+        }
+        Iterator<Map.Entry<Integer, Book>> eldest = books.entrySet().iterator();
+        int victimId = eldest.next().getKey();
+        if (frequencies.estimate(bookId) > frequencies.estimate(victimId)) {
+            eldest.remove();
+            evictions++;
+            books.put(bookId, copyOf(book));
+        } else {
+            rejections++; // Less popular than what it would replace
+        }
+    }
+
+    private static Book copyOf(Book book) {
+        return new Book(book.getBookId(), book.getTitle(), book.getPublisher(), book.getEdition(), book.getCopies(),
+                book.getVersion());
+    }
+
+    // Count-min sketch of recent lookups with 4-bit counters, halved every sampleSize
+    // increments so that popularity fades and the sketch follows changing access patterns
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL,
+                0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+        private final long[] table;   // 16 counters of 4 bits per long
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maxBooks) {
+            int counters = Integer.highestOneBit(Math.max(16, Math.min(maxBooks, 1 << 24)) - 1) << 1;
+            table = new long[counters / 16];
+            mask = counters - 1;
+            sampleSize = 10 * Math.max(maxBooks, 16);
+        }
+
+        void increment(int key) {
+            boolean added = false;
+            for (int i = 0; i < DEPTH; i++) {
+                int index = indexOf(key, i);
+                int slot = index >>> 4;
+                int shift = (index & 15) << 2;
+                if (((table[slot] >>> shift) & 0xF) < 15) {
+                    table[slot] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                reset();
+            }
+        }
+
+        int estimate(int key) {
+            int min = 15;
+            for (int i = 0; i < DEPTH; i++) {
+                int index = indexOf(key, i);
+                min = Math.min(min, (int) ((table[index >>> 4] >>> ((index & 15) << 2)) & 0xF));
+            }
+            return min;
+        }
+
+        // Halve every counter
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+            }
+            additions /= 2;
+        }
+
+        private int indexOf(int key, int row) {
+            long hash = (key + SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+
+    public record Stats(int maxBooks, int size, boolean catalogCached, long hits, long misses,
+                        long evictions, long rejections, long invalidations) {
+
+        public double hitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("cache size=%d/%d, catalog=%s, hits=%d, misses=%d (%.1f%% hit), " +
+                            "evicted=%d, rejected=%d, invalidated=%d",
+                    size, maxBooks, catalogCached ? "cached" : "not cached", hits, misses,
+                    hitRatio() * 100, evictions, rejections, invalidations);
+        }
+    }
+}
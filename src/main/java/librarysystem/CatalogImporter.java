@@ -0,0 +1,187 @@
+package librarysystem;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Bulk loads books from a CSV/TSV file with columns: book_id, title, publisher, edition, copies.
+// The file is streamed, rows are inserted with JDBC batches and every chunk of rows is committed
+// in its own transaction, so memory stays flat and a failure only loses the current chunk.
+public class CatalogImporter {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_CHUNK_SIZE = 5_000;
+
+    private final int batchSize;
+    private final int chunkSize;
+
+    public CatalogImporter() {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_CHUNK_SIZE);
+    }
+
+    public CatalogImporter(int batchSize, int chunkSize) {
+        if (batchSize < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("Batch and chunk sizes must be positive");
+        }
+        this.batchSize = batchSize;
+        this.chunkSize = Math.max(chunkSize, batchSize);
+    }
+
+    // Import the file, calling the listener with running totals after every committed chunk
+    public ImportSummary importBooks(Path file, Consumer<ImportSummary> progressListener)
+            throws IOException, SQLException {
+        ImportCounters counters = new ImportCounters(false);
+
+        try (DelimitedFileReader reader = new DelimitedFileReader(file);
+             Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+
+            Map<Integer, Book> chunk = new LinkedHashMap<>();
+            boolean firstRecord = true;
+            List<String> fields;
+            while ((fields = reader.next()) != null) {
+                if (firstRecord) {
+                    firstRecord = false;
+                    if (ImportCounters.isHeader(fields)) {
+                        continue;
+                    }
+                }
+                counters.rowsRead++;
+
+                Book book = parseBook(fields, reader.getLineNumber(), counters);
+                if (book == null) {
+                    continue;
+                }
+                if (chunk.putIfAbsent(book.getBookId(), book) != null) {
+                    counters.skipped++; // Same ID twice in this chunk
+                }
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(conn, chunk, counters);
+                    chunk.clear();
+                    counters.report(progressListener, reader);
+                }
+            }
+            writeChunk(conn, chunk, counters);
+            return counters.report(progressListener, reader);
+        }
+    }
+
+    static Book parseBook(List<String> fields, long line, ImportCounters counters) {
+        if (fields.size() != 5) {
+            counters.reject(line, "expected 5 columns but found " + fields.size());
+            return null;
+        }
+        int bookId;
+        int copies;
+        try {
+            bookId = Integer.parseInt(fields.get(0));
+            copies = Integer.parseInt(fields.get(4));
+        } catch (NumberFormatException e) {
+            counters.reject(line, "book ID and copies must be whole numbers");
+            return null;
+        }
+        String title = fields.get(1);
+        String publisher = fields.get(2);
+        String edition = fields.get(3);
+
+        if (bookId <= 0 || copies < 0) {
+            counters.reject(line, "book ID must be positive and copies not negative");
+            return null;
+        }
+        if (title.isEmpty() || publisher.isEmpty() || edition.isEmpty()) {
+            counters.reject(line, "title, publisher and edition are required");
+            return null;
+        }
+        if (title.length() > 255 || publisher.length() > 255 || edition.length() > 100) {
+            counters.reject(line, "value longer than the column allows");
+            return null;
+        }
+        return new Book(bookId, title, publisher, edition, copies);
+    }
+
+    // Insert one chunk in a single transaction, skipping IDs that are already in the catalog
+    private void writeChunk(Connection conn, Map<Integer, Book> chunk, ImportCounters counters) throws SQLException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT IGNORE INTO books (book_id, title, publisher, edition, copies) VALUES (?, ?, ?, ?, ?)";
+
+        try {
+            Set<Integer> existing = findExistingIds(conn, new ArrayList<>(chunk.keySet()));
+
+            List<Integer> inserted = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int pending = 0;
+                for (Book book : chunk.values()) {
+                    if (existing.contains(book.getBookId())) {
+                        counters.skipped++;
+                        continue;
+                    }
+                    inserted.add(book.getBookId());
+                    pstmt.setInt(1, book.getBookId());
+                    pstmt.setString(2, book.getTitle());
+                    pstmt.setString(3, book.getPublisher());
+                    pstmt.setString(4, book.getEdition());
+                    pstmt.setInt(5, book.getCopies());
+                    pstmt.addBatch();
+
+                    if (++pending == batchSize) {
+                        countInserted(pstmt.executeBatch(), counters);
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    countInserted(pstmt.executeBatch(), counters);
+                }
+            }
+            ChangeLog.booksChanged(conn, inserted);
+            conn.commit();
+            DatabaseManager.booksInserted();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    // Look up which of the given IDs already exist, one IN query per batch
+    private Set<Integer> findExistingIds(Connection conn, List<Integer> ids) throws SQLException {
+        Set<Integer> existing = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Integer> slice = ids.subList(from, Math.min(ids.size(), from + batchSize));
+            String sql = "SELECT book_id FROM books WHERE book_id IN (" +
+                    String.join(",", Collections.nCopies(slice.size(), "?")) + ")";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < slice.size(); i++) {
+                    pstmt.setInt(i + 1, slice.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        existing.add(rs.getInt(1));
+                    }
+                }
+            }
+        }
+        return existing;
+    }
+
+    private static void countInserted(int[] updateCounts, ImportCounters counters) {
+        for (int count : updateCounts) {
+            if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                counters.inserted++;
+            } else {
+                counters.skipped++; // Inserted concurrently by someone else
+            }
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package librarysystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// In-memory inverted index over book titles and publishers with BM25 ranking, used by DatabaseManager.
+// The index is built from the database on the first search and then kept current by add/update/remove.
+// Removed books are only marked deleted; their postings are dropped by a rebuild from the stored
+// document terms once deleted documents make up half of the index.
+// A build reads the source into a separate index without taking the lock, so writers never wait for it;
+// their changes made meanwhile are queued and replayed onto the new index when it is swapped in.
+public class CatalogSearchIndex {
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final float TITLE_WEIGHT = 2.0f;     // A title match counts twice as much as a publisher match
+    private static final float PUBLISHER_WEIGHT = 1.0f;
+    private static final int MIN_PREFIX_LENGTH = 2;     // Last query word also matches longer words from this length
+    private static final int MAX_PREFIX_TERMS = 64;
+    private static final int MIN_DELETED_FOR_COMPACTION = 1_024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock buildLock = new ReentrantLock();   // One build at a time
+
+    // Everything below is guarded by lock
+    private TreeMap<String, Postings> terms = new TreeMap<>();
+    private Map<Integer, Integer> docByBookId = new HashMap<>();
+    private int[] docBookIds = new int[1024];
+    private float[] docLengths = new float[1024];
+    private String[][] docTerms = new String[1024][];
+    private float[][] docFrequencies = new float[1024][];
+    private BitSet deleted = new BitSet();
+    private int docCount;       // Document slots in use, including deleted ones
+    private int liveDocs;
+    private double totalLength; // Sum of lengths of live documents
+    private boolean built;
+    private List<PendingWrite> pendingWrites; // Writes since the running build started - null when none runs
+
+    public boolean isBuilt() {
+        lock.readLock().lock();
+        try {
+            return built;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Unless already built, index every book the source hands to the consumer.
+    // Other searches wait until the build is done; writes go on and are replayed onto the result.
+    // Returns false if the source failed.
+    public boolean ensureBuilt(Predicate<Consumer<Book>> source) {
+        if (isBuilt()) {
+            return true;
+        }
+        buildLock.lock();
+        try {
+            while (true) {
+                lock.writeLock().lock();
+                try {
+                    if (built) {
+                        return true; // Another thread built it while we waited
+                    }
+                    pendingWrites = new ArrayList<>();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+
+                CatalogSearchIndex fresh = new CatalogSearchIndex();   // Only this thread sees it until the swap
+                boolean complete = source.test(fresh::addLocked);
+
+                lock.writeLock().lock();
+                try {
+                    List<PendingWrite> writes = pendingWrites;
+                    pendingWrites = null;
+                    if (!complete) {
+                        return false;
+                    }
+                    if (writes == null) {
+                        continue;    // Invalidated while reading - the source may have missed a bulk import
+                    }
+                    takeContent(fresh);
+                    for (PendingWrite write : writes) {
+                        if (write.book() != null) {
+                            addLocked(write.book());
+                        } else {
+                            removeLocked(write.bookId());
+                        }
+                    }
+                    built = true;
+                    compactIfNeeded();
+                    return true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    // Forget the content - the next search rebuilds it (e.g. after a bulk import)
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            clear();
+            pendingWrites = null;   // A running build starts over
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Index a new book, or re-index it if it is already there
+    public void add(Book book) {
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                addLocked(book);   // Re-indexing leaves the old document deleted
+                compactIfNeeded();
+            } else if (pendingWrites != null) {
+                pendingWrites.add(new PendingWrite(book.getBookId(), book));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int bookId) {
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                removeLocked(bookId);
+                compactIfNeeded();
+            } else if (pendingWrites != null) {
+                pendingWrites.add(new PendingWrite(bookId, null));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ranked book IDs for the query - offset/limit select the page, totalHits counts all matches
+    public Hits search(String query, int offset, int limit) {
+        List<String> words = tokenize(query);
+        lock.readLock().lock();
+        try {
+            if (words.isEmpty() || liveDocs == 0) {
+                return new Hits(List.of(), 0);
+            }
+            float averageLength = (float) (totalLength / liveDocs);
+            float[] scores = new float[docCount];
+            int[] matched = new int[64];
+            int matchCount = 0;
+
+            for (String term : expand(words)) {
+                Postings postings = terms.get(term);
+                float idf = (float) Math.log(1 + (liveDocs - postings.live + 0.5) / (postings.live + 0.5));
+                for (int i = 0; i < postings.size; i++) {
+                    int doc = postings.docs[i];
+                    if (deleted.get(doc)) {
+                        continue;
+                    }
+                    float tf = postings.frequencies[i];
+                    float norm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+                    if (scores[doc] == 0) {
+                        if (matchCount == matched.length) {
+                            matched = Arrays.copyOf(matched, matchCount * 2);
+                        }
+                        matched[matchCount++] = doc;
+                    }
+                    scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+                }
+            }
+            return new Hits(topDocuments(scores, matched, matchCount, offset, limit), matchCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Lowercased runs of letters and digits
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    // Indexed terms to score: every query word as is, plus words starting with the last one
+    private List<String> expand(List<String> words) {
+        List<String> expanded = new ArrayList<>();
+        for (String word : words) {
+            if (terms.containsKey(word) && !expanded.contains(word)) {
+                expanded.add(word);
+            }
+        }
+        String last = words.get(words.size() - 1);
+        if (last.length() >= MIN_PREFIX_LENGTH) {
+            int added = 0;
+            for (String term : terms.subMap(last, false, last + Character.MAX_VALUE, false).keySet()) {
+                if (expanded.contains(term)) {
+                    continue;   // An earlier query word - scoring it twice would count it double
+                }
+                if (added++ == MAX_PREFIX_TERMS) {
+                    break;
+                }
+                expanded.add(term);
+            }
+        }
+        return expanded;
+    }
+
+    // Book IDs of the matches ranked offset .. offset+limit, best first (ties by lower book ID)
+    private List<Integer> topDocuments(float[] scores, int[] matched, int matchCount, int offset, int limit) {
+        int wanted = Math.min(matchCount, offset + limit);
+        if (offset >= wanted) {
+            return List.of();
+        }
+        // Min-heap of the best "wanted" documents seen so far - weakest on top
+        PriorityQueue<Integer> best = new PriorityQueue<>(wanted, (a, b) -> compareRank(b, a, scores));
+        for (int i = 0; i < matchCount; i++) {
+            int doc = matched[i];
+            if (best.size() < wanted) {
+                best.add(doc);
+            } else if (compareRank(doc, best.peek(), scores) < 0) {
+                best.poll();
+                best.add(doc);
+            }
+        }
+        Integer[] ranked = best.toArray(new Integer[0]);
+        Arrays.sort(ranked, (a, b) -> compareRank(a, b, scores));
+        List<Integer> bookIds = new ArrayList<>(wanted - offset);
+        for (int i = offset; i < wanted; i++) {
+            bookIds.add(docBookIds[ranked[i]]);
+        }
+        return bookIds;
+    }
+
+    // Negative when doc a ranks before doc b
+    private int compareRank(int a, int b, float[] scores) {
+        int byScore = Float.compare(scores[b], scores[a]);
+        return byScore != 0 ? byScore : Integer.compare(docBookIds[a], docBookIds[b]);
+    }
+
+    private void compactIfNeeded() {
+        if (deleted.cardinality() >= Math.max(MIN_DELETED_FOR_COMPACTION, liveDocs)) {
+            compact();
+        }
+    }
+
+    private void addLocked(Book book) {
+        removeLocked(book.getBookId());
+
+        Map<String, Float> frequencies = new LinkedHashMap<>();
+        float length = 0;
+        for (String word : tokenize(book.getTitle())) {
+            frequencies.merge(word, TITLE_WEIGHT, Float::sum);
+            length += TITLE_WEIGHT;
+        }
+        for (String word : tokenize(book.getPublisher())) {
+            frequencies.merge(word, PUBLISHER_WEIGHT, Float::sum);
+            length += PUBLISHER_WEIGHT;
+        }
+
+        String[] docWords = new String[frequencies.size()];
+        float[] docTf = new float[frequencies.size()];
+        int i = 0;
+        for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+            docWords[i] = entry.getKey();
+            docTf[i] = entry.getValue();
+            i++;
+        }
+        addDocument(book.getBookId(), docWords, docTf, length);
+    }
+
+    private void addDocument(int bookId, String[] words, float[] frequencies, float length) {
+        int doc = docCount++;
+        if (doc == docBookIds.length) {
+            int capacity = doc * 2;
+            docBookIds = Arrays.copyOf(docBookIds, capacity);
+            docLengths = Arrays.copyOf(docLengths, capacity);
+            docTerms = Arrays.copyOf(docTerms, capacity);
+            docFrequencies = Arrays.copyOf(docFrequencies, capacity);
+        }
+        for (int i = 0; i < words.length; i++) {
+            Postings postings = terms.get(words[i]);
+            if (postings == null) {
+                postings = new Postings();
+                terms.put(words[i], postings);
+            } else {
+                words[i] = terms.ceilingKey(words[i]); // Share one String per term
+            }
+            postings.add(doc, frequencies[i]);
+        }
+        docBookIds[doc] = bookId;
+        docLengths[doc] = length;
+        docTerms[doc] = words;
+        docFrequencies[doc] = frequencies;
+        docByBookId.put(bookId, doc);
+        liveDocs++;
+        totalLength += length;
+    }
+
+    private void removeLocked(int bookId) {
+        Integer doc = docByBookId.remove(bookId);
+        if (doc == null) {
+            return;
+        }
+        deleted.set(doc);
+        for (String word : docTerms[doc]) {
+            terms.get(word).live--;
+        }
+        liveDocs--;
+        totalLength -= docLengths[doc];
+    }
+
+    // Rebuild the postings from the live documents, dropping deleted ones and renumbering
+    private void compact() {
+        int[] oldBookIds = docBookIds;
+        float[] oldLengths = docLengths;
+        String[][] oldTerms = docTerms;
+        float[][] oldFrequencies = docFrequencies;
+        BitSet oldDeleted = deleted;
+        int oldCount = docCount;
+
+        boolean wasBuilt = built;
+        clear();
+        built = wasBuilt;
+        for (int doc = 0; doc < oldCount; doc++) {
+            if (!oldDeleted.get(doc)) {
+                addDocument(oldBookIds[doc], oldTerms[doc], oldFrequencies[doc], oldLengths[doc]);
+            }
+        }
+    }
+
+    // Move the documents of an index built on the side into this one
+    private void takeContent(CatalogSearchIndex other) {
+        terms = other.terms;
+        docByBookId = other.docByBookId;
+        docBookIds = other.docBookIds;
+        docLengths = other.docLengths;
+        docTerms = other.docTerms;
+        docFrequencies = other.docFrequencies;
+        deleted = other.deleted;
+        docCount = other.docCount;
+        liveDocs = other.liveDocs;
+        totalLength = other.totalLength;
+    }
+
+    private void clear() {
+        terms = new TreeMap<>();
+        docByBookId = new HashMap<>();
+        docBookIds = new int[1024];
+        docLengths = new float[1024];
+        docTerms = new String[1024][];
+        docFrequencies = new float[1024][];
+        deleted = new BitSet();
+        docCount = 0;
+        liveDocs = 0;
+        totalLength = 0;
+        built = false;
+    }
+
+    // Documents containing one term, in the order they were added
+    private static final class Postings {
+        int[] docs = new int[4];
+        float[] frequencies = new float[4];
+        int size;
+        int live;   // Entries whose document is not deleted - the document frequency used for IDF
+
+        void add(int doc, float frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+            live++;
+        }
+    }
+
+    // An add or remove made while a build was reading the source - book is null for a removal
+    private record PendingWrite(int bookId, Book book) {
+    }
+
+    // One page of ranked book IDs and the number of books that matched at all
+    public record Hits(List<Integer> bookIds, int totalHits) {
+    }
+}
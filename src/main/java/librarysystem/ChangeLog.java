@@ -0,0 +1,237 @@
+package librarysystem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The change_log table behind the delta refresh of the dashboards.
+// Every write to books or issue_records logs the IDs it changed in the writer's own transaction.
+// The revision of a row is its AUTO_INCREMENT key, so writers never wait for each other to get one.
+// The price is that revisions can commit out of order: a reader may see revision r + 1 while r is
+// still in flight. A reader therefore only moves its cursor up to the settled revision - the newest
+// row that is SETTLE_SECONDS old, by which time any lower revision has committed or rolled back -
+// and is handed the newer rows again on its next read. Applying a change twice is harmless, as
+// every change is joined to the current state of its row.
+// Rows older than -Dlibrary.changes.retentionHours (default 24) are pruned; a reader whose cursor
+// is older than the oldest row left gets a truncated answer and reloads.
+class ChangeLog {
+    static final String BOOK = "BOOK";
+    static final String LOAN = "LOAN";
+    // A longer delta is not worth applying row by row - the caller gets truncated and reloads
+    static final int MAX_CHANGES = 2_000;
+    // A LOAN row with this ID stands for every open loan - logged once by the fine accrual
+    static final int ALL_OPEN_LOANS = 0;
+    // Longer than a writer takes from logging its change to committing
+    static final int SETTLE_SECONDS = 5;
+    static final int RETENTION_HOURS = Integer.getInteger("library.changes.retentionHours", 24);
+
+    static final String SETTLED_REVISION_SQL = "SELECT revision FROM change_log " +
+            "WHERE changed_at < TIMESTAMPADD(SECOND, -" + SETTLE_SECONDS + ", CURRENT_TIMESTAMP) " +
+            "ORDER BY revision DESC LIMIT 1";
+    private static final String OLDEST_REVISION_SQL = "SELECT MIN(revision) FROM change_log";
+    private static final String NEWEST_REVISION_SQL = "SELECT MAX(revision) FROM change_log";
+    private static final String LOG_SQL = "INSERT INTO change_log (entity, entity_id, student_id) VALUES (?, ?, ?)";
+    // Open loans are found through active_loans, which has the borrower of each
+    private static final String LOG_OPEN_LOANS_SQL = "INSERT INTO change_log (entity, entity_id, student_id) " +
+            "SELECT '" + LOAN + "', issue_id, student_id FROM active_loans WHERE ";
+    // The newest row is always kept, so the oldest revision left still shows where pruning stopped
+    private static final String PRUNE_SQL = "DELETE FROM change_log " +
+            "WHERE changed_at < TIMESTAMPADD(HOUR, -?, CURRENT_TIMESTAMP) AND revision < ?";
+
+    // Changed rows in revision order, joined to their current state - no row means deleted or closed
+    static final String BOOK_CHANGES_SQL = "SELECT c.revision, c.entity_id, b.book_id, b.title, b.publisher, " +
+            "b.edition, b.copies, b.version FROM change_log c LEFT JOIN books b ON b.book_id = c.entity_id " +
+            "WHERE c.entity = '" + BOOK + "' AND c.revision > ? ORDER BY c.revision LIMIT ?";
+    static final String LOAN_CHANGES_SQL = "SELECT c.revision, c.entity_id, a.issue_id, a.student_name, " +
+            "a.book_title, a.issue_date, a.librarian_name, a.fine_amount " +
+            "FROM change_log c LEFT JOIN active_loans a ON a.issue_id = c.entity_id " +
+            "WHERE c.entity = '" + LOAN + "' AND c.revision > ? ORDER BY c.revision LIMIT ?";
+    // The student's own loan changes, or the latest fine accrual (student_id NULL) if that is newer
+    static final String STUDENT_LOANS_REVISION_SQL = "SELECT GREATEST(" +
+            "COALESCE((SELECT MAX(revision) FROM change_log WHERE entity = '" + LOAN + "' AND student_id = ?), 0), " +
+            "COALESCE((SELECT MAX(revision) FROM change_log WHERE entity = '" + LOAN + "' AND student_id IS NULL), 0))";
+
+    private ChangeLog() {
+    }
+
+    // === WRITING (on the caller's transaction) ===
+
+    static void bookChanged(Connection conn, int bookId) throws SQLException {
+        booksChanged(conn, List.of(bookId));
+    }
+
+    static void booksChanged(Connection conn, Collection<Integer> bookIds) throws SQLException {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(LOG_SQL)) {
+            for (int bookId : bookIds) {
+                pstmt.setString(1, BOOK);
+                pstmt.setInt(2, bookId);
+                pstmt.setNull(3, Types.INTEGER);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // A loan was issued or returned - its book's copies changed with it
+    static void loanChanged(Connection conn, int issueId, int studentId, int bookId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(LOG_SQL)) {
+            pstmt.setString(1, LOAN);
+            pstmt.setInt(2, issueId);
+            pstmt.setInt(3, studentId);
+            pstmt.addBatch();
+            pstmt.setString(1, BOOK);
+            pstmt.setInt(2, bookId);
+            pstmt.setNull(3, Types.INTEGER);
+            pstmt.addBatch();
+            pstmt.executeBatch();
+        }
+    }
+
+    // The open loans of these students, books or librarians changed - column is student_id,
+    // book_id or librarian_id. Call before the loans are deleted from active_loans.
+    static void openLoansChanged(Connection conn, String column, Collection<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(LOG_OPEN_LOANS_SQL + column + " = ?")) {
+            for (int id : ids) {
+                pstmt.setInt(1, id);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // Fine accrual touched the open loans - one row for all of them rather than one per loan,
+    // so a loan view reloads once instead of reading back every open loan as a change
+    static void loansAccrued(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(LOG_SQL)) {
+            pstmt.setString(1, LOAN);
+            pstmt.setInt(2, ALL_OPEN_LOANS);
+            pstmt.setNull(3, Types.INTEGER);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Delete rows older than the retention - returns how many
+    static int prune(Connection conn) throws SQLException {
+        long newest = readLong(conn, NEWEST_REVISION_SQL);
+        try (PreparedStatement pstmt = conn.prepareStatement(PRUNE_SQL)) {
+            pstmt.setInt(1, RETENTION_HOURS);
+            pstmt.setLong(2, newest);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    // === READING ===
+
+    // Settled revision - read it before a full load, every change up to it is in that load
+    static long currentRevision(Connection conn) throws SQLException {
+        return readLong(conn, SETTLED_REVISION_SQL);
+    }
+
+    // Rows after the cursor may have been pruned - the reader has to reload
+    private static boolean prunedSince(Connection conn, long sinceRevision) throws SQLException {
+        long oldest = readLong(conn, OLDEST_REVISION_SQL);
+        return oldest > sinceRevision + 1;
+    }
+
+    private static long readLong(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    static BookChanges bookChangesSince(Connection conn, long sinceRevision) throws SQLException {
+        Map<Integer, Book> changed = new LinkedHashMap<>();   // Latest state per book, null once removed
+        // Settled before the changes are read, so none of the rows up to it can be missed
+        long revision = Math.max(sinceRevision, currentRevision(conn));
+        if (prunedSince(conn, sinceRevision)) {
+            return new BookChanges(revision, List.of(), List.of(), true);
+        }
+        int rows = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(BOOK_CHANGES_SQL)) {
+            pstmt.setLong(1, sinceRevision);
+            pstmt.setInt(2, MAX_CHANGES + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (++rows > MAX_CHANGES) {
+                        return new BookChanges(revision, List.of(), List.of(), true);
+                    }
+                    int bookId = rs.getInt("entity_id");
+                    changed.put(bookId, rs.getObject("book_id") == null ? null : new Book(bookId,
+                            rs.getString("title"), rs.getString("publisher"), rs.getString("edition"),
+                            rs.getInt("copies"), rs.getInt("version")));
+                }
+            }
+        }
+        List<Book> books = new ArrayList<>();
+        List<Integer> removed = new ArrayList<>();
+        changed.forEach((bookId, book) -> {
+            if (book == null) {
+                removed.add(bookId);
+            } else {
+                books.add(book);
+            }
+        });
+        return new BookChanges(revision, books, removed, false);
+    }
+
+    static LoanChanges loanChangesSince(Connection conn, long sinceRevision) throws SQLException {
+        Map<Integer, IssuedBookRow> changed = new LinkedHashMap<>();   // Latest state per loan, null once closed
+        long revision = Math.max(sinceRevision, currentRevision(conn));
+        if (prunedSince(conn, sinceRevision)) {
+            return new LoanChanges(revision, List.of(), List.of(), true);
+        }
+        int rows = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(LOAN_CHANGES_SQL)) {
+            pstmt.setLong(1, sinceRevision);
+            pstmt.setInt(2, MAX_CHANGES + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int issueId = rs.getInt("entity_id");
+                    if (++rows > MAX_CHANGES || issueId == ALL_OPEN_LOANS) {
+                        return new LoanChanges(revision, List.of(), List.of(), true);
+                    }
+                    changed.put(issueId, rs.getObject("issue_id") == null ? null : new IssuedBookRow(issueId,
+                            rs.getString("student_name"), rs.getString("book_title"),
+                            rs.getDate("issue_date").toLocalDate(), rs.getString("librarian_name"),
+                            rs.getInt("fine_amount")));
+                }
+            }
+        }
+        List<IssuedBookRow> open = new ArrayList<>();
+        List<Integer> closed = new ArrayList<>();
+        changed.forEach((issueId, row) -> {
+            if (row == null) {
+                closed.add(issueId);
+            } else {
+                open.add(row);
+            }
+        });
+        return new LoanChanges(revision, open, closed, false);
+    }
+
+    // Revision of the student's latest loan change or fine accrual - 0 if there was none.
+    // Only compared for a change, so it does not have to be settled.
+    static long studentLoansRevision(Connection conn, int studentId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(STUDENT_LOANS_REVISION_SQL)) {
+            pstmt.setInt(1, studentId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package librarysystem;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Small bounded JDBC connection pool used by DatabaseManager.
+// Connections handed out are proxies - calling close() returns the physical connection to the pool.
+public class ConnectionPool implements AutoCloseable {
+    // Connections used within this window are trusted without a validation round trip
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+
+    private final Semaphore permits;                              // One permit per connection that may be in use
+    private final Deque<PooledConnection> idle = new ArrayDeque<>(); // Most recently used first, guarded by "this"
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    // Pool statistics
+    private final AtomicLong totalCreated = new AtomicLong();
+    private final AtomicLong totalBorrowed = new AtomicLong();
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password, int maxSize, int minIdle,
+                          long borrowTimeoutMillis, long idleTimeoutMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minIdle = Math.min(minIdle, maxSize);
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Borrow a connection, waiting up to the borrow timeout when the pool is exhausted
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        if (!acquired) {
+            borrowTimeouts.incrementAndGet();
+            throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis +
+                    " ms waiting for a database connection (" + getStats() + ")");
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = pollIdle()) != null) {
+                if (isUsable(pooled)) {
+                    return lease(pooled);
+                }
+                validationFailures.incrementAndGet();
+                closeQuietly(pooled.physical);
+            }
+            Connection physical = DriverManager.getConnection(url, user, password);
+            totalCreated.incrementAndGet();
+            return lease(new PooledConnection(physical));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Current pool statistics
+    public Stats getStats() {
+        int idleCount;
+        synchronized (this) {
+            idleCount = idle.size();
+        }
+        return new Stats(
+                maxSize,
+                maxSize - permits.availablePermits(),
+                idleCount,
+                permits.getQueueLength(),
+                totalCreated.get(),
+                totalBorrowed.get(),
+                borrowTimeouts.get(),
+                validationFailures.get(),
+                evicted.get()
+        );
+    }
+
+    // Close the pool and every idle connection - borrowed connections are closed when returned
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        List<PooledConnection> toClose;
+        synchronized (this) {
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+        }
+        toClose.forEach(p -> closeQuietly(p.physical));
+    }
+
+    private synchronized PooledConnection pollIdle() {
+        return idle.pollFirst();
+    }
+
+    // Validate on borrow, skipping the round trip for connections that were just used
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            if (pooled.physical.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - pooled.lastUsed < VALIDATION_BYPASS_MILLIS) {
+                return true;
+            }
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection lease(PooledConnection pooled) {
+        totalBorrowed.incrementAndGet();
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new LeaseHandler(pooled)
+        );
+    }
+
+    // Called when a leased connection is closed by its user
+    private void giveBack(PooledConnection pooled, List<Statement> statements) {
+        for (Statement statement : statements) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // Statement already unusable, nothing to release
+            }
+        }
+
+        boolean reusable = !closed;
+        try {
+            if (reusable && !pooled.physical.isClosed()) {
+                if (!pooled.physical.getAutoCommit()) {
+                    pooled.physical.rollback();          // Never leak an unfinished transaction
+                    pooled.physical.setAutoCommit(true);
+                }
+                pooled.physical.clearWarnings();
+            } else {
+                reusable = false;
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (reusable) {
+            pooled.lastUsed = System.currentTimeMillis();
+            synchronized (this) {
+                idle.addFirst(pooled);
+            }
+        } else {
+            closeQuietly(pooled.physical);
+        }
+        permits.release();
+    }
+
+    // Close connections that sat idle longer than the idle timeout, keeping at least minIdle around
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        List<PooledConnection> expired = new ArrayList<>();
+        synchronized (this) {
+            Iterator<PooledConnection> it = idle.descendingIterator(); // Least recently used first
+            while (it.hasNext() && idle.size() > minIdle) {
+                PooledConnection pooled = it.next();
+                if (pooled.lastUsed < cutoff) {
+                    it.remove();
+                    expired.add(pooled);
+                }
+            }
+        }
+        evicted.addAndGet(expired.size());
+        expired.forEach(p -> closeQuietly(p.physical));
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Connection is being discarded anyway
+        }
+    }
+
+    // A physical connection plus the time it was last handed back
+    private static final class PooledConnection {
+        final Connection physical;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+    }
+
+    // Forwards calls to the physical connection until the lease is closed
+    private final class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final List<Statement> statements = new ArrayList<>();
+        private boolean returned;
+
+        LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        giveBack(pooled, statements);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    if (returned) {
+                        return true;
+                    }
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + pooled.physical + "]";
+                }
+                default -> {
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                }
+            }
+
+            try {
+                Object result = method.invoke(pooled.physical, args);
+                if (result instanceof Statement statement) {
+                    statements.add(statement); // Closed for the caller when the connection goes back
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // Snapshot of pool health
+    public record Stats(int maxSize, int active, int idle, int waiting,
+                        long totalCreated, long totalBorrowed, long borrowTimeouts,
+                        long validationFailures, long evicted) {
+        @Override
+        public String toString() {
+            return "pool active=" + active + "/" + maxSize + ", idle=" + idle + ", waiting=" + waiting +
+                    ", created=" + totalCreated + ", borrowed=" + totalBorrowed +
+                    ", timeouts=" + borrowTimeouts + ", validationFailures=" + validationFailures +
+                    ", evicted=" + evicted;
+        }
+    }
+}
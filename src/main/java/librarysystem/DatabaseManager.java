@@ -2,103 +2,154 @@ package librarysystem;
 
 import java.sql.*;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class DatabaseManager {
-    private static final String URL = "jdbc:mysql://localhost:3306/librarydb?useSSL=false&serverTimezone=UTC";
-    private static final String USER = "root";   // Replace with your MySQL username
-    private static final String PASSWORD = "root"; // Replace with your MySQL password
+    private static final String URL = System.getProperty("library.db.url",
+            "jdbc:mysql://localhost:3306/librarydb?useSSL=false&serverTimezone=UTC&rewriteBatchedStatements=true");
+    private static final String USER = System.getProperty("library.db.user", "root");         // Replace with your MySQL username
+    private static final String PASSWORD = System.getProperty("library.db.password", "root"); // Replace with your MySQL password
+
+    // Connection pool settings - override with -Dlibrary.pool.* system properties
+    private static final int POOL_MAX_SIZE = Integer.getInteger("library.pool.maxSize", 10);
+    private static final int POOL_MIN_IDLE = Integer.getInteger("library.pool.minIdle", 2);
+    private static final long POOL_BORROW_TIMEOUT_MS = Long.getLong("library.pool.borrowTimeoutMs", 5_000);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("library.pool.idleTimeoutMs", 600_000);
+
+    private static final ConnectionPool POOL;
+
+    // Open-loan lookups - served by the student primary key and the issue_records indexes created by
+    // SchemaMigrations. QueryPlanCheck runs EXPLAIN on each of them and fails if one falls back to a full table scan.
+    static final String OPEN_LOANS_SQL = "SELECT open_loans FROM students WHERE student_id = ?";
+    // students.open_loans moves with every issue and return, in the same transaction
+    private static final String COUNT_OPEN_LOANS_SQL =
+            "UPDATE students SET open_loans = GREATEST(0, open_loans + ?) WHERE student_id = ?";
+    static final String OPEN_LOAN_ISSUE_DATE_SQL =
+            "SELECT issue_date FROM issue_records WHERE student_id = ? AND book_id = ? AND return_date IS NULL";
+    // A return locks the student row first, like LOCK_ISSUE_SQL, so issues and returns of one
+    // student queue on it instead of locking their rows in opposite orders
+    static final String LOCK_STUDENT_SQL = "SELECT student_id FROM students WHERE student_id = ? FOR UPDATE";
+    static final String LOCK_OPEN_LOAN_SQL = "SELECT id, issue_date FROM issue_records " +
+            "WHERE student_id = ? AND book_id = ? AND return_date IS NULL " +
+            "ORDER BY id LIMIT 1 FOR UPDATE";
+    static final String LOCK_ISSUE_SQL = "SELECT b.book_id, b.title, b.publisher, b.edition, b.copies, b.version, " +
+            "s.department, s.course, s.open_loans, " +
+            "(SELECT COUNT(*) FROM librarians l WHERE l.librarian_id = ?) AS librarian_known " +
+            "FROM students s LEFT JOIN books b ON b.book_id = ? " +
+            "WHERE s.student_id = ? FOR UPDATE";
+    // Open loans come from active_loans, which carries the names - no join over the loan history
+    static final String ISSUED_BOOKS_SQL = "SELECT issue_id, student_name, book_title, issue_date, " +
+            "librarian_name, fine_amount FROM active_loans ORDER BY issue_id";
+    static final String ISSUED_BOOKS_PAGE_SQL = "SELECT issue_id, student_name, book_title, issue_date, " +
+            "librarian_name, fine_amount FROM active_loans WHERE issue_id > ? ORDER BY issue_id LIMIT ?";
+    // Copy one new issue record into active_loans - four primary key lookups
+    static final String INSERT_ACTIVE_LOAN_SQL = "INSERT INTO active_loans (issue_id, student_id, student_name, " +
+            "book_id, book_title, issue_date, librarian_id, librarian_name) " +
+            "SELECT ir.id, ir.student_id, s.name, ir.book_id, b.title, ir.issue_date, ir.librarian_id, l.name " +
+            "FROM issue_records ir " +
+            "JOIN students s ON ir.student_id = s.student_id " +
+            "JOIN books b ON ir.book_id = b.book_id " +
+            "JOIN librarians l ON ir.librarian_id = l.librarian_id " +
+            "WHERE ir.id = ?";
+    static final String DELETE_ACTIVE_LOAN_SQL = "DELETE FROM active_loans WHERE issue_id = ?";
+    static final String RENAME_ACTIVE_LOAN_STUDENT_SQL = "UPDATE active_loans SET student_name = ? WHERE student_id = ?";
+    static final String RENAME_ACTIVE_LOAN_BOOK_SQL = "UPDATE active_loans SET book_title = ? WHERE book_id = ?";
+    static final String RENAME_ACTIVE_LOAN_LIBRARIAN_SQL =
+            "UPDATE active_loans SET librarian_name = ? WHERE librarian_id = ?";
+    static final String STUDENT_LOANS_SQL = "SELECT ir.book_id, ir.issue_date, ir.fine_amount, ir.fine_accrued_on, b.title " +
+            "FROM issue_records ir " +
+            "JOIN books b ON ir.book_id = b.book_id " +
+            "WHERE ir.student_id = ? AND ir.return_date IS NULL " +
+            "ORDER BY ir.issue_date";
+    // Set-based fine accrual: one statement brings every open loan not yet accrued for the day up to date
+    static final String ACCRUE_FINES_SQL = "UPDATE issue_records " +
+            "SET fine_amount = " + FinePolicy.FINE_SQL + ", fine_accrued_on = ? " +
+            "WHERE return_date IS NULL AND (fine_accrued_on IS NULL OR fine_accrued_on <> ?)";
+    static final String ACCRUE_ACTIVE_LOAN_FINES_SQL = "UPDATE active_loans " +
+            "SET fine_amount = " + FinePolicy.FINE_SQL + ", fine_accrued_on = ? " +
+            "WHERE fine_accrued_on IS NULL OR fine_accrued_on <> ?";
+
+    // Catalog rows kept in memory - writes below update or invalidate them
+    private static final CatalogCache CATALOG_CACHE = new CatalogCache(Integer.getInteger("library.cache.maxBooks", 10_000));
+
+    // Full-text index over title and publisher - built on the first search, then updated by the writes below
+    private static final CatalogSearchIndex SEARCH_INDEX = new CatalogSearchIndex();
+
+    static {
+        if (URL.startsWith("jdbc:mysql:")) {
+            try {
+                // Load MySQL JDBC driver explicitly
+                Class.forName("com.mysql.cj.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
+                System.err.println("MySQL JDBC driver not found: " + e.getMessage());
+            }
+        }
+        POOL = new ConnectionPool(URL, USER, PASSWORD, POOL_MAX_SIZE, POOL_MIN_IDLE,
+                POOL_BORROW_TIMEOUT_MS, POOL_IDLE_TIMEOUT_MS);
+    }
 
-    // Get database connection - using explicit type instead of 'var'
-    public static Connection getConnection() {
+    // Get database connection from the pool - closing it hands it back instead of disconnecting.
+    // Throws when the pool is closed or no connection freed up within the borrow timeout.
+    public static Connection getConnection() throws SQLException {
         try {
-            // Load MySQL JDBC driver explicitly
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            return DriverManager.getConnection(URL, USER, PASSWORD);
-        } catch (Exception e) {
-            System.err.println("Database connection failed: " + e.getMessage());
-            e.printStackTrace();
-            return null;
+            return POOL.borrow();
+        } catch (SQLException e) {
+            LibraryMetrics.recordError("getConnection");
+            throw e;
         }
     }
 
-    // Test database connection - SILENT VERSION
+    // Test database connection - SILENT VERSION, reports pool health only when unhealthy
     public static boolean testConnection() {
         try (Connection conn = getConnection()) {
-            if (conn != null && !conn.isClosed()) {
+            if (conn.isValid(2)) {
                 return true;
             }
         } catch (SQLException e) {
             System.err.println("❌ Database connection test failed: " + e.getMessage());
         }
+        System.err.println("❌ Connection pool health: " + POOL.getStats());
         return false;
     }
 
-    // Initialize database and create tables - SILENT VERSION
-    public static void initializeDatabase() {
-        try (Connection conn = getConnection()) {
-            if (conn != null) {
-                Statement stmt = conn.createStatement();
-
-                // Use the database
-                stmt.executeUpdate("USE librarydb");
-
-                // Create books table
-                String createBooksTable = "CREATE TABLE IF NOT EXISTS books (" +
-                        "book_id INT PRIMARY KEY, " +
-                        "title VARCHAR(255) NOT NULL, " +
-                        "publisher VARCHAR(255) NOT NULL, " +
-                        "edition VARCHAR(100) NOT NULL, " +
-                        "copies INT NOT NULL DEFAULT 0)";
-                stmt.executeUpdate(createBooksTable);
-
-                // Create students table - UPDATED with password field
-                String createStudentsTable = "CREATE TABLE IF NOT EXISTS students (" +
-                        "student_id INT PRIMARY KEY, " +
-                        "name VARCHAR(255) NOT NULL, " +
-                        "department VARCHAR(100) NOT NULL, " +
-                        "course VARCHAR(100) NOT NULL, " +
-                        "password VARCHAR(100) DEFAULT NULL)";
-                stmt.executeUpdate(createStudentsTable);
-
-                // Create librarians table - UPDATED with password field
-                String createLibrariansTable = "CREATE TABLE IF NOT EXISTS librarians (" +
-                        "librarian_id INT PRIMARY KEY, " +
-                        "name VARCHAR(255) NOT NULL, " +
-                        "password VARCHAR(100) DEFAULT NULL)";
-                stmt.executeUpdate(createLibrariansTable);
-
-                // Create issue_records table
-                String createIssueRecordsTable = "CREATE TABLE IF NOT EXISTS issue_records (" +
-                        "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                        "student_id INT NOT NULL, " +
-                        "book_id INT NOT NULL, " +
-                        "issue_date DATE NOT NULL, " +
-                        "return_date DATE NULL, " +
-                        "fine_amount INT DEFAULT 0, " +
-                        "librarian_id INT NOT NULL, " +
-                        "FOREIGN KEY (student_id) REFERENCES students(student_id), " +
-                        "FOREIGN KEY (book_id) REFERENCES books(book_id), " +
-                        "FOREIGN KEY (librarian_id) REFERENCES librarians(librarian_id))";
-                stmt.executeUpdate(createIssueRecordsTable);
-
-                // Add password columns if they don't exist (for existing databases)
-                try {
-                    stmt.executeUpdate("ALTER TABLE students ADD COLUMN password VARCHAR(100) DEFAULT NULL");
-                } catch (SQLException e) {
-                    // Column already exists, ignore
-                }
+    // Current connection pool statistics
+    public static ConnectionPool.Stats getPoolStats() {
+        return POOL.getStats();
+    }
 
-                try {
-                    stmt.executeUpdate("ALTER TABLE librarians ADD COLUMN password VARCHAR(100) DEFAULT NULL");
-                } catch (SQLException e) {
-                    // Column already exists, ignore
-                }
+    // Hit/miss counters of the catalog cache
+    public static CatalogCache.Stats getCatalogCacheStats() {
+        return CATALOG_CACHE.getStats();
+    }
 
+    // Called after books were inserted outside the methods below (bulk import).
+    // Only the full catalog snapshot can be stale - missing books are never cached.
+    static void booksInserted() {
+        CATALOG_CACHE.invalidateCatalog();
+        SEARCH_INDEX.invalidate();
+    }
+
+    // Close all pooled connections - call once on application exit
+    public static void shutdown() {
+        POOL.close();
+    }
+
+    // Bring the schema up to date - SILENT VERSION.
+    // An up-to-date database costs one query; see SchemaMigrations for the list of migrations.
+    public static void initializeDatabase() {
+        try (Connection conn = getConnection()) {
+            if (SchemaMigrations.migrate(conn) > 0) {
+                booksInserted(); // The seed migration may have added books
             }
         } catch (SQLException e) {
             System.err.println("❌ Database initialization failed: " + e.getMessage());
+            LibraryMetrics.recordError("initialize");
             e.printStackTrace();
         }
     }
@@ -109,129 +160,174 @@ public class DatabaseManager {
     public static boolean addBook(Book book) {
         String sql = "INSERT IGNORE INTO books (book_id, title, publisher, edition, copies) VALUES (?, ?, ?, ?, ?)";
 
+        int rowsAffected;
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
+            conn.setAutoCommit(false);                // Book row and its change log entry together
             pstmt.setInt(1, book.getBookId());        // Set book ID parameter
             pstmt.setString(2, book.getTitle());      // Set title parameter
             pstmt.setString(3, book.getPublisher());  // Set publisher parameter
             pstmt.setString(4, book.getEdition());    // Set edition parameter
             pstmt.setInt(5, book.getCopies());        // Set copies parameter
 
-            pstmt.executeUpdate(); // Execute the insert query
-            return true; // Return true (INSERT IGNORE won't fail if duplicate)
+            rowsAffected = pstmt.executeUpdate(); // Execute the insert query
+            if (rowsAffected > 0) {
+                ChangeLog.bookChanged(conn, book.getBookId());
+            }
+            conn.commit();
+            CATALOG_CACHE.invalidate(book.getBookId());
 
         } catch (SQLException e) {
             System.err.println("Error adding book: " + e.getMessage());
+            LibraryMetrics.recordError("addBook");
             return false;
         }
+        if (rowsAffected > 0) {     // Indexed after the connection went back to the pool
+            SEARCH_INDEX.add(book);   // Only a new row - an existing book keeps its indexed text
+        }
+        return rowsAffected > 0; // INSERT IGNORE inserts nothing for a duplicate ID
     }
 
-    // Update book copies count
-    public static boolean updateBookCopies(int bookId, int newCopies) {
-        String sql = "UPDATE books SET copies = ? WHERE book_id = ?";
-
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setInt(1, newCopies);  // Set new copies count
-            pstmt.setInt(2, bookId);     // Set book ID to update
-
-            int rowsAffected = pstmt.executeUpdate(); // Execute update
-            return rowsAffected > 0;                  // Return success status
-
-        } catch (SQLException e) {
-            System.err.println("Error updating book copies: " + e.getMessage());
-            return false;
-        }
+    // Update book copies count - same as updateBookStock
+    public static BookUpdateResult updateBookCopies(int bookId, int newCopies, int expectedVersion) {
+        return updateBookStock(bookId, newCopies, expectedVersion);
     }
 
     // === NEW METHODS FOR UPDATING BOOK DETAILS ===
 
-    // Update book details (title, publisher, edition, copies)
-    public static boolean updateBookDetails(int bookId, String title, String publisher, String edition, int copies) {
-        String sql = "UPDATE books SET title = ?, publisher = ?, edition = ?, copies = ? WHERE book_id = ?";
+    // Update book details (title, publisher, edition, copies) if the book is still at the version
+    // the caller read - CONFLICT if another write changed it since
+    public static BookUpdateResult updateBookDetails(int bookId, String title, String publisher, String edition,
+                                                     int copies, int expectedVersion) {
+        String sql = "UPDATE books SET title = ?, publisher = ?, edition = ?, copies = ?, version = version + 1 " +
+                "WHERE book_id = ? AND version = ?";
 
+        Book updated;
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
+            conn.setAutoCommit(false);      // Book row and active loans change together
             pstmt.setString(1, title);      // Set new title
             pstmt.setString(2, publisher);  // Set new publisher
             pstmt.setString(3, edition);    // Set new edition
             pstmt.setInt(4, copies);        // Set new copies count
             pstmt.setInt(5, bookId);        // Set book ID to update
+            pstmt.setInt(6, expectedVersion); // Only the version that was read
 
-            int rowsAffected = pstmt.executeUpdate(); // Execute update
-            return rowsAffected > 0;                  // Return success status
+            if (pstmt.executeUpdate() == 0) {
+                return versionMismatch(conn, bookId);
+            }
+            renameInActiveLoans(conn, RENAME_ACTIVE_LOAN_BOOK_SQL, bookId, title);
+            ChangeLog.bookChanged(conn, bookId);
+            ChangeLog.openLoansChanged(conn, "book_id", List.of(bookId));
+            conn.commit();
+
+            updated = new Book(bookId, title, publisher, edition, copies, expectedVersion + 1);
+            CATALOG_CACHE.update(updated);
 
         } catch (SQLException e) {
             System.err.println("Error updating book details: " + e.getMessage());
-            return false;
+            LibraryMetrics.recordError("updateBookDetails");
+            return new BookUpdateResult(BookUpdateOutcome.ERROR, null);
         }
+        SEARCH_INDEX.add(updated);    // After the connection went back to the pool
+        return new BookUpdateResult(BookUpdateOutcome.UPDATED, updated);
     }
 
-    // Update only book stock/copies
-    public static boolean updateBookStock(int bookId, int newStock) {
-        String sql = "UPDATE books SET copies = ? WHERE book_id = ?";
+    // Update only book stock/copies, if the book is still at the version the caller read -
+    // CONFLICT if another write (an edit, an issue or a return) changed it since
+    public static BookUpdateResult updateBookStock(int bookId, int newStock, int expectedVersion) {
+        String sql = "UPDATE books SET copies = ?, version = version + 1 WHERE book_id = ? AND version = ?";
 
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
+            conn.setAutoCommit(false);  // Book row and its change log entry together
             pstmt.setInt(1, newStock);  // Set new stock count
             pstmt.setInt(2, bookId);    // Set book ID to update
+            pstmt.setInt(3, expectedVersion); // Only the version that was read
 
-            int rowsAffected = pstmt.executeUpdate(); // Execute update
-            return rowsAffected > 0;                  // Return success status
+            if (pstmt.executeUpdate() == 0) {
+                return versionMismatch(conn, bookId);
+            }
+            ChangeLog.bookChanged(conn, bookId);
+            Book updated = loadBook(conn, bookId);
+            conn.commit();
+
+            CATALOG_CACHE.update(updated);
+            return new BookUpdateResult(BookUpdateOutcome.UPDATED, updated);
 
         } catch (SQLException e) {
             System.err.println("Error updating book stock: " + e.getMessage());
-            return false;
+            LibraryMetrics.recordError("updateBookStock");
+            return new BookUpdateResult(BookUpdateOutcome.ERROR, null);
         }
     }
 
-    // Search book by ID and display details for editing
-    public static void displayBookForEdit(int bookId) {
-        Book book = getBook(bookId);
+    // No row matched ID and version: the book is gone, or someone changed it after the caller read it
+    private static BookUpdateResult versionMismatch(Connection conn, int bookId) throws SQLException {
+        conn.rollback();
+        CATALOG_CACHE.invalidate(bookId);   // The caller may have read a stale cached copy - read it fresh next time
+        BookUpdateOutcome outcome = loadBook(conn, bookId) == null
+                ? BookUpdateOutcome.NOT_FOUND : BookUpdateOutcome.CONFLICT;
+        return new BookUpdateResult(outcome, null);
+    }
+
+    // Get single book - served from the catalog cache when possible
+    public static Book getBook(int bookId) {
+        Book cached = CATALOG_CACHE.get(bookId);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = CATALOG_CACHE.generation();
+        Book book = loadBook(bookId);
         if (book != null) {
-            System.out.println("\n=== CURRENT BOOK DETAILS ===");
-            System.out.println("📖 Book ID: " + book.getBookId());
-            System.out.println("📝 Title: " + book.getTitle());
-            System.out.println("🏢 Publisher: " + book.getPublisher());
-            System.out.println("📄 Edition: " + book.getEdition());
-            System.out.println("🔢 Current Stock: " + book.getCopies());
-            System.out.println("=".repeat(35));
-        } else {
-            System.out.println("❌ Book with ID " + bookId + " not found!");
+            CATALOG_CACHE.put(book, generation);
         }
+        return book;
     }
 
     // Get single book from database
-    public static Book getBook(int bookId) {
-        String sql = "SELECT * FROM books WHERE book_id = ?";
-
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setInt(1, bookId);          // Set book ID parameter
-            ResultSet rs = pstmt.executeQuery(); // Execute query
-
-            if (rs.next()) {                  // If book found
-                return new Book(              // Create and return Book object
-                        rs.getInt("book_id"),
-                        rs.getString("title"),
-                        rs.getString("publisher"),
-                        rs.getString("edition"),
-                        rs.getInt("copies")
-                );
-            }
+    private static Book loadBook(int bookId) {
+        try (Connection conn = getConnection()) {
+            return loadBook(conn, bookId);
         } catch (SQLException e) {
             System.err.println("Error retrieving book: " + e.getMessage());
+            LibraryMetrics.recordError("getBook");
         }
         return null; // Return null if book not found
     }
 
-    // Get all books from database
+    // Get single book on the caller's connection - null if not found
+    private static Book loadBook(Connection conn, int bookId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM books WHERE book_id = ?")) {
+            pstmt.setInt(1, bookId);          // Set book ID parameter
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? readBook(rs) : null;
+            }
+        }
+    }
+
+    // Map the current row of a books query
+    private static Book readBook(ResultSet rs) throws SQLException {
+        return new Book(
+                rs.getInt("book_id"),
+                rs.getString("title"),
+                rs.getString("publisher"),
+                rs.getString("edition"),
+                rs.getInt("copies"),
+                rs.getInt("version")
+        );
+    }
+
+    // Get all books - served from the catalog cache when the whole catalog fits in it
     public static List<Book> getAllBooks() {
+        List<Book> cached = CATALOG_CACHE.getAll();
+        if (cached != null) {
+            return cached;
+        }
+        long generation = CATALOG_CACHE.generation();
         List<Book> books = new ArrayList<>(); // Create list to store books
         String sql = "SELECT * FROM books";
 
@@ -240,35 +336,141 @@ public class DatabaseManager {
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {               // Loop through all results
-                books.add(new Book(           // Add each book to list
-                        rs.getInt("book_id"),
-                        rs.getString("title"),
-                        rs.getString("publisher"),
-                        rs.getString("edition"),
-                        rs.getInt("copies")
-                ));
+                books.add(readBook(rs));
             }
+            CATALOG_CACHE.putAll(books, generation);
         } catch (SQLException e) {
             System.err.println("Error retrieving all books: " + e.getMessage());
+            LibraryMetrics.recordError("getAllBooks");
         }
         return books; // Return list of books
     }
 
+    // Get one page of books ordered by ID, starting after the given ID (keyset pagination).
+    // Pass 0 for the first page and the last book ID of the previous page for the next one.
+    public static List<Book> getBooksPage(int afterBookId, int pageSize) {
+        List<Book> books = new ArrayList<>(pageSize);
+        String sql = "SELECT book_id, title, publisher, edition, copies, version FROM books " +
+                "WHERE book_id > ? ORDER BY book_id LIMIT ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, afterBookId);   // Resume after the last ID already shown
+            pstmt.setInt(2, pageSize);      // Page size
+            pstmt.setFetchSize(pageSize);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    books.add(readBook(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving page of books: " + e.getMessage());
+            LibraryMetrics.recordError("getBooksPage");
+        }
+        return books;
+    }
+
+    // Get the given books in the order of the IDs - IDs that no longer exist are left out
+    public static List<Book> getBooksByIds(List<Integer> bookIds) {
+        List<Book> books = new ArrayList<>(bookIds.size());
+        if (bookIds.isEmpty()) {
+            return books;
+        }
+        String sql = "SELECT book_id, title, publisher, edition, copies, version FROM books WHERE book_id IN (" +
+                String.join(",", Collections.nCopies(bookIds.size(), "?")) + ")";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            for (int i = 0; i < bookIds.size(); i++) {
+                pstmt.setInt(i + 1, bookIds.get(i));
+            }
+            Map<Integer, Book> found = new HashMap<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    found.put(rs.getInt("book_id"), readBook(rs));
+                }
+            }
+            for (int bookId : bookIds) {
+                Book book = found.get(bookId);
+                if (book != null) {
+                    books.add(book);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving books by ID: " + e.getMessage());
+            LibraryMetrics.recordError("searchBooks");
+        }
+        return books;
+    }
+
+    // Full-text search over title and publisher, best matches first.
+    // The last word also matches longer words (so "prog" finds "Programming").
+    public static SearchResult searchBooks(String query, int offset, int pageSize) {
+        long start = System.nanoTime();
+        if (!SEARCH_INDEX.ensureBuilt(DatabaseManager::forEachBook)) {
+            return new SearchResult(query, List.of(), 0, offset, System.nanoTime() - start);
+        }
+        CatalogSearchIndex.Hits hits = SEARCH_INDEX.search(query, offset, pageSize);
+        List<Book> books = getBooksByIds(hits.bookIds());
+        return new SearchResult(query, books, hits.totalHits(), offset, System.nanoTime() - start);
+    }
+
+    // Stream every book in ID order to the consumer without holding the catalog in memory
+    public static boolean forEachBook(Consumer<Book> consumer) {
+        String sql = "SELECT book_id, title, publisher, edition, copies, version FROM books ORDER BY book_id";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            pstmt.setFetchSize(streamingFetchSize(conn));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(readBook(rs));
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error streaming books: " + e.getMessage());
+            LibraryMetrics.recordError("forEachBook");
+            return false;
+        }
+    }
+
+    // MySQL Connector/J only streams row by row with Integer.MIN_VALUE; other drivers take a normal hint
+    static int streamingFetchSize(Connection conn) throws SQLException {
+        return conn.getMetaData().getDriverName().startsWith("MySQL") ? Integer.MIN_VALUE : 1_000;
+    }
+
     // Remove book from database
     public static boolean removeBook(int bookId) {
         String sql = "DELETE FROM books WHERE book_id = ?";
 
+        int rowsAffected;
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
+            conn.setAutoCommit(false);        // Book row and its change log entry together
             pstmt.setInt(1, bookId);          // Set book ID to delete
-            int rowsAffected = pstmt.executeUpdate(); // Execute delete
-            return rowsAffected > 0;          // Return success status
+            rowsAffected = pstmt.executeUpdate(); // Execute delete
+            if (rowsAffected > 0) {
+                ChangeLog.bookChanged(conn, bookId);
+            }
+            conn.commit();
+            CATALOG_CACHE.invalidate(bookId);
 
         } catch (SQLException e) {
             System.err.println("Error removing book: " + e.getMessage());
+            LibraryMetrics.recordError("removeBook");
             return false;
         }
+        if (rowsAffected > 0) {
+            SEARCH_INDEX.remove(bookId);      // After the connection went back to the pool
+        }
+        return rowsAffected > 0;              // Return success status
     }
 
     // === STUDENT CRUD OPERATIONS ===
@@ -282,6 +484,7 @@ public class DatabaseManager {
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
+            conn.setAutoCommit(false);                  // Student row and active loans change together
             pstmt.setInt(1, student.getStudentId());    // Set student ID
             pstmt.setString(2, student.getName());      // Set student name
             pstmt.setString(3, student.getDepartment());// Set department
@@ -289,10 +492,14 @@ public class DatabaseManager {
             pstmt.setString(5, String.valueOf(student.getStudentId())); // Default password = ID
 
             int rowsAffected = pstmt.executeUpdate();   // Execute insert
+            renameInActiveLoans(conn, RENAME_ACTIVE_LOAN_STUDENT_SQL, student.getStudentId(), student.getName());
+            ChangeLog.openLoansChanged(conn, "student_id", List.of(student.getStudentId()));
+            conn.commit();
             return rowsAffected > 0;                    // Return success status
 
         } catch (SQLException e) {
             System.err.println("Error adding student: " + e.getMessage());
+            LibraryMetrics.recordError("addStudent");
             return false;
         }
     }
@@ -315,6 +522,7 @@ public class DatabaseManager {
 
         } catch (SQLException e) {
             System.err.println("Error adding new student: " + e.getMessage());
+            LibraryMetrics.recordError("addNewStudent");
             return false;
         }
     }
@@ -339,6 +547,7 @@ public class DatabaseManager {
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving student: " + e.getMessage());
+            LibraryMetrics.recordError("getStudent");
         }
         return null; // Return null if student not found
     }
@@ -360,6 +569,7 @@ public class DatabaseManager {
 
         } catch (SQLException e) {
             System.err.println("Error updating student password: " + e.getMessage());
+            LibraryMetrics.recordError("updateStudentPassword");
             return false;
         }
     }
@@ -379,13 +589,14 @@ public class DatabaseManager {
 
         } catch (SQLException e) {
             System.err.println("Error updating librarian password: " + e.getMessage());
+            LibraryMetrics.recordError("updateLibrarianPassword");
             return false;
         }
     }
 
-    // Verify student password
-    public static boolean verifyStudentPassword(int studentId, String password) {
-        String sql = "SELECT password FROM students WHERE student_id = ?";
+    // Student whose password matches, loaded in the same query - null if unknown or wrong password
+    public static Student authenticateStudent(int studentId, String password) {
+        String sql = "SELECT student_id, name, department, course, password FROM students WHERE student_id = ?";
 
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -393,23 +604,24 @@ public class DatabaseManager {
             pstmt.setInt(1, studentId);
             ResultSet rs = pstmt.executeQuery();
 
-            if (rs.next()) {
-                String storedPassword = rs.getString("password");
-                // If no password set, use ID as default
-                if (storedPassword == null) {
-                    storedPassword = String.valueOf(studentId);
-                }
-                return storedPassword.equals(password);
+            if (rs.next() && AuthService.passwordMatches(rs.getString("password"), studentId, password)) {
+                return new Student(
+                        rs.getInt("student_id"),
+                        rs.getString("name"),
+                        rs.getString("department"),
+                        rs.getString("course")
+                );
             }
         } catch (SQLException e) {
             System.err.println("Error verifying student password: " + e.getMessage());
+            LibraryMetrics.recordError("authenticateStudent");
         }
-        return false;
+        return null;
     }
 
-    // Verify librarian password
-    public static boolean verifyLibrarianPassword(int librarianId, String password) {
-        String sql = "SELECT password FROM librarians WHERE librarian_id = ?";
+    // Librarian whose password matches, loaded in the same query - null if unknown or wrong password
+    public static Librarian authenticateLibrarian(int librarianId, String password) {
+        String sql = "SELECT librarian_id, name, password FROM librarians WHERE librarian_id = ?";
 
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -417,18 +629,17 @@ public class DatabaseManager {
             pstmt.setInt(1, librarianId);
             ResultSet rs = pstmt.executeQuery();
 
-            if (rs.next()) {
-                String storedPassword = rs.getString("password");
-                // If no password set, use ID as default
-                if (storedPassword == null) {
-                    storedPassword = String.valueOf(librarianId);
-                }
-                return storedPassword.equals(password);
+            if (rs.next() && AuthService.passwordMatches(rs.getString("password"), librarianId, password)) {
+                return new Librarian(
+                        rs.getInt("librarian_id"),
+                        rs.getString("name")
+                );
             }
         } catch (SQLException e) {
             System.err.println("Error verifying librarian password: " + e.getMessage());
+            LibraryMetrics.recordError("authenticateLibrarian");
         }
-        return false;
+        return null;
     }
 
     // === LIBRARIAN CRUD OPERATIONS ===
@@ -442,15 +653,20 @@ public class DatabaseManager {
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
+            conn.setAutoCommit(false);                   // Librarian row and active loans change together
             pstmt.setInt(1, librarian.getLibrarianId()); // Set librarian ID
             pstmt.setString(2, librarian.getName());     // Set librarian name
             pstmt.setString(3, String.valueOf(librarian.getLibrarianId())); // Default password = ID
 
             int rowsAffected = pstmt.executeUpdate();    // Execute insert
+            renameInActiveLoans(conn, RENAME_ACTIVE_LOAN_LIBRARIAN_SQL, librarian.getLibrarianId(), librarian.getName());
+            ChangeLog.openLoansChanged(conn, "librarian_id", List.of(librarian.getLibrarianId()));
+            conn.commit();
             return rowsAffected > 0;                     // Return success status
 
         } catch (SQLException e) {
             System.err.println("Error adding librarian: " + e.getMessage());
+            LibraryMetrics.recordError("addLibrarian");
             return false;
         }
     }
@@ -473,108 +689,278 @@ public class DatabaseManager {
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving librarian: " + e.getMessage());
+            LibraryMetrics.recordError("getLibrarian");
         }
         return null; // Return null if librarian not found
     }
 
     // === ISSUE RECORD OPERATIONS ===
 
-    // Issue book to student
-    public static boolean issueBook(int studentId, int bookId, int librarianId) {
-        String sql = "INSERT INTO issue_records (student_id, book_id, issue_date, librarian_id) " +
+    // Issue book in a single transaction on one connection:
+    // locks the student and book rows, checks the student's open-loan counter against
+    // their loan limit, takes a copy only while copies > 0 and inserts the issue record
+    public static IssueResult issueBookAtomically(Student student, int bookId, Librarian librarian) {
+        String takeCopySql = "UPDATE books SET copies = copies - 1, version = version + 1 WHERE book_id = ? AND copies > 0";
+        String insertSql = "INSERT INTO issue_records (student_id, book_id, issue_date, librarian_id) " +
                 "VALUES (?, ?, CURDATE(), ?)";
 
         try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement lock = conn.prepareStatement(LOCK_ISSUE_SQL);
+             PreparedStatement takeCopy = conn.prepareStatement(takeCopySql);
+             PreparedStatement insert = conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
+
+            conn.setAutoCommit(false);
+            lock.setInt(1, librarian.getLibrarianId());
+            lock.setInt(2, bookId);
+            lock.setInt(3, student.getStudentId());
+
+            ResultSet rs = lock.executeQuery();
+            if (!rs.next()) {
+                // Student row missing (e.g. console preset not yet stored) - create it and lock again
+                rs.close();
+                insertIgnoreStudent(conn, student);
+                rs = lock.executeQuery();
+                if (!rs.next()) {
+                    conn.rollback();
+                    return new IssueResult(IssueOutcome.ERROR, null);
+                }
+            }
 
-            pstmt.setInt(1, studentId);    // Set student ID
-            pstmt.setInt(2, bookId);       // Set book ID
-            pstmt.setInt(3, librarianId);  // Set librarian ID
+            if (rs.getObject("book_id") == null) {
+                conn.rollback();
+                return new IssueResult(IssueOutcome.UNKNOWN_BOOK, null);
+            }
+            Book book = readBook(rs);
+            int loanLimit = LoanLimitPolicy.current().limitFor(rs.getString("department"), rs.getString("course"));
+            if (rs.getInt("open_loans") >= loanLimit) {
+                conn.rollback();
+                return new IssueResult(IssueOutcome.LOAN_LIMIT_REACHED, book);
+            }
+            if (book.getCopies() <= 0) {
+                conn.rollback();
+                return new IssueResult(IssueOutcome.NO_COPIES, book);
+            }
+            if (rs.getInt("librarian_known") == 0) {
+                insertIgnoreLibrarian(conn, librarian); // e.g. the "System" librarian used by the student dashboard
+            }
+            rs.close();
 
-            int rowsAffected = pstmt.executeUpdate(); // Execute insert
-            return rowsAffected > 0;                  // Return success status
+            takeCopy.setInt(1, bookId);
+            if (takeCopy.executeUpdate() == 0) {
+                conn.rollback();
+                return new IssueResult(IssueOutcome.NO_COPIES, book);
+            }
+
+            insert.setInt(1, student.getStudentId());
+            insert.setInt(2, bookId);
+            insert.setInt(3, librarian.getLibrarianId());
+            insert.executeUpdate();
+            int issueId = insertActiveLoan(conn, insert);
+            countOpenLoans(conn, student.getStudentId(), 1);
+            ChangeLog.loanChanged(conn, issueId, student.getStudentId(), bookId);
+
+            conn.commit();
+            book.setCopies(book.getCopies() - 1);
+            book.setVersion(book.getVersion() + 1);
+            CATALOG_CACHE.updateCopies(bookId, book.getCopies(), book.getVersion());
+            return new IssueResult(IssueOutcome.ISSUED, book);
 
         } catch (SQLException e) {
             System.err.println("Error issuing book: " + e.getMessage());
-            return false;
+            LibraryMetrics.recordError("issueBook");
+            return new IssueResult(IssueOutcome.ERROR, null);
         }
     }
 
-    // Return book from student
-    public static boolean returnBook(int studentId, int bookId, int fine) {
-        String sql = "UPDATE issue_records SET return_date = CURDATE(), fine_amount = ? " +
-                "WHERE student_id = ? AND book_id = ? AND return_date IS NULL";
+    // Return book in a single transaction on one connection:
+    // locks the student row and then the open issue record, stores the return date and fine
+    // computed from the stored issue date, then puts the copy back with copies = copies + 1
+    public static ReturnResult returnBookAtomically(int studentId, int bookId) {
+        String closeSql = "UPDATE issue_records SET return_date = ?, fine_amount = ? WHERE id = ?";
+        String putBackSql = "UPDATE books SET copies = copies + 1, version = version + 1 WHERE book_id = ?";
 
         try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement lockStudent = conn.prepareStatement(LOCK_STUDENT_SQL);
+             PreparedStatement lock = conn.prepareStatement(LOCK_OPEN_LOAN_SQL);
+             PreparedStatement close = conn.prepareStatement(closeSql);
+             PreparedStatement closeActive = conn.prepareStatement(DELETE_ACTIVE_LOAN_SQL);
+             PreparedStatement putBack = conn.prepareStatement(putBackSql)) {
+
+            conn.setAutoCommit(false);
+            // Student row first - see LOCK_STUDENT_SQL
+            lockStudent.setInt(1, studentId);
+            lockStudent.executeQuery().close();
+            lock.setInt(1, studentId);
+            lock.setInt(2, bookId);
+
+            int issueId;
+            LocalDate issueDate;
+            try (ResultSet rs = lock.executeQuery()) {
+                if (!rs.next()) {
+                    conn.rollback();
+                    return ReturnResult.of(ReturnOutcome.NOT_ISSUED);
+                }
+                issueId = rs.getInt("id");
+                issueDate = rs.getDate("issue_date").toLocalDate();
+            }
 
-            pstmt.setInt(1, fine);      // Set fine amount
-            pstmt.setInt(2, studentId); // Set student ID
-            pstmt.setInt(3, bookId);    // Set book ID
+            FinePolicy policy = FinePolicy.current();
+            LocalDate today = LocalDate.now();
+            long daysKept = policy.daysKept(issueDate, today);
+            int fine = policy.fineFor(daysKept);
 
-            int rowsAffected = pstmt.executeUpdate(); // Execute update
-            return rowsAffected > 0;                  // Return success status
+            close.setDate(1, Date.valueOf(today));
+            close.setInt(2, fine);
+            close.setInt(3, issueId);
+            close.executeUpdate();
+            closeActive.setInt(1, issueId);
+            closeActive.executeUpdate();
+            countOpenLoans(conn, studentId, -1);
+
+            putBack.setInt(1, bookId);
+            putBack.executeUpdate();
+            ChangeLog.loanChanged(conn, issueId, studentId, bookId);
+
+            conn.commit();
+            CATALOG_CACHE.invalidate(bookId);
+            return new ReturnResult(ReturnOutcome.RETURNED, issueDate, today, daysKept, fine);
 
         } catch (SQLException e) {
             System.err.println("Error returning book: " + e.getMessage());
-            return false;
+            LibraryMetrics.recordError("returnBook");
+            return ReturnResult.of(ReturnOutcome.ERROR);
+        }
+    }
+
+    // Add the change to the student's open-loan counter (caller's transaction)
+    private static void countOpenLoans(Connection conn, int studentId, int change) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(COUNT_OPEN_LOANS_SQL)) {
+            pstmt.setInt(1, change);
+            pstmt.setInt(2, studentId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Copy the issue record just inserted by the statement into active_loans (caller's transaction).
+    // Returns the ID of the issue record.
+    private static int insertActiveLoan(Connection conn, PreparedStatement insertedBy) throws SQLException {
+        try (ResultSet keys = insertedBy.getGeneratedKeys();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_ACTIVE_LOAN_SQL)) {
+            if (!keys.next()) {
+                throw new SQLException("No ID returned for the new issue record");
+            }
+            int issueId = keys.getInt(1);
+            pstmt.setInt(1, issueId);
+            pstmt.executeUpdate();
+            return issueId;
+        }
+    }
+
+    // Carry a changed student name, book title or librarian name over to open loans (caller's transaction)
+    static void renameInActiveLoans(Connection conn, String renameSql, int id, String name) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(renameSql)) {
+            pstmt.setString(1, name);
+            pstmt.setInt(2, id);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Insert student with default password unless it already exists (runs on the caller's transaction)
+    private static void insertIgnoreStudent(Connection conn, Student student) throws SQLException {
+        String sql = "INSERT IGNORE INTO students (student_id, name, department, course, password) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, student.getStudentId());
+            pstmt.setString(2, student.getName());
+            pstmt.setString(3, student.getDepartment());
+            pstmt.setString(4, student.getCourse());
+            pstmt.setString(5, String.valueOf(student.getStudentId())); // Default password = ID
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Insert librarian with default password unless it already exists (runs on the caller's transaction)
+    private static void insertIgnoreLibrarian(Connection conn, Librarian librarian) throws SQLException {
+        String sql = "INSERT IGNORE INTO librarians (librarian_id, name, password) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, librarian.getLibrarianId());
+            pstmt.setString(2, librarian.getName());
+            pstmt.setString(3, String.valueOf(librarian.getLibrarianId())); // Default password = ID
+            pstmt.executeUpdate();
         }
     }
 
     // Check if student has issued book
     public static boolean hasIssuedBook(int studentId) {
-        String sql = "SELECT COUNT(*) FROM issue_records WHERE student_id = ? AND return_date IS NULL";
-
         try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(OPEN_LOANS_SQL)) {
 
             pstmt.setInt(1, studentId);       // Set student ID parameter
             ResultSet rs = pstmt.executeQuery(); // Execute query
 
-            if (rs.next()) {                  // If result found
-                return rs.getInt(1) > 0;      // Return true if count > 0
+            if (rs.next()) {                  // If student found
+                return rs.getInt(1) > 0;      // Return true if the counter is above 0
             }
         } catch (SQLException e) {
             System.err.println("Error checking issued books: " + e.getMessage());
+            LibraryMetrics.recordError("hasIssuedBook");
         }
         return false; // Return false by default
     }
 
-    // Get all issued books details
-    public static void displayIssuedBooks() {
-        String sql = "SELECT ir.id, s.name as student_name, b.title as book_title, " +
-                "ir.issue_date, l.name as librarian_name " +
-                "FROM issue_records ir " +
-                "JOIN students s ON ir.student_id = s.student_id " +
-                "JOIN books b ON ir.book_id = b.book_id " +
-                "JOIN librarians l ON ir.librarian_id = l.librarian_id " +
-                "WHERE ir.return_date IS NULL";
-
+    // Get all open loans with student, book and librarian names
+    public static List<IssuedBookRow> getIssuedBooks() {
+        List<IssuedBookRow> rows = new ArrayList<>();
         try (Connection conn = getConnection();
              Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             ResultSet rs = stmt.executeQuery(ISSUED_BOOKS_SQL)) {
 
-            System.out.println("\n=== ISSUED BOOKS ===");
             while (rs.next()) {               // Loop through results
-                System.out.println("Issue ID: " + rs.getInt("id") +
-                        ", Student: " + rs.getString("student_name") +
-                        ", Book: " + rs.getString("book_title") +
-                        ", Issue Date: " + rs.getDate("issue_date") +
-                        ", Librarian: " + rs.getString("librarian_name"));
+                rows.add(readActiveLoan(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving issued books: " + e.getMessage());
+            LibraryMetrics.recordError("getIssuedBooks");
+        }
+        return rows;
+    }
+
+    // One page of open loans in issue order, starting after afterIssueId (0 for the first page)
+    public static List<IssuedBookRow> getIssuedBooksPage(int afterIssueId, int pageSize) {
+        List<IssuedBookRow> rows = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(ISSUED_BOOKS_PAGE_SQL)) {
+
+            pstmt.setInt(1, afterIssueId);
+            pstmt.setInt(2, pageSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(readActiveLoan(rs));
+                }
             }
         } catch (SQLException e) {
-            System.err.println("Error displaying issued books: " + e.getMessage());
+            System.err.println("Error retrieving issued books page: " + e.getMessage());
+            LibraryMetrics.recordError("getIssuedBooksPage");
         }
+        return rows;
+    }
+
+    private static IssuedBookRow readActiveLoan(ResultSet rs) throws SQLException {
+        return new IssuedBookRow(
+                rs.getInt("issue_id"),
+                rs.getString("student_name"),
+                rs.getString("book_title"),
+                rs.getDate("issue_date").toLocalDate(),
+                rs.getString("librarian_name"),
+                rs.getInt("fine_amount")
+        );
     }
 
     // === NEW METHODS FOR FINE CALCULATION ===
 
     // Get issue date for a specific student and book
     public static LocalDate getIssueDate(int studentId, int bookId) {
-        String sql = "SELECT issue_date FROM issue_records WHERE student_id = ? AND book_id = ? AND return_date IS NULL";
-
         try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(OPEN_LOAN_ISSUE_DATE_SQL)) {
 
             pstmt.setInt(1, studentId);  // Set student ID
             pstmt.setInt(2, bookId);     // Set book ID
@@ -585,100 +971,125 @@ public class DatabaseManager {
             }
         } catch (SQLException e) {
             System.err.println("Error getting issue date: " + e.getMessage());
+            LibraryMetrics.recordError("getIssueDate");
         }
         return null; // Return null if no issue record found
     }
 
-    // Display current fine status for a student
-    public static void displayStudentFineStatus(int studentId) {
-        String sql = "SELECT ir.book_id, ir.issue_date, b.title, DATEDIFF(CURDATE(), ir.issue_date) as days_issued " +
-                "FROM issue_records ir " +
-                "JOIN books b ON ir.book_id = b.book_id " +
-                "WHERE ir.student_id = ? AND ir.return_date IS NULL";
-
+    // Get a student's open loans - days issued are counted up to today
+    public static List<LoanStatus> getStudentLoans(int studentId) {
+        List<LoanStatus> loans = new ArrayList<>();
         try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(STUDENT_LOANS_SQL)) {
 
             pstmt.setInt(1, studentId);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                int daysIssued = rs.getInt("days_issued");
-                String bookTitle = rs.getString("title");
-                LocalDate issueDate = rs.getDate("issue_date").toLocalDate();
-
-                System.out.println("\n=== FINE STATUS ===");
-                System.out.println("📖 Book: " + bookTitle);
-                System.out.println("📅 Issue Date: " + issueDate);
-                System.out.println("📊 Days Issued: " + daysIssued);
-                System.out.println("⏰ Due Date: " + issueDate.plusDays(7));
-
-                if (daysIssued > 7) {
-                    int fine = (daysIssued - 7) * 10;
-                    System.out.println("💰 Current Fine: ₹" + fine + " (Late by " + (daysIssued - 7) + " days)");
-                } else {
-                    int daysLeft = 7 - daysIssued;
-                    System.out.println("✅ No fine yet. " + daysLeft + " days left to return.");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                LocalDate today = LocalDate.now();
+                while (rs.next()) {
+                    LocalDate issueDate = rs.getDate("issue_date").toLocalDate();
+                    Date accruedOn = rs.getDate("fine_accrued_on");
+                    loans.add(new LoanStatus(
+                            rs.getInt("book_id"),
+                            rs.getString("title"),
+                            issueDate,
+                            ChronoUnit.DAYS.between(issueDate, today),
+                            rs.getInt("fine_amount"),
+                            accruedOn == null ? null : accruedOn.toLocalDate()
+                    ));
                 }
-            } else {
-                System.out.println("✅ No books currently issued.");
             }
         } catch (SQLException e) {
-            System.err.println("Error checking fine status: " + e.getMessage());
+            System.err.println("Error retrieving student loans: " + e.getMessage());
+            LibraryMetrics.recordError("getStudentLoans");
         }
+        return loans;
     }
 
-    // Display student's issued books with due dates and fine status (returns String for GUI)
-    public static String displayStudentIssuedBooks(int studentId) {
-        StringBuilder output = new StringBuilder();
-        String sql = "SELECT ir.book_id, ir.issue_date, b.title, DATEDIFF(CURDATE(), ir.issue_date) as days_issued " +
-                "FROM issue_records ir " +
-                "JOIN books b ON ir.book_id = b.book_id " +
-                "WHERE ir.student_id = ? AND ir.return_date IS NULL";
-
+    // Store the fine every open loan has built up by the given day - one UPDATE for all of them.
+    // Loans already accrued for that day are skipped, so running it again the same day is cheap.
+    // Returns the number of loans updated, or -1 on database error.
+    public static int accrueFines(FinePolicy policy, LocalDate asOf) {
         try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(ACCRUE_FINES_SQL);
+             PreparedStatement active = conn.prepareStatement(ACCRUE_ACTIVE_LOAN_FINES_SQL)) {
+
+            conn.setAutoCommit(false);  // Issue records and active loans show the same fines
+            Date day = Date.valueOf(asOf);
+            for (PreparedStatement update : List.of(pstmt, active)) {
+                update.setDate(1, day);
+                update.setInt(2, policy.loanDays());
+                update.setInt(3, policy.finePerDay());
+                update.setDate(4, day);
+                update.setDate(5, day);
+            }
+            int updated = pstmt.executeUpdate();
+            active.executeUpdate();
+            if (updated > 0) {
+                ChangeLog.loansAccrued(conn);
+            }
+            conn.commit();
+            return updated;
+        } catch (SQLException e) {
+            System.err.println("Error accruing fines: " + e.getMessage());
+            LibraryMetrics.recordError("accrueFines");
+        }
+        return -1;
+    }
 
-            pstmt.setInt(1, studentId);
-            ResultSet rs = pstmt.executeQuery();
+    // === CHANGE TRACKING ===
 
-            boolean hasBooks = false;
-            output.append("=== MY ISSUED BOOKS ===\n\n");
-
-            while (rs.next()) {
-                hasBooks = true;
-                int bookId = rs.getInt("book_id");
-                int daysIssued = rs.getInt("days_issued");
-                String bookTitle = rs.getString("title");
-                LocalDate issueDate = rs.getDate("issue_date").toLocalDate();
-                LocalDate dueDate = issueDate.plusDays(7);
-
-                output.append("📖 Book ID: ").append(bookId).append("\n");
-                output.append("   Title: ").append(bookTitle).append("\n");
-                output.append("   Issue Date: ").append(issueDate).append("\n");
-                output.append("   Due Date: ").append(dueDate).append("\n");
-                output.append("   Days Issued: ").append(daysIssued).append("\n");
-
-                if (daysIssued > 7) {
-                    int fine = (daysIssued - 7) * 10;
-                    output.append("   Status: ⚠️ LATE (Fine: ₹").append(fine)
-                            .append(", Late by ").append(daysIssued - 7).append(" days)\n");
-                } else {
-                    int daysLeft = 7 - daysIssued;
-                    output.append("   Status: ✅ OK (").append(daysLeft).append(" days left)\n");
-                }
-                output.append("\n");
-            }
+    // Settled change revision - read it before a full load, then ask for the changes since
+    public static long getChangeRevision() {
+        try (Connection conn = getConnection()) {
+            return ChangeLog.currentRevision(conn);
+        } catch (SQLException e) {
+            System.err.println("Error reading change revision: " + e.getMessage());
+            LibraryMetrics.recordError("getChangeRevision");
+        }
+        return -1;
+    }
 
-            if (!hasBooks) {
-                output.append("✅ No books currently issued.\n");
-            }
+    // Books changed after the revision - nothing changed is one index range read that finds no rows
+    public static BookChanges getBookChanges(long sinceRevision) {
+        try (Connection conn = getConnection()) {
+            return ChangeLog.bookChangesSince(conn, sinceRevision);
+        } catch (SQLException e) {
+            System.err.println("Error reading book changes: " + e.getMessage());
+            LibraryMetrics.recordError("getBookChanges");
+        }
+        return new BookChanges(sinceRevision, List.of(), List.of(), false);
+    }
 
-            return output.toString();
+    // Loans changed after the revision
+    public static LoanChanges getLoanChanges(long sinceRevision) {
+        try (Connection conn = getConnection()) {
+            return ChangeLog.loanChangesSince(conn, sinceRevision);
+        } catch (SQLException e) {
+            System.err.println("Error reading loan changes: " + e.getMessage());
+            LibraryMetrics.recordError("getLoanChanges");
+        }
+        return new LoanChanges(sinceRevision, List.of(), List.of(), false);
+    }
 
+    // Revision of the student's latest loan change - 0 if none, -1 on error
+    public static long getStudentLoansRevision(int studentId) {
+        try (Connection conn = getConnection()) {
+            return ChangeLog.studentLoansRevision(conn, studentId);
+        } catch (SQLException e) {
+            System.err.println("Error reading student loan revision: " + e.getMessage());
+            LibraryMetrics.recordError("getStudentLoansRevision");
+        }
+        return -1;
+    }
+
+    // Delete change log rows older than the retention - returns how many, -1 on error
+    public static int pruneChanges() {
+        try (Connection conn = getConnection()) {
+            return ChangeLog.prune(conn);
         } catch (SQLException e) {
-            System.err.println("Error retrieving student issued books: " + e.getMessage());
-            return "❌ Error retrieving issued books.";
+            System.err.println("Error pruning change log: " + e.getMessage());
+            LibraryMetrics.recordError("pruneChanges");
         }
+        return -1;
     }
 }
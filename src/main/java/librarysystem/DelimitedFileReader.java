@@ -0,0 +1,149 @@
+package librarysystem;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Streams records from a CSV or TSV file one at a time.
+// Tab separated if the file name ends in .tsv or the first line contains a tab, comma separated otherwise.
+// Quoted fields may contain the delimiter, doubled quotes ("") and line breaks.
+public class DelimitedFileReader implements AutoCloseable {
+    private final BufferedReader reader;
+    private final CountingInputStream counter;
+    private final long totalBytes;
+    private final char delimiter;
+    private String pendingLine;
+    private long lineNumber;
+    private long recordLine;
+
+    public DelimitedFileReader(Path file) throws IOException {
+        this.totalBytes = Files.size(file);
+        this.counter = new CountingInputStream(Files.newInputStream(file));
+        this.reader = new BufferedReader(new InputStreamReader(counter, StandardCharsets.UTF_8));
+
+        pendingLine = readLine();
+        if (pendingLine != null && pendingLine.startsWith("\uFEFF")) {
+            pendingLine = pendingLine.substring(1); // Strip UTF-8 byte order mark
+        }
+        boolean tsv = file.getFileName().toString().toLowerCase().endsWith(".tsv");
+        delimiter = (tsv || (pendingLine != null && pendingLine.indexOf('\t') >= 0)) ? '\t' : ',';
+    }
+
+    // Next record as a list of fields, or null at end of file. Blank lines are skipped.
+    public List<String> next() throws IOException {
+        String line;
+        do {
+            line = pendingLine != null ? pendingLine : readLine();
+            pendingLine = null;
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        recordLine = lineNumber;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+
+        while (true) {
+            if (i >= line.length()) {
+                if (quoted) {
+                    // Quoted field spans a line break - continue with the next line
+                    String nextLine = readLine();
+                    if (nextLine == null) {
+                        break;
+                    }
+                    field.append('\n');
+                    line = nextLine;
+                    i = 0;
+                    continue;
+                }
+                break;
+            }
+
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c == '"') {
+                    if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"'); // Escaped quote
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    // Line number (1-based) where the last returned record started
+    public long getLineNumber() {
+        return recordLine;
+    }
+
+    public long getBytesRead() {
+        return counter.count;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String readLine() throws IOException {
+        String line = reader.readLine();
+        if (line != null) {
+            lineNumber++;
+        }
+        return line;
+    }
+
+    // Counts bytes pulled from the file so callers can show progress without knowing the row count
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
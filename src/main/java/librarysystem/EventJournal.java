@@ -0,0 +1,351 @@
+package librarysystem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+// Append-only journal of every change made through Library: issues, returns, stock and detail
+// changes, new books, students and librarians, password changes and imports. issue_records only
+// keeps the latest state of a loan; the journal keeps every event in order, for audit and replay
+// with JournalReader.
+//
+// Events are fixed-size binary records appended to memory-mapped segment files in
+// -Dlibrary.journal.dir (default "journal"), named journal-<first sequence>.seg. A segment is
+// -Dlibrary.journal.segmentMb (default 16) long; when it is full the next one is started and the
+// full one is forced to disk in the background. An append copies one record into the mapped page
+// under a lock - no system call, no allocation and no timing of its own - so it can sit on the
+// circulation path. The OS writes the pages back, so appends survive a crash of the process;
+// a power failure can lose what was not forced yet.
+//
+// A record is written body first and checksum last, so a record torn by a crash fails its
+// checksum and ends the journal for readers. On startup the last segment is scanned to continue
+// after its last good record. Only one process writes a directory at a time (journal.lock);
+// a second one runs without a journal. -Dlibrary.journal=false switches the journal off.
+public class EventJournal implements AutoCloseable {
+    // Segment header: magic, format version, record size, first sequence - padded to HEADER_SIZE
+    static final long MAGIC = 0x4C49424A524E4C31L;   // "LIBJRNL1"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 64;
+
+    // Record: CRC32C of the rest, type code, sequence, timestamp, student, book, librarian, extra, value
+    static final int RECORD_SIZE = 48;
+    static final int CRC_OFFSET = 0;
+    static final int TYPE_OFFSET = 4;
+    static final int SEQUENCE_OFFSET = 8;
+    static final int TIMESTAMP_OFFSET = 16;
+    static final int STUDENT_OFFSET = 24;
+    static final int BOOK_OFFSET = 28;
+    static final int LIBRARIAN_OFFSET = 32;
+    static final int EXTRA_OFFSET = 36;
+    static final int VALUE_OFFSET = 40;
+
+    static final String LOCK_FILE = "journal.lock";
+    private static final long MIN_SEGMENT_SIZE = HEADER_SIZE + RECORD_SIZE;
+
+    private static final EventJournal DISABLED = new EventJournal();
+    private static volatile EventJournal current;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long segmentSize;
+    private final FileChannel lockChannel;
+    private final FileLock fileLock;
+
+    // Guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);   // Built here, then copied into the segment
+    private final CRC32C crc = new CRC32C();
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+    private int position;
+    private long nextSequence;
+    private boolean failing;   // The last append failed - count further failures without printing them
+    private boolean closed;
+
+    // The disabled journal - appends nothing
+    private EventJournal() {
+        enabled = false;
+        directory = null;
+        segmentSize = 0;
+        lockChannel = null;
+        fileLock = null;
+    }
+
+    private EventJournal(Path directory, long segmentSize, FileChannel lockChannel, FileLock fileLock) {
+        this.enabled = true;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.lockChannel = lockChannel;
+        this.fileLock = fileLock;
+    }
+
+    // The journal every Library writes to - opened from the system properties on first use.
+    // If it cannot be opened the library runs on without one.
+    public static EventJournal current() {
+        EventJournal journal = current;
+        if (journal == null) {
+            synchronized (EventJournal.class) {
+                if (current == null) {
+                    current = openFromSystemProperties();
+                }
+                journal = current;
+            }
+        }
+        return journal;
+    }
+
+    public static EventJournal disabled() {
+        return DISABLED;
+    }
+
+    private static EventJournal openFromSystemProperties() {
+        if (!Boolean.parseBoolean(System.getProperty("library.journal", "true"))) {
+            return DISABLED;
+        }
+        Path directory = Path.of(System.getProperty("library.journal.dir", "journal"));
+        long segmentSize = Integer.getInteger("library.journal.segmentMb", 16) * 1024L * 1024L;
+        try {
+            return open(directory, segmentSize);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error opening event journal: " + e.getMessage());
+            LibraryMetrics.recordError("journalOpen");
+            return DISABLED;
+        }
+    }
+
+    // Open the journal in the directory for appending, continuing after its last good record
+    public static EventJournal open(Path directory, long segmentSize) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal segments must be between " + MIN_SEGMENT_SIZE
+                    + " bytes and 2 GB long");
+        }
+        // Whole records only
+        long usableSize = HEADER_SIZE + (segmentSize - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+
+        Files.createDirectories(directory);
+        FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock fileLock;
+        try {
+            fileLock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            fileLock = null;   // Already open in this JVM
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+        if (fileLock == null) {
+            lockChannel.close();
+            throw new IOException("Journal " + directory + " is in use by another process");
+        }
+
+        EventJournal journal = new EventJournal(directory, usableSize, lockChannel, fileLock);
+        try {
+            journal.recover();
+        } catch (IOException | RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // Sequence of the last event appended - 0 if there is none
+    public long getLastSequence() {
+        lock.lock();
+        try {
+            return enabled ? nextSequence - 1 : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // === APPEND ===
+
+    // Append an event - returns its sequence, or -1 if the journal is off or the append failed.
+    // Never throws: a journal problem is reported but must not fail the change it records.
+    public long append(JournalEventType type, int studentId, int bookId, int librarianId, long value, int extra) {
+        if (!enabled) {
+            return -1;
+        }
+        long timestamp = System.currentTimeMillis();
+        lock.lock();
+        try {
+            if (closed) {
+                return -1;
+            }
+            if (segment == null || position + RECORD_SIZE > segment.capacity()) {
+                rollSegment();
+            }
+            long sequence = nextSequence;
+            record.putInt(TYPE_OFFSET, type.code())
+                    .putLong(SEQUENCE_OFFSET, sequence)
+                    .putLong(TIMESTAMP_OFFSET, timestamp)
+                    .putInt(STUDENT_OFFSET, studentId)
+                    .putInt(BOOK_OFFSET, bookId)
+                    .putInt(LIBRARIAN_OFFSET, librarianId)
+                    .putInt(EXTRA_OFFSET, extra)
+                    .putLong(VALUE_OFFSET, value);
+            crc.reset();
+            crc.update(record.array(), TYPE_OFFSET, RECORD_SIZE - TYPE_OFFSET);
+
+            // Body first, checksum last - a torn record never looks complete
+            segment.put(position + TYPE_OFFSET, record, TYPE_OFFSET, RECORD_SIZE - TYPE_OFFSET);
+            segment.putInt(position + CRC_OFFSET, (int) crc.getValue());
+            position += RECORD_SIZE;
+            nextSequence++;
+            failing = false;
+            return sequence;
+        } catch (IOException | RuntimeException e) {
+            if (!failing) {
+                System.err.println("Error appending to event journal: " + e.getMessage());
+            }
+            failing = true;
+            LibraryMetrics.recordError("journalAppend");
+            return -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Write appended events through to disk
+    public void force() {
+        lock.lock();
+        try {
+            if (segment != null) {
+                segment.force();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            closeSegment();
+            fileLock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing event journal: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // === SEGMENTS ===
+
+    // Continue after the last good record of the newest segment - or start the first one
+    private void recover() throws IOException {
+        List<Path> segments = JournalReader.segments(directory);
+        if (segments.isEmpty()) {
+            nextSequence = 1;
+            return;   // The first append starts segment 1
+        }
+        Path last = segments.get(segments.size() - 1);
+        long firstSequence = JournalReader.firstSequence(last);
+        segmentChannel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = segmentChannel.size();
+        if (size < MIN_SEGMENT_SIZE) {
+            // Crashed while creating it - start it again
+            segmentChannel.close();
+            segmentChannel = null;
+            Files.delete(last);
+            nextSequence = firstSequence;
+            return;
+        }
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (segment.getLong(0) == 0) {
+            writeHeader(firstSequence);   // Created but the header never made it to disk
+        } else if (!JournalReader.isValidHeader(segment, last)) {
+            throw new IOException(last + " is not a journal segment of this version");
+        }
+
+        position = HEADER_SIZE;
+        nextSequence = firstSequence;
+        while (position + RECORD_SIZE <= size && JournalReader.isValidRecord(segment, position, nextSequence)) {
+            position += RECORD_SIZE;
+            nextSequence++;
+        }
+        // Clear a torn record and anything after it, so it cannot pass for a record later
+        for (int offset = position; offset < size; offset++) {
+            if (segment.get(offset) != 0) {
+                for (int clear = position; clear < size; clear++) {
+                    segment.put(clear, (byte) 0);
+                }
+                segment.force();
+                break;
+            }
+        }
+    }
+
+    // Start the next segment. The full one is forced on a background thread, off the append path -
+    // its mapping stays valid after the channel is closed.
+    private void rollSegment() throws IOException {
+        MappedByteBuffer full = segment;
+        segment = null;
+        closeSegment();
+        if (full != null) {
+            // A platform thread: a virtual one would hold up a carrier for the whole write-back
+            Thread.ofPlatform().daemon().name("journal-force").start(() -> forceQuietly(full));
+        }
+        Path file = directory.resolve(JournalReader.segmentName(nextSequence));
+        segmentChannel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        writeHeader(nextSequence);   // A header lost in a crash is written again by recover()
+        position = HEADER_SIZE;
+    }
+
+    private void writeHeader(long firstSequence) {
+        segment.putLong(0, MAGIC)
+                .putInt(8, FORMAT_VERSION)
+                .putInt(12, RECORD_SIZE)
+                .putLong(16, firstSequence);
+    }
+
+    // Force the current segment to disk and let go of it
+    private void closeSegment() throws IOException {
+        if (segment != null) {
+            segment.force();
+            segment = null;   // Unmapped when collected
+        }
+        if (segmentChannel != null) {
+            segmentChannel.close();
+            segmentChannel = null;
+        }
+    }
+
+    private static void forceQuietly(MappedByteBuffer full) {
+        try {
+            full.force();
+        } catch (RuntimeException e) {
+            System.err.println("Error forcing event journal segment: " + e.getMessage());
+            LibraryMetrics.recordError("journalForce");
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package librarysystem;
+
+// Running totals of a report export - passed to progress listeners and returned at the end.
+// totalRows is counted before the export starts, so rows written meanwhile can push rowsWritten past it.
+public record ExportSummary(ReportType report, long rowsWritten, long totalRows, long elapsedNanos,
+                            boolean cancelled) {
+
+    // Rows written per second so far
+    public double rowsPerSecond() {
+        return elapsedNanos > 0 ? rowsWritten * 1_000_000_000.0 / elapsedNanos : 0;
+    }
+
+    // Share of the report written, from 0.0 to 1.0
+    public double fractionDone() {
+        return totalRows > 0 ? Math.min(1.0, (double) rowsWritten / totalRows) : 1.0;
+    }
+
+    public long elapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s%s: %,d of %,d rows written (%,.0f rows/s)",
+                cancelled ? "[cancelled] " : "", report.getTitle(), rowsWritten, totalRows, rowsPerSecond());
+    }
+}
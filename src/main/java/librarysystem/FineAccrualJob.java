@@ -0,0 +1,54 @@
+package librarysystem;
+
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the stored fines of open loans current: on start and then every interval it asks the store
+// to accrue all open loans to today in one set-based pass. Dashboards and reports read the stored
+// fines instead of recomputing them per view. A run on a day that was already accrued finds nothing
+// to update, so the interval only bounds how long after midnight the new day's fines appear.
+// Each run also prunes the change history the dashboards refresh from, which accrual writes to.
+// Interval: -Dlibrary.fine.accrualIntervalMinutes (default 60).
+public class FineAccrualJob implements AutoCloseable {
+    private final LibraryStore store;
+    private final FinePolicy policy;
+    private final ScheduledExecutorService scheduler;
+
+    private FineAccrualJob(LibraryStore store, FinePolicy policy) {
+        this.store = store;
+        this.policy = policy;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fine-accrual");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Run now and then on the configured interval - close() stops it
+    public static FineAccrualJob start(LibraryStore store) {
+        long intervalMinutes = Math.max(1, Long.getLong("library.fine.accrualIntervalMinutes", 60));
+        FineAccrualJob job = new FineAccrualJob(store, FinePolicy.current());
+        job.scheduler.scheduleWithFixedDelay(job::runOnce, 0, intervalMinutes, TimeUnit.MINUTES);
+        return job;
+    }
+
+    // Accrue all open loans to today - returns the number of loans updated, -1 on a storage error
+    public int runOnce() {
+        try {
+            int updated = store.accrueFines(policy, LocalDate.now());
+            store.pruneChanges();
+            return updated;
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule - report it and try again next time
+            System.err.println("Error accruing fines: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
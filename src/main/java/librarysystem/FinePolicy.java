@@ -0,0 +1,49 @@
+package librarysystem;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+// The one place that decides loan periods and fines. Returns, the fine accrual job
+// and the dashboards all ask the current policy instead of doing their own arithmetic.
+// Override with -Dlibrary.fine.loanDays=... and -Dlibrary.fine.perDay=...
+public record FinePolicy(int loanDays, int finePerDay) {
+    private static final FinePolicy CURRENT = new FinePolicy(
+            Integer.getInteger("library.fine.loanDays", 7),
+            Integer.getInteger("library.fine.perDay", 10));
+
+    // Same rule as fineFor() in SQL, for the set-based accrual in DatabaseManager.
+    // Parameters: the date to accrue to, loan days, fine per day.
+    static final String FINE_SQL = "GREATEST(0, TIMESTAMPDIFF(DAY, issue_date, ?) - ?) * ?";
+
+    public FinePolicy {
+        if (loanDays < 0 || finePerDay < 0) {
+            throw new IllegalArgumentException("Loan days and fine per day must not be negative");
+        }
+    }
+
+    public static FinePolicy current() {
+        return CURRENT;
+    }
+
+    // Date by which a book issued on the given day has to be back
+    public LocalDate dueDate(LocalDate issueDate) {
+        return issueDate.plusDays(loanDays);
+    }
+
+    public long daysKept(LocalDate issueDate, LocalDate asOf) {
+        return ChronoUnit.DAYS.between(issueDate, asOf);
+    }
+
+    public long daysLate(long daysKept) {
+        return Math.max(0, daysKept - loanDays);
+    }
+
+    public long daysLeft(long daysKept) {
+        return Math.max(0, loanDays - daysKept);
+    }
+
+    // Fine for a loan kept the given number of days
+    public int fineFor(long daysKept) {
+        return (int) (daysLate(daysKept) * finePerDay);
+    }
+}
@@ -0,0 +1,51 @@
+package librarysystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Mutable totals for one bulk import run, shared by the catalog and roster importers
+class ImportCounters {
+    private static final int MAX_REJECTIONS_KEPT = 20;
+
+    private final long startNanos = System.nanoTime();
+    private final List<String> rejections = new ArrayList<>();
+    private final boolean dryRun;
+    long rowsRead;
+    long inserted;
+    long updated;
+    long skipped;
+    long rejected;
+
+    ImportCounters(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    void reject(long line, String reason) {
+        rejected++;
+        if (rejections.size() < MAX_REJECTIONS_KEPT) {
+            rejections.add("Line " + line + ": " + reason);
+        }
+    }
+
+    // Snapshot the totals and hand them to the listener, if any
+    ImportSummary report(Consumer<ImportSummary> listener, DelimitedFileReader reader) {
+        ImportSummary summary = new ImportSummary(rowsRead, inserted, updated, skipped, rejected,
+                reader.getBytesRead(), reader.getTotalBytes(), System.nanoTime() - startNanos,
+                dryRun, List.copyOf(rejections));
+        if (listener != null) {
+            listener.accept(summary);
+        }
+        return summary;
+    }
+
+    // A first row whose ID column is not a number is treated as a header
+    static boolean isHeader(List<String> fields) {
+        try {
+            Integer.parseInt(fields.get(0));
+            return false;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+}
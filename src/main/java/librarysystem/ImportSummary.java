@@ -0,0 +1,31 @@
+package librarysystem;
+
+import java.util.List;
+
+// Running totals of a bulk import - passed to progress listeners after every chunk and returned at the end.
+// "skipped" counts rows that needed no write: duplicate book IDs, or roster rows already up to date.
+// In a dry run nothing is written and inserted/updated show what would have happened.
+public record ImportSummary(long rowsRead, long inserted, long updated, long skipped, long rejected,
+                            long bytesRead, long totalBytes, long elapsedNanos, boolean dryRun,
+                            List<String> rejections) {
+
+    // Rows read per second so far
+    public double rowsPerSecond() {
+        return elapsedNanos > 0 ? rowsRead * 1_000_000_000.0 / elapsedNanos : 0;
+    }
+
+    // Share of the file processed, from 0.0 to 1.0
+    public double fractionDone() {
+        return totalBytes > 0 ? Math.min(1.0, (double) bytesRead / totalBytes) : 1.0;
+    }
+
+    public long elapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s%,d rows read: %,d inserted, %,d updated, %,d skipped, %,d rejected (%,.0f rows/s)",
+                dryRun ? "[dry run] " : "", rowsRead, inserted, updated, skipped, rejected, rowsPerSecond());
+    }
+}
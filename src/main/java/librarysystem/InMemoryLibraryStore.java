@@ -0,0 +1,1089 @@
+package librarysystem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+// LibraryStore that keeps everything in the JVM - no database server needed, nothing survives a restart.
+// Rows live in int-keyed hash maps guarded by one read-write lock: reads run in parallel, and every
+// write (including the whole of issue and return) holds the write lock, which makes it atomic.
+// Books are copied in and out, so callers never share an object with the store.
+public class InMemoryLibraryStore implements LibraryStore {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CatalogSearchIndex searchIndex = new CatalogSearchIndex();
+
+    // Everything below is guarded by lock
+    private final IntHashMap<Book> books = new IntHashMap<>();
+    private final IntHashMap<Account<Student>> students = new IntHashMap<>();
+    private final IntHashMap<Account<Librarian>> librarians = new IntHashMap<>();
+    private final IntHashMap<Loan> loans = new IntHashMap<>();
+    private final IntHashMap<List<Loan>> openLoansByStudent = new IntHashMap<>();
+    private final OpenLoans activeLoans = new OpenLoans();
+    private int lastLoanId;
+    private final List<Change> changes = new ArrayList<>();   // In revision order, the oldest trimmed
+    private final IntLongMap studentLoanRevisions = new IntLongMap();
+    private long revision;
+    private long finesRevision;   // Last accrual that changed fines on open loans
+    private volatile int[] sortedBookIds;   // null after a book was added or removed
+
+    private static final class Account<T> {
+        final T profile;
+        String password;   // null means the default, the user's ID
+
+        Account(T profile, String password) {
+            this.profile = profile;
+            this.password = password;
+        }
+    }
+
+    // A changed book (loan = false) or loan, like a row of change_log
+    private record Change(long revision, boolean loan, int id) {
+    }
+
+    // Open loans in loan ID order, without boxing the IDs. A new loan always gets the highest ID,
+    // so adding one appends; a returned loan leaves an empty slot, and the slots are packed again
+    // once half of them are empty. Lookups by ID are a binary search.
+    private static final class OpenLoans {
+        private int[] ids = new int[64];
+        private Loan[] slots = new Loan[64];   // null once the loan was returned
+        private int end;                       // Slots in use, empty ones included
+        private int live;
+
+        void add(Loan loan) {
+            if (end > 0 && loan.id <= ids[end - 1]) {
+                throw new IllegalArgumentException("Open loans must be added in loan ID order");
+            }
+            if (end == ids.length) {
+                if (live <= end / 2) {
+                    pack();
+                } else {
+                    ids = Arrays.copyOf(ids, end * 2);
+                    slots = Arrays.copyOf(slots, end * 2);
+                }
+            }
+            ids[end] = loan.id;
+            slots[end] = loan;
+            end++;
+            live++;
+        }
+
+        Loan get(int id) {
+            int i = Arrays.binarySearch(ids, 0, end, id);
+            return i >= 0 ? slots[i] : null;
+        }
+
+        void remove(int id) {
+            int i = Arrays.binarySearch(ids, 0, end, id);
+            if (i >= 0 && slots[i] != null) {
+                slots[i] = null;
+                live--;
+                if (end >= 64 && live < end / 2) {
+                    pack();
+                }
+            }
+        }
+
+        void forEach(Consumer<Loan> action) {
+            for (int i = 0; i < end; i++) {
+                if (slots[i] != null) {
+                    action.accept(slots[i]);
+                }
+            }
+        }
+
+        // Up to limit open loans with an ID above afterId, in ID order
+        List<Loan> after(int afterId, int limit) {
+            int i = Arrays.binarySearch(ids, 0, end, afterId);
+            i = i >= 0 ? i + 1 : -i - 1;
+            List<Loan> page = new ArrayList<>(Math.max(0, Math.min(limit, live)));
+            for (; i < end && page.size() < limit; i++) {
+                if (slots[i] != null) {
+                    page.add(slots[i]);
+                }
+            }
+            return page;
+        }
+
+        void clear() {
+            Arrays.fill(slots, 0, end, null);
+            end = 0;
+            live = 0;
+        }
+
+        // Move the open loans to the front, dropping the empty slots
+        private void pack() {
+            int to = 0;
+            for (int from = 0; from < end; from++) {
+                if (slots[from] != null) {
+                    ids[to] = ids[from];
+                    slots[to] = slots[from];
+                    to++;
+                }
+            }
+            Arrays.fill(slots, to, end, null);
+            end = to;
+        }
+    }
+
+    private static final class Loan {
+        final int id;
+        final int studentId;
+        final int bookId;
+        final int librarianId;
+        final LocalDate issueDate;
+        LocalDate returnDate;
+        int fine;                // Accrued so far while open, final once returned
+        LocalDate fineAccruedOn;
+
+        Loan(int id, int studentId, int bookId, int librarianId, LocalDate issueDate) {
+            this.id = id;
+            this.studentId = studentId;
+            this.bookId = bookId;
+            this.librarianId = librarianId;
+            this.issueDate = issueDate;
+        }
+    }
+
+    // === LIFECYCLE ===
+
+    @Override
+    public boolean testConnection() {
+        return true;
+    }
+
+    // Same default accounts and starter books as the seed migration of the database
+    @Override
+    public void initialize() {
+        addLibrarianIfAbsent(new Librarian(101, "Mr. Sharma"));
+        addLibrarianIfAbsent(new Librarian(102, "Mrs. Sumita"));
+        addNewStudent(201, "Rahul", "CSE", "B.Tech");
+        addNewStudent(202, "Priya", "ECE", "B.Tech");
+        addBook(new Book(1001, "Java Programming", "Pearson", "3rd", 2));
+        addBook(new Book(1002, "Data Structures", "McGraw Hill", "2nd", 1));
+        addBook(new Book(1003, "Database Systems", "Elsevier", "4th", 3));
+    }
+
+    @Override
+    public void shutdown() {
+        lock.writeLock().lock();
+        try {
+            books.clear();
+            students.clear();
+            librarians.clear();
+            loans.clear();
+            openLoansByStudent.clear();
+            activeLoans.clear();
+            changes.clear();
+            studentLoanRevisions.clear();
+            revision = 0;
+            finesRevision = 0;
+            sortedBookIds = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        searchIndex.invalidate();
+    }
+
+    // === BOOKS ===
+
+    @Override
+    public boolean addBook(Book book) {
+        boolean added;
+        lock.writeLock().lock();
+        try {
+            added = !books.containsKey(book.getBookId());
+            if (added) {
+                books.put(book.getBookId(), copy(book));
+                sortedBookIds = null;
+                bookChanged(book.getBookId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // The index takes its own lock - update it outside ours so a rebuild reading
+        // the books can never wait for a writer that waits for the index
+        if (added) {
+            searchIndex.add(book);
+        }
+        return added;
+    }
+
+    @Override
+    public Book getBook(int bookId) {
+        lock.readLock().lock();
+        try {
+            Book book = books.get(bookId);
+            return book == null ? null : copy(book);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> getAllBooks() {
+        lock.readLock().lock();
+        try {
+            int[] ids = sortedBookIds();
+            List<Book> all = new ArrayList<>(ids.length);
+            for (int bookId : ids) {
+                all.add(copy(books.get(bookId)));
+            }
+            return all;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean forEachBook(Consumer<Book> consumer) {
+        lock.readLock().lock();
+        try {
+            for (int bookId : sortedBookIds()) {
+                consumer.accept(copy(books.get(bookId)));
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> getBooksPage(int afterBookId, int pageSize) {
+        lock.readLock().lock();
+        try {
+            int[] ids = sortedBookIds();
+            int from = Arrays.binarySearch(ids, afterBookId);
+            from = from >= 0 ? from + 1 : -from - 1;
+            int to = Math.min(ids.length, from + pageSize);
+            List<Book> page = new ArrayList<>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) {
+                page.add(copy(books.get(ids[i])));
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public SearchResult searchBooks(String query, int offset, int pageSize) {
+        long start = System.nanoTime();
+        searchIndex.ensureBuilt(this::forEachBook);
+        CatalogSearchIndex.Hits hits = searchIndex.search(query, offset, pageSize);
+
+        List<Book> page = new ArrayList<>(hits.bookIds().size());
+        lock.readLock().lock();
+        try {
+            for (int bookId : hits.bookIds()) {
+                Book book = books.get(bookId);
+                if (book != null) {
+                    page.add(copy(book));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new SearchResult(query, page, hits.totalHits(), offset, System.nanoTime() - start);
+    }
+
+    @Override
+    public BookUpdateResult updateBookStock(int bookId, int newStock, int expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            Book book = books.get(bookId);
+            if (book == null || book.getVersion() != expectedVersion) {
+                return versionMismatch(book);
+            }
+            book.setCopies(newStock);
+            book.setVersion(expectedVersion + 1);
+            bookChanged(bookId);
+            return new BookUpdateResult(BookUpdateOutcome.UPDATED, copy(book));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public BookUpdateResult updateBookDetails(int bookId, String title, String publisher, String edition,
+                                              int copies, int expectedVersion) {
+        Book updated = new Book(bookId, title, publisher, edition, copies, expectedVersion + 1);
+        lock.writeLock().lock();
+        try {
+            Book book = books.get(bookId);
+            if (book == null || book.getVersion() != expectedVersion) {
+                return versionMismatch(book);
+            }
+            books.put(bookId, copy(updated));
+            bookChanged(bookId);
+            activeLoans.forEach(loan -> {
+                if (loan.bookId == bookId) {
+                    loanChanged(loan);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        searchIndex.add(updated);
+        return new BookUpdateResult(BookUpdateOutcome.UPDATED, updated);
+    }
+
+    // The book is gone, or someone changed it after the caller read it
+    private static BookUpdateResult versionMismatch(Book current) {
+        BookUpdateOutcome outcome = current == null ? BookUpdateOutcome.NOT_FOUND : BookUpdateOutcome.CONFLICT;
+        return new BookUpdateResult(outcome, null);
+    }
+
+    // Like the foreign key in the database: a book with issue records cannot be removed
+    @Override
+    public boolean removeBook(int bookId) {
+        lock.writeLock().lock();
+        try {
+            if (!books.containsKey(bookId) || hasLoans(bookId)) {
+                return false;
+            }
+            books.remove(bookId);
+            sortedBookIds = null;
+            bookChanged(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        searchIndex.remove(bookId);
+        return true;
+    }
+
+    // Same file format and checks as CatalogImporter - each chunk goes in under one write lock
+    @Override
+    public ImportSummary importBooks(Path file, Consumer<ImportSummary> progressListener) throws IOException {
+        ImportCounters counters = new ImportCounters(false);
+        try (DelimitedFileReader reader = new DelimitedFileReader(file)) {
+            Map<Integer, Book> chunk = new LinkedHashMap<>();
+            boolean firstRecord = true;
+            List<String> fields;
+            while ((fields = reader.next()) != null) {
+                if (firstRecord) {
+                    firstRecord = false;
+                    if (ImportCounters.isHeader(fields)) {
+                        continue;
+                    }
+                }
+                counters.rowsRead++;
+
+                Book book = CatalogImporter.parseBook(fields, reader.getLineNumber(), counters);
+                if (book == null) {
+                    continue;
+                }
+                if (chunk.putIfAbsent(book.getBookId(), book) != null) {
+                    counters.skipped++; // Same ID twice in this chunk
+                }
+                if (chunk.size() >= CatalogImporter.DEFAULT_CHUNK_SIZE) {
+                    insertBooks(chunk.values(), counters);
+                    chunk.clear();
+                    counters.report(progressListener, reader);
+                }
+            }
+            insertBooks(chunk.values(), counters);
+            return counters.report(progressListener, reader);
+        }
+    }
+
+    // Add the books whose ID is free and skip the rest, like INSERT IGNORE
+    private void insertBooks(Collection<Book> chunk, ImportCounters counters) {
+        long insertedBefore = counters.inserted;
+        lock.writeLock().lock();
+        try {
+            for (Book book : chunk) {
+                if (books.containsKey(book.getBookId())) {
+                    counters.skipped++;
+                    continue;
+                }
+                books.put(book.getBookId(), copy(book));
+                bookChanged(book.getBookId());
+                counters.inserted++;
+            }
+            if (counters.inserted > insertedBefore) {
+                sortedBookIds = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (counters.inserted > insertedBefore) {
+            searchIndex.invalidate();   // Rebuilt by the next search, as after a database import
+        }
+    }
+
+    // === STUDENTS ===
+
+    @Override
+    public boolean addStudent(Student student) {
+        lock.writeLock().lock();
+        try {
+            Account<Student> existing = students.get(student.getStudentId());
+            if (existing != null && StudentRosterImporter.sameDetails(existing.profile, student)) {
+                return false;   // Nothing to change - the database reports 0 rows affected too
+            }
+            String password = existing == null ? String.valueOf(student.getStudentId()) : existing.password;
+            students.put(student.getStudentId(), new Account<>(copy(student), password));
+            List<Loan> open = openLoansByStudent.get(student.getStudentId());
+            if (open != null) {
+                open.forEach(this::loanChanged);   // The name on their open loans may have changed
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean addNewStudent(int studentId, String name, String department, String course) {
+        lock.writeLock().lock();
+        try {
+            if (students.containsKey(studentId)) {
+                return false;
+            }
+            students.put(studentId, new Account<>(new Student(studentId, name, department, course),
+                    String.valueOf(studentId)));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean updateStudentPassword(int studentId, String newPassword) {
+        lock.writeLock().lock();
+        try {
+            Account<Student> account = students.get(studentId);
+            if (account == null) {
+                return false;
+            }
+            account.password = newPassword;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Student authenticateStudent(int studentId, String password) {
+        lock.readLock().lock();
+        try {
+            Account<Student> account = students.get(studentId);
+            if (account == null || !AuthService.passwordMatches(account.password, studentId, password)) {
+                return null;
+            }
+            return copy(account.profile);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Same file format and checks as StudentRosterImporter - a dry run only classifies the rows
+    @Override
+    public ImportSummary importStudents(Path file, boolean dryRun, Consumer<ImportSummary> progressListener)
+            throws IOException {
+        ImportCounters counters = new ImportCounters(dryRun);
+        try (DelimitedFileReader reader = new DelimitedFileReader(file)) {
+            // Later rows for the same ID replace earlier ones within a chunk
+            Map<Integer, Student> chunk = new LinkedHashMap<>();
+            boolean firstRecord = true;
+            List<String> fields;
+            while ((fields = reader.next()) != null) {
+                if (firstRecord) {
+                    firstRecord = false;
+                    if (ImportCounters.isHeader(fields)) {
+                        continue;
+                    }
+                }
+                counters.rowsRead++;
+
+                Student student = StudentRosterImporter.parseStudent(fields, reader.getLineNumber(), counters);
+                if (student == null) {
+                    continue;
+                }
+                if (chunk.put(student.getStudentId(), student) != null) {
+                    counters.skipped++; // Superseded by a later row for the same student
+                }
+                if (chunk.size() >= StudentRosterImporter.DEFAULT_CHUNK_SIZE) {
+                    upsertStudents(chunk.values(), dryRun, counters);
+                    chunk.clear();
+                    counters.report(progressListener, reader);
+                }
+            }
+            upsertStudents(chunk.values(), dryRun, counters);
+            return counters.report(progressListener, reader);
+        }
+    }
+
+    // Add new students and update changed ones - existing passwords are kept, new students get their ID
+    private void upsertStudents(Collection<Student> chunk, boolean dryRun, ImportCounters counters) {
+        Lock held = dryRun ? lock.readLock() : lock.writeLock();
+        held.lock();
+        try {
+            for (Student student : chunk) {
+                Account<Student> current = students.get(student.getStudentId());
+                if (current == null) {
+                    counters.inserted++;
+                } else if (StudentRosterImporter.sameDetails(current.profile, student)) {
+                    counters.skipped++;
+                    continue;
+                } else {
+                    counters.updated++;
+                }
+                if (dryRun) {
+                    continue;
+                }
+
+                String password = current == null ? String.valueOf(student.getStudentId()) : current.password;
+                students.put(student.getStudentId(), new Account<>(copy(student), password));
+                // A renamed student keeps the new name on their open loans
+                List<Loan> open = openLoansByStudent.get(student.getStudentId());
+                if (current != null && open != null
+                        && !Objects.equals(current.profile.getName(), student.getName())) {
+                    open.forEach(this::loanChanged);
+                }
+            }
+        } finally {
+            held.unlock();
+        }
+    }
+
+    // === LIBRARIANS ===
+
+    @Override
+    public boolean addLibrarian(Librarian librarian) {
+        lock.writeLock().lock();
+        try {
+            Account<Librarian> existing = librarians.get(librarian.getLibrarianId());
+            if (existing != null && Objects.equals(existing.profile.getName(), librarian.getName())) {
+                return false;   // Same name already stored, as for addStudent
+            }
+            String password = existing == null ? String.valueOf(librarian.getLibrarianId()) : existing.password;
+            librarians.put(librarian.getLibrarianId(), new Account<>(
+                    new Librarian(librarian.getLibrarianId(), librarian.getName()), password));
+            activeLoans.forEach(loan -> {
+                if (loan.librarianId == librarian.getLibrarianId()) {
+                    loanChanged(loan);   // The name on their open loans may have changed
+                }
+            });
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean updateLibrarianPassword(int librarianId, String newPassword) {
+        lock.writeLock().lock();
+        try {
+            Account<Librarian> account = librarians.get(librarianId);
+            if (account == null) {
+                return false;
+            }
+            account.password = newPassword;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Librarian authenticateLibrarian(int librarianId, String password) {
+        lock.readLock().lock();
+        try {
+            Account<Librarian> account = librarians.get(librarianId);
+            if (account == null || !AuthService.passwordMatches(account.password, librarianId, password)) {
+                return null;
+            }
+            return new Librarian(account.profile.getLibrarianId(), account.profile.getName());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // === ISSUE RECORDS ===
+
+    @Override
+    public IssueResult issueBook(Student student, int bookId, Librarian librarian) {
+        lock.writeLock().lock();
+        try {
+            Book book = books.get(bookId);
+            if (book == null) {
+                return new IssueResult(IssueOutcome.UNKNOWN_BOOK, null);
+            }
+            // The stored profile decides the limit, as the database store reads it from the student row
+            Account<Student> account = students.get(student.getStudentId());
+            int loanLimit = LoanLimitPolicy.current().limitFor(account != null ? account.profile : student);
+            if (openLoanCount(student.getStudentId()) >= loanLimit) {
+                return new IssueResult(IssueOutcome.LOAN_LIMIT_REACHED, copy(book));
+            }
+            if (book.getCopies() <= 0) {
+                return new IssueResult(IssueOutcome.NO_COPIES, copy(book));
+            }
+            // Unknown accounts are created on the fly, as the database store does
+            if (account == null) {
+                students.put(student.getStudentId(),
+                        new Account<>(copy(student), String.valueOf(student.getStudentId())));
+            }
+            addLibrarianIfAbsentLocked(librarian);
+
+            book.setCopies(book.getCopies() - 1);
+            book.setVersion(book.getVersion() + 1);
+            Loan loan = new Loan(++lastLoanId, student.getStudentId(), bookId, librarian.getLibrarianId(), LocalDate.now());
+            loans.put(loan.id, loan);
+            List<Loan> open = openLoansByStudent.get(loan.studentId);
+            if (open == null) {
+                open = new ArrayList<>(1);
+                openLoansByStudent.put(loan.studentId, open);
+            }
+            open.add(loan);
+            activeLoans.add(loan);
+            loanChanged(loan);
+            bookChanged(bookId);
+            return new IssueResult(IssueOutcome.ISSUED, copy(book));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public ReturnResult returnBook(int studentId, int bookId) {
+        lock.writeLock().lock();
+        try {
+            List<Loan> open = openLoansByStudent.get(studentId);
+            Loan loan = null;
+            if (open != null) {
+                for (Loan candidate : open) {
+                    if (candidate.bookId == bookId && (loan == null || candidate.id < loan.id)) {
+                        loan = candidate;
+                    }
+                }
+            }
+            if (loan == null) {
+                return ReturnResult.of(ReturnOutcome.NOT_ISSUED);
+            }
+
+            FinePolicy policy = FinePolicy.current();
+            LocalDate today = LocalDate.now();
+            long daysKept = policy.daysKept(loan.issueDate, today);
+            loan.returnDate = today;
+            loan.fine = policy.fineFor(daysKept);
+            open.remove(loan);
+            if (open.isEmpty()) {
+                openLoansByStudent.remove(studentId);
+            }
+            activeLoans.remove(loan.id);
+            Book book = books.get(bookId);
+            if (book != null) {
+                book.setCopies(book.getCopies() + 1);
+                book.setVersion(book.getVersion() + 1);
+            }
+            loanChanged(loan);
+            bookChanged(bookId);
+            return new ReturnResult(ReturnOutcome.RETURNED, loan.issueDate, today, daysKept, loan.fine);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean hasIssuedBook(int studentId) {
+        lock.readLock().lock();
+        try {
+            return openLoanCount(studentId) > 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<IssuedBookRow> getIssuedBooks() {
+        List<IssuedBookRow> rows = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            activeLoans.forEach(loan -> rows.add(issuedBookRow(loan)));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return rows;
+    }
+
+    @Override
+    public List<IssuedBookRow> getIssuedBooksPage(int afterIssueId, int pageSize) {
+        List<IssuedBookRow> rows = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Loan loan : activeLoans.after(afterIssueId, pageSize)) {
+                rows.add(issuedBookRow(loan));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return rows;
+    }
+
+    private IssuedBookRow issuedBookRow(Loan loan) {
+        Account<Student> student = students.get(loan.studentId);
+        Account<Librarian> librarian = librarians.get(loan.librarianId);
+        Book book = books.get(loan.bookId);
+        return new IssuedBookRow(loan.id,
+                student == null ? null : student.profile.getName(),
+                book == null ? null : book.getTitle(),
+                loan.issueDate,
+                librarian == null ? null : librarian.profile.getName(),
+                loan.fine);
+    }
+
+    @Override
+    public List<LoanStatus> getStudentLoans(int studentId) {
+        List<LoanStatus> statuses = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        lock.readLock().lock();
+        try {
+            List<Loan> open = openLoansByStudent.get(studentId);
+            if (open != null) {
+                for (Loan loan : open) {
+                    Book book = books.get(loan.bookId);
+                    statuses.add(new LoanStatus(loan.bookId, book == null ? null : book.getTitle(),
+                            loan.issueDate, ChronoUnit.DAYS.between(loan.issueDate, today),
+                            loan.fine, loan.fineAccruedOn));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        statuses.sort(Comparator.comparing(LoanStatus::issueDate));
+        return statuses;
+    }
+
+    @Override
+    public int accrueFines(FinePolicy policy, LocalDate asOf) {
+        int[] updated = new int[1];
+        lock.writeLock().lock();
+        try {
+            openLoansByStudent.forEachValue(open -> {
+                for (Loan loan : open) {
+                    if (!asOf.equals(loan.fineAccruedOn)) {
+                        loan.fine = policy.fineFor(policy.daysKept(loan.issueDate, asOf));
+                        loan.fineAccruedOn = asOf;
+                        updated[0]++;
+                    }
+                }
+            });
+            if (updated[0] > 0) {
+                // One change for all open loans, like ChangeLog.loansAccrued - not one per loan
+                changes.add(new Change(++revision, true, ChangeLog.ALL_OPEN_LOANS));
+                finesRevision = revision;
+                trimChanges();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return updated[0];
+    }
+
+    // === REPORTS ===
+
+    // Same rows and order as ReportExporter. The rows are taken under the read lock, then written
+    // with it released, so a slow disk never holds up issues and returns.
+    @Override
+    public ExportSummary exportReport(ReportType report, Path file, Consumer<ExportSummary> progressListener,
+                                      BooleanSupplier cancelled) throws IOException {
+        long start = System.nanoTime();
+        List<List<String>> rows = reportRows(report, FinePolicy.current(), LocalDate.now());
+        long rowsWritten = 0;
+        boolean stopped = false;
+
+        try (DelimitedFileWriter writer = new DelimitedFileWriter(file)) {
+            writer.writeRecord(report.getColumns());
+            for (List<String> row : rows) {
+                if (cancelled.getAsBoolean()) {
+                    stopped = true;
+                    break;
+                }
+                writer.writeRecord(row);
+                if (++rowsWritten % ReportExporter.PROGRESS_INTERVAL == 0 && progressListener != null) {
+                    progressListener.accept(new ExportSummary(report, rowsWritten, rows.size(),
+                            System.nanoTime() - start, false));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+
+        if (stopped) {
+            Files.deleteIfExists(file);
+        }
+        ExportSummary summary = new ExportSummary(report, rowsWritten, rows.size(), System.nanoTime() - start, stopped);
+        if (progressListener != null) {
+            progressListener.accept(summary);
+        }
+        return summary;
+    }
+
+    private List<List<String>> reportRows(ReportType report, FinePolicy policy, LocalDate today) {
+        LocalDate overdueBefore = today.minusDays(policy.loanDays());
+        List<Loan> selected = new ArrayList<>();
+        List<List<String>> rows = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            loans.forEachValue(loan -> {
+                boolean wanted = switch (report) {
+                    case OVERDUE_LOANS -> loan.returnDate == null && loan.issueDate.isBefore(overdueBefore);
+                    case LOANS_BY_LIBRARIAN -> true;
+                    case FINES_OUTSTANDING -> loan.fine > 0;
+                };
+                if (wanted) {
+                    selected.add(loan);
+                }
+            });
+            Comparator<Loan> order = switch (report) {
+                case OVERDUE_LOANS -> Comparator.comparing(loan -> loan.issueDate);
+                case LOANS_BY_LIBRARIAN -> Comparator.comparingInt(loan -> loan.librarianId);
+                case FINES_OUTSTANDING -> Comparator.comparingInt(loan -> loan.studentId);
+            };
+            selected.sort(order.thenComparingInt(loan -> loan.id));
+            for (Loan loan : selected) {
+                rows.add(reportRow(report, loan, policy, today));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return rows;
+    }
+
+    // One CSV record in the column order of ReportType
+    private List<String> reportRow(ReportType report, Loan loan, FinePolicy policy, LocalDate today) {
+        Account<Student> student = students.get(loan.studentId);
+        Account<Librarian> librarian = librarians.get(loan.librarianId);
+        Book book = books.get(loan.bookId);
+        String studentName = student == null ? null : student.profile.getName();
+        String librarianName = librarian == null ? null : librarian.profile.getName();
+        String title = book == null ? null : book.getTitle();
+        String returnDate = loan.returnDate == null ? null : loan.returnDate.toString();
+        return switch (report) {
+            case OVERDUE_LOANS -> Arrays.asList(
+                    String.valueOf(loan.id),
+                    String.valueOf(loan.studentId),
+                    studentName,
+                    String.valueOf(loan.bookId),
+                    title,
+                    loan.issueDate.toString(),
+                    policy.dueDate(loan.issueDate).toString(),
+                    String.valueOf(policy.daysLate(policy.daysKept(loan.issueDate, today))),
+                    String.valueOf(loan.fine),
+                    librarianName);
+            case LOANS_BY_LIBRARIAN -> Arrays.asList(
+                    String.valueOf(loan.librarianId),
+                    librarianName,
+                    String.valueOf(loan.id),
+                    String.valueOf(loan.studentId),
+                    studentName,
+                    String.valueOf(loan.bookId),
+                    title,
+                    loan.issueDate.toString(),
+                    returnDate,
+                    String.valueOf(loan.fine));
+            case FINES_OUTSTANDING -> Arrays.asList(
+                    String.valueOf(loan.studentId),
+                    studentName,
+                    String.valueOf(loan.id),
+                    String.valueOf(loan.bookId),
+                    title,
+                    loan.issueDate.toString(),
+                    returnDate,
+                    loan.returnDate == null ? "OPEN" : "RETURNED",
+                    String.valueOf(loan.fine));
+        };
+    }
+
+    // === CHANGE TRACKING ===
+
+    @Override
+    public long getChangeRevision() {
+        lock.readLock().lock();
+        try {
+            return revision;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public BookChanges getBookChanges(long sinceRevision) {
+        Map<Integer, Book> changed = new LinkedHashMap<>();   // Current state per book, null once removed
+        long latest;
+        lock.readLock().lock();
+        try {
+            latest = Math.max(sinceRevision, revision);
+            List<Change> since = changesSince(sinceRevision);
+            if (since == null || since.size() > ChangeLog.MAX_CHANGES) {
+                return new BookChanges(revision, List.of(), List.of(), true);
+            }
+            for (Change change : since) {
+                if (!change.loan()) {
+                    Book book = books.get(change.id());
+                    changed.put(change.id(), book == null ? null : copy(book));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Book> updated = new ArrayList<>();
+        List<Integer> removed = new ArrayList<>();
+        changed.forEach((bookId, book) -> {
+            if (book == null) {
+                removed.add(bookId);
+            } else {
+                updated.add(book);
+            }
+        });
+        return new BookChanges(latest, updated, removed, false);
+    }
+
+    @Override
+    public LoanChanges getLoanChanges(long sinceRevision) {
+        Map<Integer, IssuedBookRow> changed = new LinkedHashMap<>();   // Current state per loan, null once closed
+        long latest;
+        lock.readLock().lock();
+        try {
+            latest = Math.max(sinceRevision, revision);
+            List<Change> since = changesSince(sinceRevision);
+            if (since == null || since.size() > ChangeLog.MAX_CHANGES) {
+                return new LoanChanges(revision, List.of(), List.of(), true);
+            }
+            for (Change change : since) {
+                if (change.loan() && change.id() == ChangeLog.ALL_OPEN_LOANS) {
+                    return new LoanChanges(revision, List.of(), List.of(), true);   // Fines accrued on every open loan
+                }
+                if (change.loan()) {
+                    Loan loan = activeLoans.get(change.id());
+                    changed.put(change.id(), loan == null ? null : issuedBookRow(loan));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<IssuedBookRow> open = new ArrayList<>();
+        List<Integer> closed = new ArrayList<>();
+        changed.forEach((issueId, row) -> {
+            if (row == null) {
+                closed.add(issueId);
+            } else {
+                open.add(row);
+            }
+        });
+        return new LoanChanges(latest, open, closed, false);
+    }
+
+    @Override
+    public long getStudentLoansRevision(int studentId) {
+        lock.readLock().lock();
+        try {
+            return Math.max(studentLoanRevisions.get(studentId, 0), finesRevision);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int pruneChanges() {
+        return 0;   // Trimmed as changes are added
+    }
+
+    // === HELPERS - callers hold the lock ===
+
+    private void bookChanged(int bookId) {
+        changes.add(new Change(++revision, false, bookId));
+        trimChanges();
+    }
+
+    private void loanChanged(Loan loan) {
+        changes.add(new Change(++revision, true, loan.id));
+        studentLoanRevisions.put(loan.studentId, revision);
+        trimChanges();
+    }
+
+    // A reader more than MAX_CHANGES behind reloads anyway, so only the newest MAX_CHANGES
+    // are kept - trimmed in batches, not on every change
+    private void trimChanges() {
+        if (changes.size() > 2 * ChangeLog.MAX_CHANGES) {
+            changes.subList(0, changes.size() - ChangeLog.MAX_CHANGES).clear();
+        }
+    }
+
+    // Revisions are numbered from 1 without gaps, so the changes after r start at index
+    // r minus the trimmed ones - null if some of them were trimmed
+    private List<Change> changesSince(long sinceRevision) {
+        long trimmed = revision - changes.size();
+        if (sinceRevision < trimmed) {
+            return null;
+        }
+        int from = (int) Math.min(changes.size(), sinceRevision - trimmed);
+        return changes.subList(from, changes.size());
+    }
+
+    private void addLibrarianIfAbsent(Librarian librarian) {
+        lock.writeLock().lock();
+        try {
+            addLibrarianIfAbsentLocked(librarian);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addLibrarianIfAbsentLocked(Librarian librarian) {
+        if (!librarians.containsKey(librarian.getLibrarianId())) {
+            librarians.put(librarian.getLibrarianId(), new Account<>(
+                    new Librarian(librarian.getLibrarianId(), librarian.getName()),
+                    String.valueOf(librarian.getLibrarianId())));
+        }
+    }
+
+    // Size of the student's open-loan list - the counterpart of students.open_loans
+    private int openLoanCount(int studentId) {
+        List<Loan> open = openLoansByStudent.get(studentId);
+        return open == null ? 0 : open.size();
+    }
+
+    private boolean hasLoans(int bookId) {
+        boolean[] found = new boolean[1];
+        loans.forEachValue(loan -> found[0] |= loan.bookId == bookId);
+        return found[0];
+    }
+
+    // Book IDs in ascending order, rebuilt after the set of books changed.
+    // Readers may rebuild it concurrently - they all compute the same array.
+    private int[] sortedBookIds() {
+        int[] ids = sortedBookIds;
+        if (ids == null) {
+            ids = books.sortedKeys();
+            sortedBookIds = ids;
+        }
+        return ids;
+    }
+
+    private static Book copy(Book book) {
+        return new Book(book.getBookId(), book.getTitle(), book.getPublisher(), book.getEdition(), book.getCopies(),
+                book.getVersion());
+    }
+
+    private static Student copy(Student student) {
+        return new Student(student.getStudentId(), student.getName(), student.getDepartment(), student.getCourse());
+    }
+}
@@ -0,0 +1,10 @@
+package librarysystem;
+
+// Possible outcomes of issuing a book
+public enum IssueOutcome {
+    ISSUED,             // Issue record created and one copy taken from stock
+    NO_COPIES,          // Book exists but no copies are left
+    LOAN_LIMIT_REACHED, // Student has as many open loans as LoanLimitPolicy allows - return one first
+    UNKNOWN_BOOK,       // No book with that ID
+    ERROR               // Database error - nothing was changed
+}
@@ -0,0 +1,9 @@
+package librarysystem;
+
+// Result of an issue attempt - book is the catalog entry after the issue (null for UNKNOWN_BOOK or ERROR)
+public record IssueResult(IssueOutcome outcome, Book book) {
+
+    public boolean isIssued() {
+        return outcome == IssueOutcome.ISSUED;
+    }
+}
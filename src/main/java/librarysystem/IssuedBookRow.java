@@ -0,0 +1,18 @@
+package librarysystem;
+
+import java.time.LocalDate;
+
+// One open loan as listed in the librarian's issued books view - fine as stored by the last accrual run
+public record IssuedBookRow(int issueId, String studentName, String bookTitle, LocalDate issueDate,
+                            String librarianName, int fine) {
+
+    @Override
+    public String toString() {
+        return "Issue ID: " + issueId +
+                ", Student: " + studentName +
+                ", Book: " + bookTitle +
+                ", Issue Date: " + issueDate +
+                ", Librarian: " + librarianName +
+                (fine > 0 ? ", Fine: ₹" + fine : "");
+    }
+}
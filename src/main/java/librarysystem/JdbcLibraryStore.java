@@ -0,0 +1,199 @@
+package librarysystem;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+// LibraryStore backed by the MySQL database - every call goes to DatabaseManager
+public class JdbcLibraryStore implements LibraryStore {
+
+    @Override
+    public boolean testConnection() {
+        return DatabaseManager.testConnection();
+    }
+
+    @Override
+    public void initialize() {
+        DatabaseManager.initializeDatabase();
+    }
+
+    @Override
+    public void shutdown() {
+        DatabaseManager.shutdown();
+    }
+
+    // === BOOKS ===
+
+    @Override
+    public boolean addBook(Book book) {
+        return DatabaseManager.addBook(book);
+    }
+
+    @Override
+    public Book getBook(int bookId) {
+        return DatabaseManager.getBook(bookId);
+    }
+
+    @Override
+    public List<Book> getAllBooks() {
+        return DatabaseManager.getAllBooks();
+    }
+
+    @Override
+    public boolean forEachBook(Consumer<Book> consumer) {
+        return DatabaseManager.forEachBook(consumer);
+    }
+
+    @Override
+    public List<Book> getBooksPage(int afterBookId, int pageSize) {
+        return DatabaseManager.getBooksPage(afterBookId, pageSize);
+    }
+
+    @Override
+    public SearchResult searchBooks(String query, int offset, int pageSize) {
+        return DatabaseManager.searchBooks(query, offset, pageSize);
+    }
+
+    @Override
+    public BookUpdateResult updateBookStock(int bookId, int newStock, int expectedVersion) {
+        return DatabaseManager.updateBookStock(bookId, newStock, expectedVersion);
+    }
+
+    @Override
+    public BookUpdateResult updateBookDetails(int bookId, String title, String publisher, String edition, int copies,
+                                              int expectedVersion) {
+        return DatabaseManager.updateBookDetails(bookId, title, publisher, edition, copies, expectedVersion);
+    }
+
+    @Override
+    public boolean removeBook(int bookId) {
+        return DatabaseManager.removeBook(bookId);
+    }
+
+    @Override
+    public ImportSummary importBooks(Path file, Consumer<ImportSummary> progressListener)
+            throws IOException, SQLException {
+        return new CatalogImporter().importBooks(file, progressListener);
+    }
+
+    // === STUDENTS ===
+
+    @Override
+    public boolean addStudent(Student student) {
+        return DatabaseManager.addStudent(student);
+    }
+
+    @Override
+    public boolean addNewStudent(int studentId, String name, String department, String course) {
+        return DatabaseManager.addNewStudent(studentId, name, department, course);
+    }
+
+    @Override
+    public boolean updateStudentPassword(int studentId, String newPassword) {
+        return DatabaseManager.updateStudentPassword(studentId, newPassword);
+    }
+
+    @Override
+    public Student authenticateStudent(int studentId, String password) {
+        return DatabaseManager.authenticateStudent(studentId, password);
+    }
+
+    @Override
+    public ImportSummary importStudents(Path file, boolean dryRun, Consumer<ImportSummary> progressListener)
+            throws IOException, SQLException {
+        return new StudentRosterImporter().importStudents(file, dryRun, progressListener);
+    }
+
+    // === LIBRARIANS ===
+
+    @Override
+    public boolean addLibrarian(Librarian librarian) {
+        return DatabaseManager.addLibrarian(librarian);
+    }
+
+    @Override
+    public boolean updateLibrarianPassword(int librarianId, String newPassword) {
+        return DatabaseManager.updateLibrarianPassword(librarianId, newPassword);
+    }
+
+    @Override
+    public Librarian authenticateLibrarian(int librarianId, String password) {
+        return DatabaseManager.authenticateLibrarian(librarianId, password);
+    }
+
+    // === ISSUE RECORDS ===
+
+    @Override
+    public IssueResult issueBook(Student student, int bookId, Librarian librarian) {
+        return DatabaseManager.issueBookAtomically(student, bookId, librarian);
+    }
+
+    @Override
+    public ReturnResult returnBook(int studentId, int bookId) {
+        return DatabaseManager.returnBookAtomically(studentId, bookId);
+    }
+
+    @Override
+    public boolean hasIssuedBook(int studentId) {
+        return DatabaseManager.hasIssuedBook(studentId);
+    }
+
+    @Override
+    public List<IssuedBookRow> getIssuedBooks() {
+        return DatabaseManager.getIssuedBooks();
+    }
+
+    @Override
+    public List<IssuedBookRow> getIssuedBooksPage(int afterIssueId, int pageSize) {
+        return DatabaseManager.getIssuedBooksPage(afterIssueId, pageSize);
+    }
+
+    @Override
+    public List<LoanStatus> getStudentLoans(int studentId) {
+        return DatabaseManager.getStudentLoans(studentId);
+    }
+
+    @Override
+    public int accrueFines(FinePolicy policy, LocalDate asOf) {
+        return DatabaseManager.accrueFines(policy, asOf);
+    }
+
+    // === REPORTS ===
+
+    @Override
+    public ExportSummary exportReport(ReportType report, Path file, Consumer<ExportSummary> progressListener,
+                                      BooleanSupplier cancelled) throws IOException, SQLException {
+        return new ReportExporter().export(report, file, progressListener, cancelled);
+    }
+
+    // === CHANGE TRACKING ===
+
+    @Override
+    public long getChangeRevision() {
+        return DatabaseManager.getChangeRevision();
+    }
+
+    @Override
+    public BookChanges getBookChanges(long sinceRevision) {
+        return DatabaseManager.getBookChanges(sinceRevision);
+    }
+
+    @Override
+    public LoanChanges getLoanChanges(long sinceRevision) {
+        return DatabaseManager.getLoanChanges(sinceRevision);
+    }
+
+    @Override
+    public long getStudentLoansRevision(int studentId) {
+        return DatabaseManager.getStudentLoansRevision(studentId);
+    }
+
+    @Override
+    public int pruneChanges() {
+        return DatabaseManager.pruneChanges();
+    }
+}
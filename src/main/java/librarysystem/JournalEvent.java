@@ -0,0 +1,19 @@
+package librarysystem;
+
+import java.time.Instant;
+
+// One entry of the EventJournal. IDs that do not apply to the type are 0 - see JournalEventType
+// for what value and extra hold. The librarian is 0 for kiosk and API self-service.
+public record JournalEvent(long sequence, long timestampMillis, JournalEventType type,
+                           int studentId, int bookId, int librarianId, long value, int extra) {
+
+    public Instant timestamp() {
+        return Instant.ofEpochMilli(timestampMillis);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %s %s student=%d book=%d librarian=%d value=%d extra=%d",
+                sequence, timestamp(), type, studentId, bookId, librarianId, value, extra);
+    }
+}
@@ -0,0 +1,41 @@
+package librarysystem;
+
+// Kinds of event in the EventJournal, with what the record fields hold for each.
+// The code is what the journal stores - add new kinds at the end and never reuse a code.
+public enum JournalEventType {
+    BOOK_ISSUED(1),                 // student, book, librarian; value = copies left
+    BOOK_RETURNED(2),               // student, book, librarian; value = fine, extra = days kept
+    BOOK_ADDED(3),                  // book; value = copies
+    BOOK_REMOVED(4),                // book
+    STOCK_CHANGED(5),               // book; value = copies, extra = version
+    BOOK_UPDATED(6),                // book; value = copies, extra = version - title, publisher or edition changed
+    STUDENT_ADDED(7),               // student - also when an existing student's details were updated
+    STUDENT_PASSWORD_CHANGED(8),    // student
+    LIBRARIAN_ADDED(9),             // librarian - also when an existing librarian's name was updated
+    LIBRARIAN_PASSWORD_CHANGED(10), // librarian
+    BOOKS_IMPORTED(11),             // value = books inserted
+    STUDENTS_IMPORTED(12);          // value = students inserted, extra = students updated
+
+    private static final JournalEventType[] BY_CODE = new JournalEventType[16];
+
+    static {
+        for (JournalEventType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final int code;
+
+    JournalEventType(int code) {
+        this.code = code;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    // Type stored under the code - null for a code this version does not know
+    public static JournalEventType fromCode(int code) {
+        return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
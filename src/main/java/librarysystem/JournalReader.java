@@ -0,0 +1,174 @@
+package librarysystem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Reads the EventJournal front to back, segment by segment, for replay and analytics.
+// It can run while the library is appending: it stops at the last complete record, at a torn
+// record or at a gap in the sequence, whichever comes first.
+//
+// Summary of a journal:        java -cp target/classes librarysystem.JournalReader [directory]
+// Every event, one per line:   java -cp target/classes librarysystem.JournalReader [directory] --events
+public final class JournalReader {
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private JournalReader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 && !args[0].startsWith("--") ? args[0]
+                : System.getProperty("library.journal.dir", "journal"));
+        boolean printEvents = List.of(args).contains("--events");
+
+        Map<JournalEventType, Long> counts = new EnumMap<>(JournalEventType.class);
+        JournalEvent[] firstAndLast = new JournalEvent[2];
+        long[] fines = new long[1];
+        long read = forEach(directory, 1, event -> {
+            if (printEvents) {
+                System.out.println(event);
+            }
+            counts.merge(event.type(), 1L, Long::sum);
+            if (event.type() == JournalEventType.BOOK_RETURNED) {
+                fines[0] += event.value();
+            }
+            if (firstAndLast[0] == null) {
+                firstAndLast[0] = event;
+            }
+            firstAndLast[1] = event;
+        });
+
+        if (read == 0) {
+            System.out.println("No events in " + directory.toAbsolutePath());
+            return;
+        }
+        System.out.printf("%,d events in %s, #%d (%s) to #%d (%s)%n", read, directory.toAbsolutePath(),
+                firstAndLast[0].sequence(), firstAndLast[0].timestamp(),
+                firstAndLast[1].sequence(), firstAndLast[1].timestamp());
+        counts.forEach((type, count) -> System.out.printf("  %-28s %,12d%n", type, count));
+        System.out.printf("  Fines charged on returns: %,d%n", fines[0]);
+    }
+
+    // Pass every event from fromSequence on to the consumer, in sequence order - returns how many.
+    // Events of a type this version does not know are skipped.
+    public static long forEach(Path directory, long fromSequence, Consumer<JournalEvent> consumer) throws IOException {
+        List<Path> segments = segments(directory);
+        // Start in the last segment that begins at or before fromSequence
+        int first = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            if (firstSequence(segments.get(i)) <= fromSequence) {
+                first = i;
+            }
+        }
+
+        long count = 0;
+        long expected = -1;
+        for (int i = first; i < segments.size(); i++) {
+            Path file = segments.get(i);
+            long segmentStart = firstSequence(file);
+            if (expected != -1 && segmentStart != expected) {
+                break;   // Gap - events in between are missing
+            }
+            expected = segmentStart;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size < EventJournal.HEADER_SIZE) {
+                    break;
+                }
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (!isValidHeader(segment, file)) {
+                    throw new IOException(file + " is not a journal segment of this version");
+                }
+                int position = EventJournal.HEADER_SIZE;
+                while (position + EventJournal.RECORD_SIZE <= size && isValidRecord(segment, position, expected)) {
+                    JournalEvent event = decode(segment, position);
+                    if (event.sequence() >= fromSequence && event.type() != null) {
+                        consumer.accept(event);
+                        count++;
+                    }
+                    position += EventJournal.RECORD_SIZE;
+                    expected++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // === SEGMENT FILES ===
+
+    // Segment files of the directory, oldest first
+    static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(JournalReader::isSegment).forEach(segments::add);
+        }
+        segments.sort(Comparator.comparingLong(JournalReader::firstSequence));
+        return segments;
+    }
+
+    static String segmentName(long firstSequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+    }
+
+    static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)
+                && name.length() == segmentName(0).length()
+                && name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())
+                        .chars().allMatch(Character::isDigit);
+    }
+
+    // === RECORDS ===
+
+    static boolean isValidHeader(ByteBuffer segment, Path file) {
+        return segment.getLong(0) == EventJournal.MAGIC
+                && segment.getInt(8) == EventJournal.FORMAT_VERSION
+                && segment.getInt(12) == EventJournal.RECORD_SIZE
+                && segment.getLong(16) == firstSequence(file);
+    }
+
+    // A complete record with the expected sequence - false for free space, a torn record or a stale one
+    static boolean isValidRecord(ByteBuffer segment, int position, long expectedSequence) {
+        if (segment.getInt(position + EventJournal.TYPE_OFFSET) == 0
+                || segment.getLong(position + EventJournal.SEQUENCE_OFFSET) != expectedSequence) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(segment.slice(position + EventJournal.TYPE_OFFSET,
+                EventJournal.RECORD_SIZE - EventJournal.TYPE_OFFSET));
+        return (int) crc.getValue() == segment.getInt(position + EventJournal.CRC_OFFSET);
+    }
+
+    private static JournalEvent decode(ByteBuffer segment, int position) {
+        return new JournalEvent(
+                segment.getLong(position + EventJournal.SEQUENCE_OFFSET),
+                segment.getLong(position + EventJournal.TIMESTAMP_OFFSET),
+                JournalEventType.fromCode(segment.getInt(position + EventJournal.TYPE_OFFSET)),
+                segment.getInt(position + EventJournal.STUDENT_OFFSET),
+                segment.getInt(position + EventJournal.BOOK_OFFSET),
+                segment.getInt(position + EventJournal.LIBRARIAN_OFFSET),
+                segment.getLong(position + EventJournal.VALUE_OFFSET),
+                segment.getInt(position + EventJournal.EXTRA_OFFSET));
+    }
+}
@@ -1,205 +1,259 @@
 package librarysystem;
 
-import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
+// Business operations of the library. Nothing here prints - every method returns
+// what happened and the console menu or the GUI decides how to show it.
+// Storage goes through a LibraryStore - the one installed in LibraryStores unless one is passed in.
+// Every change that succeeds is appended to the EventJournal after the store has made it.
 public class Library {
-    private static final int MAX_ISSUE_DAYS = 7;  // Maximum days to keep book
-    private static final int FINE_PER_DAY = 10;   // Fine per day after due date
+    // adjustBookStock gives up after this many conflicting writes in a row
+    static final int MAX_STOCK_RETRIES = 5;
 
-    // Add book - stores in database SILENTLY
-    public void addBook(Book book) {
-        DatabaseManager.addBook(book); // Add book to database - NO PRINT MESSAGES
+    private final LibraryStore store;
+    private final EventJournal journal;
+
+    public Library() {
+        this(LibraryStores.current());
+    }
+
+    public Library(LibraryStore store) {
+        this(store, EventJournal.current());
+    }
+
+    public Library(LibraryStore store, EventJournal journal) {
+        this.store = store;
+        this.journal = journal;
+    }
+
+    // Add book - INSERT IGNORE, so an existing ID is left as it is and false is returned
+    public boolean addBook(Book book) {
+        boolean added = store.addBook(book);
+        if (added) {
+            journal.append(JournalEventType.BOOK_ADDED, 0, book.getBookId(), 0, book.getCopies(), 0);
+        }
+        return added;
+    }
+
+    // Bulk import books from a CSV/TSV file - progress listener is called after every committed chunk
+    public ImportSummary importBooks(Path file, Consumer<ImportSummary> progressListener)
+            throws IOException, SQLException {
+        ImportSummary summary = store.importBooks(file, progressListener);
+        if (summary.inserted() > 0) {
+            journal.append(JournalEventType.BOOKS_IMPORTED, 0, 0, 0, summary.inserted(), 0);
+        }
+        return summary;
     }
 
-    // Remove book - removes from database
-    public void removeBook(int bookId) {
-        boolean success = DatabaseManager.removeBook(bookId);
-        if (success) {
-            System.out.println("✅ Book with ID " + bookId + " removed from database.");
-        } else {
-            System.out.println("❌ Book not found in database or removal failed!");
+    // Bulk enroll students from a CSV/TSV roster - dry run validates and counts without writing
+    public ImportSummary importStudents(Path file, boolean dryRun, Consumer<ImportSummary> progressListener)
+            throws IOException, SQLException {
+        ImportSummary summary = store.importStudents(file, dryRun, progressListener);
+        if (!dryRun && summary.inserted() + summary.updated() > 0) {
+            journal.append(JournalEventType.STUDENTS_IMPORTED, 0, 0, 0, summary.inserted(),
+                    (int) Math.min(summary.updated(), Integer.MAX_VALUE));
         }
+        return summary;
     }
 
-    // Show all books - fetches from database
-    public void showBooks() {
-        List<Book> books = DatabaseManager.getAllBooks();
-        if (books.isEmpty()) {
-            System.out.println("📚 No books available in library database.");
-            return;
+    // Remove book - false if it was not found or the delete failed
+    public boolean removeBook(int bookId) {
+        boolean removed = store.removeBook(bookId);
+        if (removed) {
+            journal.append(JournalEventType.BOOK_REMOVED, 0, bookId, 0, 0, 0);
         }
-        System.out.println("\n=== BOOKS IN LIBRARY ===");
-        books.forEach(System.out::println);
+        return removed;
+    }
+
+    // Whole catalog in one list - prefer forEachBook or getBooksPage for large catalogs
+    public List<Book> getAllBooks() {
+        return store.getAllBooks();
+    }
+
+    // Stream all books from database row by row - false on database error
+    public boolean forEachBook(Consumer<Book> consumer) {
+        return store.forEachBook(consumer);
+    }
+
+    // One page of books ordered by ID, after the last ID of the previous page (0 for the first)
+    public List<Book> getBooksPage(int afterBookId, int pageSize) {
+        return store.getBooksPage(afterBookId, pageSize);
+    }
+
+    // Ranked search over title and publisher - offset/pageSize select the page of results
+    public SearchResult searchBooks(String query, int offset, int pageSize) {
+        return store.searchBooks(query, offset, pageSize);
+    }
+
+    // Stream a report to a CSV file - progress listener is called every few thousand rows,
+    // cancelled is polled on every row and a cancelled export leaves no file behind
+    public ExportSummary exportReport(ReportType report, Path file, Consumer<ExportSummary> progressListener,
+                                      BooleanSupplier cancelled) throws IOException, SQLException {
+        return store.exportReport(report, file, progressListener, cancelled);
+    }
+
+    // Latest change revision - note it before loading a view in full
+    public long getChangeRevision() {
+        return store.getChangeRevision();
+    }
+
+    // Books changed after the revision, to apply to a loaded view
+    public BookChanges getBookChanges(long sinceRevision) {
+        return store.getBookChanges(sinceRevision);
+    }
+
+    // Loans changed after the revision, to apply to a loaded view
+    public LoanChanges getLoanChanges(long sinceRevision) {
+        return store.getLoanChanges(sinceRevision);
+    }
+
+    // Moves whenever one of the student's loans changes
+    public long getStudentLoansRevision(int studentId) {
+        return store.getStudentLoansRevision(studentId);
+    }
+
+    // All open loans - fetched from database
+    public List<IssuedBookRow> getIssuedBooks() {
+        return store.getIssuedBooks();
     }
 
-    // Show issued books - fetches from database
-    public void showIssuedBooks() {
-        DatabaseManager.displayIssuedBooks();
+    // One page of open loans for the Issued Books tab - pass the last issue ID of the previous page
+    public List<IssuedBookRow> getIssuedBooksPage(int afterIssueId, int pageSize) {
+        return store.getIssuedBooksPage(afterIssueId, pageSize);
     }
 
     // === NEW METHODS FOR BOOK MANAGEMENT ===
 
-    // Update book stock only
-    public void updateBookStock(int bookId, int newStock) {
-        Book book = DatabaseManager.getBook(bookId);
-        if (book == null) {
-            System.out.println("❌ Book with ID " + bookId + " not found!");
-            return;
-        }
+    // Single book, e.g. to show before editing - null if not found
+    public Book getBook(int bookId) {
+        return store.getBook(bookId);
+    }
 
-        boolean success = DatabaseManager.updateBookStock(bookId, newStock);
-        if (success) {
-            System.out.println("✅ Stock updated successfully!");
-            System.out.println("📖 " + book.getTitle() + " stock changed to: " + newStock + " copies");
-        } else {
-            System.out.println("❌ Failed to update stock!");
-        }
+    // Set book stock to a value the user typed after seeing the book at expectedVersion -
+    // CONFLICT if it changed meanwhile, so the user can look again instead of overwriting
+    public BookUpdateResult updateBookStock(int bookId, int newStock, int expectedVersion) {
+        BookUpdateResult result = store.updateBookStock(bookId, newStock, expectedVersion);
+        journalBookUpdate(JournalEventType.STOCK_CHANGED, result);
+        return result;
+    }
+
+    // Update complete book details, same version check as updateBookStock
+    public BookUpdateResult updateBookDetails(int bookId, String title, String publisher, String edition, int copies,
+                                              int expectedVersion) {
+        BookUpdateResult result = store.updateBookDetails(bookId, title, publisher, edition, copies, expectedVersion);
+        journalBookUpdate(JournalEventType.BOOK_UPDATED, result);
+        return result;
     }
 
-    // Update complete book details
-    public void updateBookDetails(int bookId, String title, String publisher, String edition, int copies) {
-        boolean success = DatabaseManager.updateBookDetails(bookId, title, publisher, edition, copies);
-        if (success) {
-            System.out.println("✅ Book details updated successfully!");
-            System.out.println("📖 Updated: " + title + " by " + publisher + ", Edition: " + edition + ", Stock: " + copies);
-        } else {
-            System.out.println("❌ Failed to update book details!");
+    // Add (positive change) or remove (negative) copies. A relative change stays valid whatever
+    // happened meanwhile, so on a conflict the book is read again and the change retried.
+    public BookUpdateResult adjustBookStock(int bookId, int change) {
+        for (int attempt = 0; attempt < MAX_STOCK_RETRIES; attempt++) {
+            Book book = store.getBook(bookId);
+            if (book == null) {
+                return new BookUpdateResult(BookUpdateOutcome.NOT_FOUND, null);
+            }
+            int newStock = book.getCopies() + change;
+            if (newStock < 0) {
+                return new BookUpdateResult(BookUpdateOutcome.NOT_ENOUGH_COPIES, book);
+            }
+            BookUpdateResult result = updateBookStock(bookId, newStock, book.getVersion());
+            if (result.outcome() != BookUpdateOutcome.CONFLICT) {
+                return result;
+            }
         }
+        return new BookUpdateResult(BookUpdateOutcome.CONFLICT, null);
     }
 
-    // Display book details for editing
-    public void showBookForEdit(int bookId) {
-        DatabaseManager.displayBookForEdit(bookId);
+    private void journalBookUpdate(JournalEventType type, BookUpdateResult result) {
+        if (result.isUpdated()) {
+            Book book = result.book();
+            journal.append(type, 0, book.getBookId(), 0, book.getCopies(), book.getVersion());
+        }
     }
 
     // === NEW METHODS FOR PASSWORD MANAGEMENT ===
 
     // Change student password
-    public void changeStudentPassword(int studentId, String newPassword) {
-        boolean success = DatabaseManager.updateStudentPassword(studentId, newPassword);
-        if (success) {
-            System.out.println("✅ Password changed successfully!");
-            System.out.println("🔐 Your new password has been updated in the database.");
-        } else {
-            System.out.println("❌ Failed to change password!");
+    public boolean changeStudentPassword(int studentId, String newPassword) {
+        boolean changed = store.updateStudentPassword(studentId, newPassword);
+        if (changed) {
+            journal.append(JournalEventType.STUDENT_PASSWORD_CHANGED, studentId, 0, 0, 0, 0);
         }
+        return changed;
     }
 
     // Change librarian password
-    public void changeLibrarianPassword(int librarianId, String newPassword) {
-        boolean success = DatabaseManager.updateLibrarianPassword(librarianId, newPassword);
-        if (success) {
-            System.out.println("✅ Password changed successfully!");
-            System.out.println("🔐 Your new password has been updated in the database.");
-        } else {
-            System.out.println("❌ Failed to change password!");
+    public boolean changeLibrarianPassword(int librarianId, String newPassword) {
+        boolean changed = store.updateLibrarianPassword(librarianId, newPassword);
+        if (changed) {
+            journal.append(JournalEventType.LIBRARIAN_PASSWORD_CHANGED, 0, 0, librarianId, 0, 0);
         }
+        return changed;
     }
 
     // === NEW METHODS FOR STUDENT MANAGEMENT ===
 
-    // Add new student (for librarians)
-    public void addNewStudent(int studentId, String name, String department, String course) {
-        boolean success = DatabaseManager.addNewStudent(studentId, name, department, course);
-        if (success) {
-            System.out.println("✅ New student added successfully!");
-            System.out.println("👨‍🎓 Student: " + name + " (ID: " + studentId + ")");
-            System.out.println("🏫 Department: " + department + ", Course: " + course);
-            System.out.println("🔐 Default password set to: " + studentId);
-        } else {
-            System.out.println("❌ Failed to add student! (Student ID may already exist)");
+    // Add new student (for librarians) - default password is the student ID
+    public boolean addNewStudent(int studentId, String name, String department, String course) {
+        boolean added = store.addNewStudent(studentId, name, department, course);
+        if (added) {
+            journal.append(JournalEventType.STUDENT_ADDED, studentId, 0, 0, 0, 0);
         }
+        return added;
     }
 
-    // Issue book - stores in database with validation
-    public void issueBook(Student student, int bookId, Librarian librarian) {
-        if (DatabaseManager.hasIssuedBook(student.getStudentId())) {
-            System.out.println("❌ Error! " + student.getName() +
-                    " has already issued a book. Return it first!");
-            return;
-        }
-
-        Book book = DatabaseManager.getBook(bookId);
-        if (book == null) {
-            System.out.println("❌ Book with ID " + bookId + " not found in database!");
-            return;
+    // Add student, or update name, department and course of an existing one
+    public boolean addStudent(Student student) {
+        boolean added = store.addStudent(student);
+        if (added) {
+            journal.append(JournalEventType.STUDENT_ADDED, student.getStudentId(), 0, 0, 0, 0);
         }
+        return added;
+    }
 
-        if (book.getCopies() > 0) {
-            DatabaseManager.addStudent(student);
-            DatabaseManager.addLibrarian(librarian);
-
-            boolean issueSuccess = DatabaseManager.issueBook(
-                    student.getStudentId(),
-                    bookId,
-                    librarian.getLibrarianId()
-            );
-
-            if (issueSuccess) {
-                DatabaseManager.updateBookCopies(bookId, book.getCopies() - 1);
-
-                System.out.println("✅ Book issued successfully!");
-                System.out.println("📖 " + book.getTitle() + " by " + book.getPublisher() +
-                        " issued to " + student.getName());
-                System.out.println("📅 Due date: " + LocalDate.now().plusDays(MAX_ISSUE_DAYS));
-            } else {
-                System.out.println("❌ Failed to issue book. Database error occurred!");
-            }
-        } else {
-            System.out.println("❌ Book not available! No copies left in stock.");
+    // Add librarian, or update the name of an existing one - default password is the ID
+    public boolean addLibrarian(Librarian librarian) {
+        boolean added = store.addLibrarian(librarian);
+        if (added) {
+            journal.append(JournalEventType.LIBRARIAN_ADDED, 0, 0, librarian.getLibrarianId(), 0, 0);
         }
+        return added;
     }
 
-    // Return book - UPDATED with real fine calculation from database
-    public void returnBook(Student student, int bookId, Librarian librarian) {
-        Book book = DatabaseManager.getBook(bookId);
-        if (book == null) {
-            System.out.println("❌ Book with ID " + bookId + " not found!");
-            return;
+    // Issue book - one atomic database transaction decides the outcome
+    public IssueResult issueBook(Student student, int bookId, Librarian librarian) {
+        IssueResult result = store.issueBook(student, bookId, librarian);
+        if (result.isIssued()) {
+            journal.append(JournalEventType.BOOK_ISSUED, student.getStudentId(), bookId, librarian.getLibrarianId(),
+                    result.book().getCopies(), 0);
         }
+        return result;
+    }
 
-        // Get actual issue date from database
-        LocalDate issueDate = DatabaseManager.getIssueDate(student.getStudentId(), bookId);
-        if (issueDate == null) {
-            System.out.println("❌ No issued book found for student " + student.getName());
-            return;
+    // Return book - one atomic database transaction closes the loan, stores the fine and restocks
+    public ReturnResult returnBook(Student student, int bookId, Librarian librarian) {
+        ReturnResult result = store.returnBook(student.getStudentId(), bookId);
+        if (result.isReturned()) {
+            journal.append(JournalEventType.BOOK_RETURNED, student.getStudentId(), bookId, librarian.getLibrarianId(),
+                    result.fine(), (int) result.daysKept());
         }
+        return result;
+    }
 
-        // Calculate fine using REAL issue date from database
-        LocalDate today = LocalDate.now();
-        long daysIssued = ChronoUnit.DAYS.between(issueDate, today);
-        int fine = (daysIssued > MAX_ISSUE_DAYS) ? (int) ((daysIssued - MAX_ISSUE_DAYS) * FINE_PER_DAY) : 0;
-
-        // Return book in database with calculated fine
-        boolean returnSuccess = DatabaseManager.returnBook(
-                student.getStudentId(),
-                bookId,
-                fine
-        );
-
-        if (returnSuccess) {
-            DatabaseManager.updateBookCopies(bookId, book.getCopies() + 1);
-
-            System.out.println("✅ Book returned successfully!");
-            System.out.println("📅 Issue date: " + issueDate);
-            System.out.println("📅 Return date: " + today);
-            System.out.println("📊 Total days: " + daysIssued);
-
-            if (fine > 0) {
-                System.out.println("💰 Fine applied: ₹" + fine +
-                        " (Late by " + (daysIssued - MAX_ISSUE_DAYS) + " days)");
-            } else {
-                System.out.println("👍 No fine applied - returned on time!");
-            }
-        } else {
-            System.out.println("❌ Failed to return book. Database error occurred!");
-        }
+    // NEW METHOD: Check fines for student BEFORE returning - one entry per open loan.
+    // Fines are the ones stored by FineAccrualJob, not recomputed here
+    public List<LoanStatus> checkFineForStudent(Student student) {
+        return getStudentLoans(student.getStudentId());
     }
 
-    // NEW METHOD: Check and display fine for student BEFORE returning
-    public void checkFineForStudent(Student student) {
-        DatabaseManager.displayStudentFineStatus(student.getStudentId());
+    // Open loans of a student by ID, e.g. for a librarian looking a student up
+    public List<LoanStatus> getStudentLoans(int studentId) {
+        return store.getStudentLoans(studentId);
     }
 }
@@ -0,0 +1,91 @@
+package librarysystem;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Latency and error metrics of every storage operation, published over JMX:
+//   librarysystem:type=LibraryMetrics             - summary report and resetAll()
+//   librarysystem:type=Operation,name=<operation> - count, errors, throughput, p50/p99/p999/max
+// Operations are timed by MeteredLibraryStore; DatabaseManager reports its SQL errors here.
+// Look up an OperationMetrics once and keep it - recording on it never allocates.
+public final class LibraryMetrics implements LibraryMetricsMBean {
+    private static final String DOMAIN = "librarysystem";
+    private static final ConcurrentHashMap<String, OperationMetrics> OPERATIONS = new ConcurrentHashMap<>();
+    private static final LibraryMetrics INSTANCE = new LibraryMetrics();
+
+    static {
+        register(DOMAIN + ":type=LibraryMetrics", INSTANCE);
+    }
+
+    private LibraryMetrics() {
+    }
+
+    // Metrics of the named operation - created and registered in JMX on first use
+    public static OperationMetrics operation(String name) {
+        OperationMetrics metrics = OPERATIONS.get(name);
+        return metrics != null ? metrics : OPERATIONS.computeIfAbsent(name, LibraryMetrics::create);
+    }
+
+    // Failed call that the caller cannot time itself, e.g. a caught SQLException
+    public static void recordError(String operation) {
+        operation(operation).recordError();
+    }
+
+    // All operations seen so far, by name
+    public static List<OperationMetrics> operations() {
+        List<OperationMetrics> all = new ArrayList<>(OPERATIONS.values());
+        all.sort(Comparator.comparing(OperationMetrics::getName));
+        return all;
+    }
+
+    private static OperationMetrics create(String name) {
+        OperationMetrics metrics = new OperationMetrics(name);
+        register(DOMAIN + ":type=Operation,name=" + name, metrics);
+        return metrics;
+    }
+
+    // Metrics keep working without JMX - a failed registration is only reported
+    private static void register(String objectName, Object mbean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(mbean, name);
+            }
+        } catch (JMException | SecurityException e) {
+            System.err.println("Error registering metrics MBean " + objectName + ": " + e.getMessage());
+        }
+    }
+
+    // === JMX SUMMARY ===
+
+    @Override
+    public String[] getOperationNames() {
+        return operations().stream().map(OperationMetrics::getName).toArray(String[]::new);
+    }
+
+    @Override
+    public String[] getReport() {
+        return operations().stream().map(OperationMetrics::toString).toArray(String[]::new);
+    }
+
+    @Override
+    public long getTotalErrors() {
+        long total = 0;
+        for (OperationMetrics metrics : OPERATIONS.values()) {
+            total += metrics.getErrors();
+        }
+        return total;
+    }
+
+    @Override
+    public void resetAll() {
+        OPERATIONS.values().forEach(OperationMetrics::reset);
+    }
+}
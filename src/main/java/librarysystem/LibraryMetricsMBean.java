@@ -0,0 +1,14 @@
+package librarysystem;
+
+// JMX summary of all operations - per-operation details are in librarysystem:type=Operation,name=...
+public interface LibraryMetricsMBean {
+
+    String[] getOperationNames();
+
+    // One line per operation with calls, errors, throughput and latency percentiles
+    String[] getReport();
+
+    long getTotalErrors();
+
+    void resetAll();
+}
@@ -0,0 +1,134 @@
+package librarysystem;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+// Storage behind Library, AuthService and the GUI: books, students, librarians and issue records.
+// JdbcLibraryStore keeps everything in MySQL through DatabaseManager; InMemoryLibraryStore keeps it
+// in the JVM. LibraryStores picks one at startup. Every implementation must be safe to call from
+// several threads, and must decide issue and return atomically.
+public interface LibraryStore {
+
+    // === LIFECYCLE ===
+
+    // True if the store can serve requests
+    boolean testConnection();
+
+    // Create or upgrade the schema and seed the default accounts and books
+    void initialize();
+
+    // Release connections or memory - call once on application exit
+    void shutdown();
+
+    // === BOOKS ===
+
+    // Add the book unless its ID is taken - true only if a row was inserted,
+    // false for an existing ID or a storage error
+    boolean addBook(Book book);
+
+    // Single book - null if not found
+    Book getBook(int bookId);
+
+    // Whole catalog in one list - empty on a storage error
+    List<Book> getAllBooks();
+
+    // Every book in ID order - false on a storage error
+    boolean forEachBook(Consumer<Book> consumer);
+
+    // Books ordered by ID after the given ID (keyset pagination, 0 for the first page)
+    List<Book> getBooksPage(int afterBookId, int pageSize);
+
+    // Ranked search over title and publisher
+    SearchResult searchBooks(String query, int offset, int pageSize);
+
+    // Both only write if the book is still at expectedVersion (Book.getVersion() when it was read):
+    // CONFLICT if another write got in between, NOT_FOUND if the book is gone
+    BookUpdateResult updateBookStock(int bookId, int newStock, int expectedVersion);
+
+    BookUpdateResult updateBookDetails(int bookId, String title, String publisher, String edition, int copies,
+                                       int expectedVersion);
+
+    // False if the book was not found or still has issue records
+    boolean removeBook(int bookId);
+
+    ImportSummary importBooks(Path file, Consumer<ImportSummary> progressListener) throws IOException, SQLException;
+
+    // === STUDENTS ===
+
+    // Add the student, or update name, department and course if the ID exists
+    boolean addStudent(Student student);
+
+    // Add the student only if the ID is free - default password is the ID
+    boolean addNewStudent(int studentId, String name, String department, String course);
+
+    boolean updateStudentPassword(int studentId, String newPassword);
+
+    // Student whose password matches - null if unknown or wrong password
+    Student authenticateStudent(int studentId, String password);
+
+    ImportSummary importStudents(Path file, boolean dryRun, Consumer<ImportSummary> progressListener)
+            throws IOException, SQLException;
+
+    // === LIBRARIANS ===
+
+    // Add the librarian, or update the name if the ID exists - default password is the ID
+    boolean addLibrarian(Librarian librarian);
+
+    boolean updateLibrarianPassword(int librarianId, String newPassword);
+
+    // Librarian whose password matches - null if unknown or wrong password
+    Librarian authenticateLibrarian(int librarianId, String password);
+
+    // === ISSUE RECORDS ===
+
+    // Issue atomically: only while the student is under their LoanLimitPolicy limit and copies are left
+    IssueResult issueBook(Student student, int bookId, Librarian librarian);
+
+    // Close the open loan atomically, store the fine and put the copy back
+    ReturnResult returnBook(int studentId, int bookId);
+
+    boolean hasIssuedBook(int studentId);
+
+    // All open loans with student, book and librarian names
+    List<IssuedBookRow> getIssuedBooks();
+
+    // Up to pageSize open loans in issue order with an issue ID above afterIssueId (0 for the first page)
+    List<IssuedBookRow> getIssuedBooksPage(int afterIssueId, int pageSize);
+
+    // A student's open loans with their stored fines - days issued are counted up to today
+    List<LoanStatus> getStudentLoans(int studentId);
+
+    // Store the fine of every open loan as of the given day in one pass - loans already accrued
+    // for that day are skipped. Returns the number of loans updated, -1 on a storage error.
+    int accrueFines(FinePolicy policy, LocalDate asOf);
+
+    // === REPORTS ===
+
+    // Stream the report to a CSV file - cancelled is polled while rows are written
+    ExportSummary exportReport(ReportType report, Path file, Consumer<ExportSummary> progressListener,
+                               BooleanSupplier cancelled) throws IOException, SQLException;
+
+    // === CHANGE TRACKING ===
+    // Every change to a book or loan gets a revision that only grows. A view notes the revision
+    // before its full load, then asks only for what changed since.
+
+    // Revision a full load starts from - every change up to it is in the load. -1 on a storage error
+    long getChangeRevision();
+
+    // Books added, updated or removed after the revision
+    BookChanges getBookChanges(long sinceRevision);
+
+    // Loans issued, updated or closed after the revision
+    LoanChanges getLoanChanges(long sinceRevision);
+
+    // Revision of the student's latest loan change - reload their loans when it moves
+    long getStudentLoansRevision(int studentId);
+
+    // Drop change history older than the retention - returns how many changes, -1 on a storage error
+    int pruneChanges();
+}
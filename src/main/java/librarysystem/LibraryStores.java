@@ -0,0 +1,49 @@
+package librarysystem;
+
+// Chooses the LibraryStore at startup and hands it to everything that needs storage.
+// Main and MainApp call install(fromSystemProperty()) before anything else;
+// -Dlibrary.store=memory runs without a database server, the default is jdbc.
+// The store is wrapped in a MeteredLibraryStore unless -Dlibrary.metrics=false.
+public final class LibraryStores {
+    private static volatile LibraryStore current;
+
+    private LibraryStores() {
+    }
+
+    // Store named by -Dlibrary.store (jdbc or memory)
+    public static LibraryStore fromSystemProperty() {
+        return metered(open(System.getProperty("library.store", "jdbc")));
+    }
+
+    public static LibraryStore open(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "jdbc", "mysql" -> new JdbcLibraryStore();
+            case "memory", "in-memory" -> new InMemoryLibraryStore();
+            default -> throw new IllegalArgumentException("Unknown library store '" + name + "' - use jdbc or memory");
+        };
+    }
+
+    // Time every call of the store in LibraryMetrics (JMX) - unless metrics are switched off
+    public static LibraryStore metered(LibraryStore store) {
+        boolean enabled = Boolean.parseBoolean(System.getProperty("library.metrics", "true"));
+        return enabled && !(store instanceof MeteredLibraryStore) ? new MeteredLibraryStore(store) : store;
+    }
+
+    public static void install(LibraryStore store) {
+        current = store;
+    }
+
+    // The installed store - the database store if none was installed
+    public static LibraryStore current() {
+        LibraryStore store = current;
+        if (store == null) {
+            synchronized (LibraryStores.class) {
+                if (current == null) {
+                    current = metered(new JdbcLibraryStore());
+                }
+                store = current;
+            }
+        }
+        return store;
+    }
+}
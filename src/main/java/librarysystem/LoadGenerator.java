@@ -0,0 +1,479 @@
+package librarysystem;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Circulation load test: simulated students and librarians run a seeded mix of catalog browsing
+// (getAllBooks), issues, returns and logins through Library against the configured store, then the
+// tool prints throughput, latency percentiles, and error and conflict counts for each operation.
+// Students issue and return their own books at a kiosk; librarians serve random students at the desk.
+// Every user runs on its own virtual thread and draws its actions from a random generator split off
+// the seed, so the same seed replays the same choices. Timing still decides how they interleave.
+//
+// Settings (-D...):                          default
+//   library.load.students                    200
+//   library.load.librarians                  4
+//   library.load.books                       1000
+//   library.load.copies                      3      copies of each seeded book
+//   library.load.seconds                     60     measured run
+//   library.load.warmupSeconds               10     run first, not measured
+//   library.load.thinkMs                     0      pause between two actions of one user
+//   library.load.seed                        42
+//   library.load.mix                         browse=40,issue=25,return=25,login=10
+//   library.load.writerCheckThreads          32     concurrent change_log writers checked first (database only)
+//
+// On the database, a short check runs first: many writers insert change_log rows at once and every
+// insert must get its own AUTO_INCREMENT revision - a duplicate key there would fail issues and returns.
+//
+// Seeded rows use IDs from BASE_ID upwards. They are kept between runs so a database does not
+// have to be seeded again; every run first returns their open loans and resets the stock.
+//
+// Run against the embedded H2 database:   mvn -P load-test verify
+// Run against a local MySQL database:     mvn -P load-test verify -Dlibrary.db.url=jdbc:mysql://...
+// Run against the in-memory store:        mvn -P load-test verify -Dlibrary.store=memory
+public class LoadGenerator {
+    static final int BASE_ID = 700_000_000;
+    private static final int POSTGRADUATE_EVERY = 5;   // Every fifth student gets the postgraduate loan limit
+    private static final int MAX_ERROR_SAMPLES = 5;
+    private static final int WRITER_CHECK_ROWS = 200;   // Inserts per writer in the change_log check
+
+    // Student self-service is booked to the same system librarian the student dashboard uses
+    private static final Librarian KIOSK_LIBRARIAN = new Librarian(0, "System");
+
+    private enum Operation {
+        BROWSE("getAllBooks"), ISSUE("issueBook"), RETURN("returnBook"), LOGIN("login");
+
+        final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+    }
+
+    // Results of one operation - shared by all simulated users
+    private static final class OperationStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final LongAdder conflicts = new LongAdder();
+    }
+
+    // A seeded student and the books they have out. The lock stands for the student: whoever
+    // issues or returns for them (they themselves or a librarian) holds it for that call.
+    private static final class SimStudent {
+        final Student student;
+        final int loanLimit;
+        final List<Integer> loans = new ArrayList<>();
+        final ReentrantLock lock = new ReentrantLock();   // Not synchronized - it is held across JDBC calls
+
+        SimStudent(Student student) {
+            this.student = student;
+            this.loanLimit = LoanLimitPolicy.current().limitFor(student);
+        }
+    }
+
+    private final Library library;
+    private final int bookCount;
+    private final int copies;
+    private final long thinkMillis;
+    private final Map<Operation, Integer> mix;
+    private final int mixTotal;
+    private final List<SimStudent> students = new ArrayList<>();
+    private final List<Librarian> librarians = new ArrayList<>();
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final List<String> errorSamples = new ArrayList<>();
+    private volatile long measureFrom;
+    private volatile long measureUntil;
+
+    private LoadGenerator(Library library, int bookCount, int copies, long thinkMillis, Map<Operation, Integer> mix) {
+        this.library = library;
+        this.bookCount = bookCount;
+        this.copies = copies;
+        this.thinkMillis = thinkMillis;
+        this.mix = mix;
+        this.mixTotal = mix.values().stream().mapToInt(Integer::intValue).sum();
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int studentCount = Integer.getInteger("library.load.students", 200);
+        int librarianCount = Integer.getInteger("library.load.librarians", 4);
+        int bookCount = Integer.getInteger("library.load.books", 1_000);
+        int copies = Integer.getInteger("library.load.copies", 3);
+        long seconds = Long.getLong("library.load.seconds", 60);
+        long warmupSeconds = Long.getLong("library.load.warmupSeconds", 10);
+        long thinkMillis = Long.getLong("library.load.thinkMs", 0);
+        long seed = Long.getLong("library.load.seed", 42);
+        Map<Operation, Integer> mix = parseMix(System.getProperty("library.load.mix",
+                "browse=40,issue=25,return=25,login=10"));
+        if (studentCount < 1 || librarianCount < 0 || bookCount < 1 || copies < 0 || seconds < 1) {
+            throw new IllegalArgumentException("Need at least one student, one book and one second");
+        }
+
+        // Storage backend - the database unless started with -Dlibrary.store=memory
+        String storeName = System.getProperty("library.store", "jdbc");
+        LibraryStore store = LibraryStores.fromSystemProperty();
+        LibraryStores.install(store);
+        if (!store.testConnection()) {
+            throw new IllegalStateException("Database connection failed");
+        }
+        store.initialize();
+        if (!storeName.trim().toLowerCase().contains("memory")) {
+            checkConcurrentChangeLogWrites(Integer.getInteger("library.load.writerCheckThreads", 32));
+        }
+
+        LoadGenerator load = new LoadGenerator(new Library(store), bookCount, copies, thinkMillis, mix);
+        System.out.printf("Seeding %,d books, %,d students and %,d librarians...%n",
+                bookCount, studentCount, librarianCount);
+        load.seed(studentCount, librarianCount);
+
+        System.out.printf("Running %d s warm-up + %d s measured, seed %d, store %s%n",
+                warmupSeconds, seconds, seed, storeName);
+        long elapsedNanos = load.run(seed, warmupSeconds, seconds);
+        load.returnOpenLoans();
+        load.printReport(elapsedNanos, seed, studentCount, librarianCount);
+        store.shutdown();
+        EventJournal.current().close();
+    }
+
+    // === SETUP ===
+
+    // Every writer inserts change_log rows the way an issue does, then rolls back so nothing stays.
+    // Concurrent inserts must all get distinct revisions - fails the run on the first duplicate key.
+    private static void checkConcurrentChangeLogWrites(int writers) {
+        LongAdder failures = new LongAdder();
+        List<String> samples = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int w = 0; w < writers; w++) {
+                pool.submit(() -> {
+                    for (int i = 0; i < WRITER_CHECK_ROWS; i++) {
+                        try (Connection conn = DatabaseManager.getConnection()) {
+                            conn.setAutoCommit(false);
+                            try {
+                                ChangeLog.loanChanged(conn, BASE_ID, BASE_ID, BASE_ID);
+                            } finally {
+                                conn.rollback();
+                            }
+                        } catch (SQLException | RuntimeException e) {
+                            failures.increment();
+                            if (samples.size() < MAX_ERROR_SAMPLES) {
+                                samples.add(e.toString());
+                            }
+                        }
+                    }
+                });
+            }
+        }
+        if (failures.sum() > 0) {
+            samples.forEach(sample -> System.out.println("  " + sample));
+            throw new IllegalStateException(failures.sum() + " of " + writers * WRITER_CHECK_ROWS
+                    + " concurrent change_log inserts failed");
+        }
+        System.out.printf("Change log check: %,d writers x %,d inserts, no conflicts (%d ms)%n",
+                writers, WRITER_CHECK_ROWS, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Create the seeded rows if missing, return their open loans and reset their stock
+    private void seed(int studentCount, int librarianCount) {
+        for (int i = 0; i < bookCount; i++) {
+            int bookId = BASE_ID + i;
+            library.addBook(new Book(bookId, "Load Test Book " + i, "Load Test Press", "1st", copies));
+        }
+        for (int i = 0; i < studentCount; i++) {
+            boolean postgraduate = i % POSTGRADUATE_EVERY == POSTGRADUATE_EVERY - 1;
+            Student student = new Student(BASE_ID + i, "Load Student " + i, "CSE", postgraduate ? "M.Tech" : "B.Tech");
+            library.addStudent(student);
+            students.add(new SimStudent(student));
+        }
+        for (int i = 0; i < librarianCount; i++) {
+            Librarian librarian = new Librarian(BASE_ID + i, "Load Librarian " + i);
+            library.addLibrarian(librarian);
+            librarians.add(librarian);
+        }
+
+        // Loans left open by an earlier run that was stopped - close them so every run starts alike
+        for (SimStudent sim : students) {
+            for (LoanStatus loan : library.getStudentLoans(sim.student.getStudentId())) {
+                library.returnBook(sim.student, loan.bookId(), KIOSK_LIBRARIAN);
+            }
+        }
+        for (int i = 0; i < bookCount; i++) {
+            Book book = library.getBook(BASE_ID + i);
+            if (book != null && book.getCopies() != copies) {
+                library.updateBookStock(book.getBookId(), copies, book.getVersion());
+            }
+        }
+    }
+
+    // Close every loan the run left open, so the seeded books are back in stock
+    private void returnOpenLoans() {
+        for (SimStudent sim : students) {
+            for (int bookId : sim.loans) {
+                library.returnBook(sim.student, bookId, KIOSK_LIBRARIAN);
+            }
+            sim.loans.clear();
+        }
+    }
+
+    // === RUN ===
+
+    // Start every user, wait for the end of the run - returns the measured time in nanos
+    private long run(long seed, long warmupSeconds, long seconds) throws InterruptedException {
+        SplittableRandom root = new SplittableRandom(seed);
+        long start = System.nanoTime();
+        measureFrom = start + warmupSeconds * 1_000_000_000L;
+        measureUntil = measureFrom + seconds * 1_000_000_000L;
+
+        // Randoms are split in a fixed order, so each user gets the same sequence for the same seed
+        try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (SimStudent sim : students) {
+                SplittableRandom random = root.split();
+                users.submit(() -> runUser(random, sim, null));
+            }
+            for (Librarian librarian : librarians) {
+                SplittableRandom random = root.split();
+                users.submit(() -> runUser(random, null, librarian));
+            }
+        }   // close() waits for every user to finish
+        return measureUntil - measureFrom;
+    }
+
+    // One simulated user: a student at the kiosk (self set) or a librarian at the desk
+    private void runUser(SplittableRandom random, SimStudent self, Librarian librarian) {
+        while (System.nanoTime() < measureUntil) {
+            try {
+                switch (pickOperation(random)) {
+                    case BROWSE -> browse();
+                    case LOGIN -> login(self, librarian);
+                    case ISSUE -> circulate(random, self, librarian, true);
+                    case RETURN -> circulate(random, self, librarian, false);
+                }
+            } catch (RuntimeException e) {
+                // Counted where it happened - keep the user going
+            }
+            if (thinkMillis > 0) {
+                try {
+                    Thread.sleep(thinkMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private Operation pickOperation(SplittableRandom random) {
+        int roll = random.nextInt(mixTotal);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        return Operation.BROWSE;
+    }
+
+    private void browse() {
+        long start = System.nanoTime();
+        try {
+            List<Book> books = library.getAllBooks();
+            // The seeded catalog is never empty - an empty list is how a failed read shows
+            record(Operation.BROWSE, start, books.isEmpty() ? Outcome.ERROR : Outcome.OK, "empty catalog");
+        } catch (RuntimeException e) {
+            record(Operation.BROWSE, start, Outcome.ERROR, e.toString());
+            throw e;
+        }
+    }
+
+    private void login(SimStudent self, Librarian librarian) {
+        long start = System.nanoTime();
+        try {
+            Session session = self != null
+                    ? AuthService.loginStudent(self.student.getStudentId(), String.valueOf(self.student.getStudentId()))
+                    : AuthService.loginLibrarian(librarian.getLibrarianId(), String.valueOf(librarian.getLibrarianId()));
+            record(Operation.LOGIN, start, session == null ? Outcome.ERROR : Outcome.OK, "login refused");
+            if (session != null) {
+                AuthService.logout(session.token());
+            }
+        } catch (RuntimeException e) {
+            record(Operation.LOGIN, start, Outcome.ERROR, e.toString());
+            throw e;
+        }
+    }
+
+    // Issue (or return) for the user's own account, or for a random student at the desk.
+    // A student with nothing out returns nothing, so the call becomes an issue, and the other way
+    // round at the loan limit - the mix then holds for the calls that can be made.
+    private void circulate(SplittableRandom random, SimStudent self, Librarian librarian, boolean issue) {
+        SimStudent sim = self;
+        if (sim == null) {
+            sim = students.get(random.nextInt(students.size()));
+            if (!sim.lock.tryLock()) {
+                browse();   // That student is busy at the kiosk - the librarian looks at the catalog instead
+                return;
+            }
+        } else {
+            sim.lock.lock();
+        }
+        try {
+            if (issue && sim.loans.size() >= sim.loanLimit) {
+                issue = false;
+            } else if (!issue && sim.loans.isEmpty()) {
+                issue = true;
+            }
+            Librarian desk = librarian != null ? librarian : KIOSK_LIBRARIAN;
+            if (issue) {
+                issueBook(random, sim, desk);
+            } else {
+                returnBook(random, sim, desk);
+            }
+        } finally {
+            sim.lock.unlock();
+        }
+    }
+
+    private void issueBook(SplittableRandom random, SimStudent sim, Librarian desk) {
+        int bookId = BASE_ID + random.nextInt(bookCount);
+        long start = System.nanoTime();
+        try {
+            IssueResult result = library.issueBook(sim.student, bookId, desk);
+            switch (result.outcome()) {
+                case ISSUED -> {
+                    sim.loans.add(bookId);
+                    record(Operation.ISSUE, start, Outcome.OK, null);
+                }
+                case NO_COPIES, LOAN_LIMIT_REACHED -> record(Operation.ISSUE, start, Outcome.CONFLICT, null);
+                case UNKNOWN_BOOK, ERROR -> record(Operation.ISSUE, start, Outcome.ERROR,
+                        "issue of book " + bookId + ": " + result.outcome());
+            }
+        } catch (RuntimeException e) {
+            record(Operation.ISSUE, start, Outcome.ERROR, e.toString());
+            throw e;
+        }
+    }
+
+    private void returnBook(SplittableRandom random, SimStudent sim, Librarian desk) {
+        int index = random.nextInt(sim.loans.size());
+        int bookId = sim.loans.get(index);
+        long start = System.nanoTime();
+        try {
+            ReturnResult result = library.returnBook(sim.student, bookId, desk);
+            switch (result.outcome()) {
+                case RETURNED -> {
+                    sim.loans.remove(index);
+                    record(Operation.RETURN, start, Outcome.OK, null);
+                }
+                case NOT_ISSUED -> {
+                    sim.loans.remove(index);   // Already closed - do not try it again
+                    record(Operation.RETURN, start, Outcome.CONFLICT, null);
+                }
+                case ERROR -> record(Operation.RETURN, start, Outcome.ERROR,
+                        "return of book " + bookId + ": " + result.outcome());
+            }
+        } catch (RuntimeException e) {
+            record(Operation.RETURN, start, Outcome.ERROR, e.toString());
+            throw e;
+        }
+    }
+
+    private enum Outcome { OK, CONFLICT, ERROR }
+
+    // Count a call that started at start - only calls started in the measured window count
+    private void record(Operation operation, long start, Outcome outcome, String errorDetail) {
+        long end = System.nanoTime();
+        if (start < measureFrom || start >= measureUntil) {
+            return;
+        }
+        OperationStats operationStats = stats.get(operation);
+        operationStats.latency.record(end - start);
+        switch (outcome) {
+            case OK -> {
+            }
+            case CONFLICT -> operationStats.conflicts.increment();
+            case ERROR -> {
+                operationStats.errors.increment();
+                synchronized (errorSamples) {
+                    if (errorSamples.size() < MAX_ERROR_SAMPLES) {
+                        errorSamples.add(operation.label + ": " + errorDetail);
+                    }
+                }
+            }
+        }
+    }
+
+    // === REPORT ===
+
+    private void printReport(long elapsedNanos, long seed, int studentCount, int librarianCount) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        System.out.println();
+        System.out.printf("Circulation load - %,d students, %,d librarians, %,d books x %d copies, seed %d, %.0f s measured%n",
+                studentCount, librarianCount, bookCount, copies, seed, seconds);
+        System.out.printf("%-12s %10s %10s %9s %9s %9s %9s %9s %8s %10s%n",
+                "Operation", "Calls", "Calls/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "Errors", "Conflicts");
+
+        long totalCalls = 0;
+        long totalErrors = 0;
+        long totalConflicts = 0;
+        for (Operation operation : Operation.values()) {
+            OperationStats operationStats = stats.get(operation);
+            LatencyHistogram.Snapshot latency = operationStats.latency.snapshot();
+            long calls = latency.totalCount();
+            long errors = operationStats.errors.sum();
+            long conflicts = operationStats.conflicts.sum();
+            System.out.printf("%-12s %,10d %,10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %,8d %,10d%n",
+                    operation.label, calls, calls / seconds,
+                    millis(latency.percentileNanos(0.50)), millis(latency.percentileNanos(0.90)),
+                    millis(latency.percentileNanos(0.99)), millis(latency.percentileNanos(0.999)),
+                    millis(latency.maxNanos()), errors, conflicts);
+            totalCalls += calls;
+            totalErrors += errors;
+            totalConflicts += conflicts;
+        }
+        long circulation = stats.get(Operation.ISSUE).latency.snapshot().totalCount()
+                + stats.get(Operation.RETURN).latency.snapshot().totalCount();
+        System.out.printf("%-12s %,10d %,10.1f %49s %,8d %,10d%n", "Total", totalCalls, totalCalls / seconds, "",
+                totalErrors, totalConflicts);
+        System.out.printf("Issues + returns: %,.1f per second%n", circulation / seconds);
+        System.out.println("Conflicts: issues refused for no copies left or the loan limit, returns of a loan already closed");
+        if (!errorSamples.isEmpty()) {
+            System.out.println("First errors:");
+            errorSamples.forEach(sample -> System.out.println("  " + sample));
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    // "browse=40,issue=25,return=25,login=10" - operations left out get no calls
+    private static Map<Operation, Integer> parseMix(String text) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : text.split(",")) {
+            String[] pair = part.split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Mix entries look like issue=25, not '" + part + "'");
+            }
+            Operation operation = Operation.valueOf(pair[0].trim().toUpperCase());
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Mix weights must not be negative: " + part);
+            }
+            mix.put(operation, weight);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("The mix needs at least one operation with a weight above 0");
+        }
+        return mix;
+    }
+}
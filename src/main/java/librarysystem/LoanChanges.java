@@ -0,0 +1,12 @@
+package librarysystem;
+
+import java.util.List;
+
+// Loans issued or updated while still open, and loans closed, after a revision.
+// truncated means there were too many changes to list: reload the view and continue from revision.
+public record LoanChanges(long revision, List<IssuedBookRow> open, List<Integer> closedIssueIds, boolean truncated) {
+
+    public boolean isEmpty() {
+        return open.isEmpty() && closedIssueIds.isEmpty() && !truncated;
+    }
+}
@@ -0,0 +1,104 @@
+package librarysystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+// How many books a student may have out at once. A limit for the student's course wins over one
+// for their department, which wins over the default. Read once from loan-limits.properties on the
+// classpath, or from the file named by -Dlibrary.loan.limitsFile:
+//   default=1
+//   course.M.Tech=5
+//   department.CSE=2
+// Course and department names match ignoring case.
+public record LoanLimitPolicy(int defaultLimit, Map<String, Integer> courseLimits,
+                              Map<String, Integer> departmentLimits) {
+    private static final String RESOURCE = "/loan-limits.properties";
+    private static final LoanLimitPolicy CURRENT = load();
+
+    public LoanLimitPolicy {
+        if (defaultLimit < 0 || courseLimits.values().stream().anyMatch(limit -> limit < 0)
+                || departmentLimits.values().stream().anyMatch(limit -> limit < 0)) {
+            throw new IllegalArgumentException("Loan limits must not be negative");
+        }
+        courseLimits = Map.copyOf(courseLimits);
+        departmentLimits = Map.copyOf(departmentLimits);
+    }
+
+    public static LoanLimitPolicy current() {
+        return CURRENT;
+    }
+
+    // Open loans allowed for a student of the given department and course
+    public int limitFor(String department, String course) {
+        Integer limit = course == null ? null : courseLimits.get(key(course));
+        if (limit == null && department != null) {
+            limit = departmentLimits.get(key(department));
+        }
+        return limit != null ? limit : defaultLimit;
+    }
+
+    public int limitFor(Student student) {
+        return limitFor(student.getDepartment(), student.getCourse());
+    }
+
+    // Keys default, course.<name> and department.<name> - anything else is rejected
+    public static LoanLimitPolicy from(Properties properties) {
+        int defaultLimit = 1;   // One open loan per student, as before limits were configurable
+        Map<String, Integer> courses = new HashMap<>();
+        Map<String, Integer> departments = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            int limit = parseLimit(name, properties.getProperty(name));
+            if (name.equals("default")) {
+                defaultLimit = limit;
+            } else if (name.startsWith("course.")) {
+                courses.put(key(name.substring("course.".length())), limit);
+            } else if (name.startsWith("department.")) {
+                departments.put(key(name.substring("department.".length())), limit);
+            } else {
+                throw new IllegalArgumentException("Unknown loan limit key: " + name);
+            }
+        }
+        return new LoanLimitPolicy(defaultLimit, courses, departments);
+    }
+
+    private static LoanLimitPolicy load() {
+        Properties properties = new Properties();
+        String file = System.getProperty("library.loan.limitsFile");
+        try {
+            if (file != null) {
+                try (Reader reader = Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
+            } else {
+                try (InputStream in = LoanLimitPolicy.class.getResourceAsStream(RESOURCE)) {
+                    if (in != null) {
+                        properties.load(in);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read loan limits: " + e.getMessage(), e);
+        }
+        return from(properties);
+    }
+
+    private static int parseLimit(String name, String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Loan limit " + name + " must be a whole number: " + value);
+        }
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,25 @@
+package librarysystem;
+
+import java.time.LocalDate;
+
+// A student's open loan with its due date and the fine stored by the last accrual run.
+// fineAccruedOn is the day that fine was computed for - null if no run has seen the loan yet.
+public record LoanStatus(int bookId, String title, LocalDate issueDate, long daysIssued,
+                         int fine, LocalDate fineAccruedOn) {
+
+    public LocalDate dueDate() {
+        return FinePolicy.current().dueDate(issueDate);
+    }
+
+    public boolean isLate() {
+        return daysLate() > 0;
+    }
+
+    public long daysLate() {
+        return FinePolicy.current().daysLate(daysIssued);
+    }
+
+    public long daysLeft() {
+        return FinePolicy.current().daysLeft(daysIssued);
+    }
+}
@@ -0,0 +1,512 @@
+package librarysystem;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+// LibraryStore decorator that times every call into LibraryMetrics and counts the ones that throw.
+// LibraryStores wraps the selected store in it, so Library, AuthService and the GUI are all measured
+// whichever backend runs. Each operation's metrics are looked up once here, so a timed call
+// costs two System.nanoTime() calls and a few atomic increments - no allocation, no locks.
+// The timing is written out in every method rather than passed a lambda: a lambda that captures
+// the arguments is a new object on every call, and escape analysis does not reliably remove it.
+public class MeteredLibraryStore implements LibraryStore {
+    private final LibraryStore delegate;
+    private final OperationMetrics testConnection = LibraryMetrics.operation("testConnection");
+    private final OperationMetrics initialize = LibraryMetrics.operation("initialize");
+    private final OperationMetrics addBook = LibraryMetrics.operation("addBook");
+    private final OperationMetrics getBook = LibraryMetrics.operation("getBook");
+    private final OperationMetrics getAllBooks = LibraryMetrics.operation("getAllBooks");
+    private final OperationMetrics forEachBook = LibraryMetrics.operation("forEachBook");
+    private final OperationMetrics getBooksPage = LibraryMetrics.operation("getBooksPage");
+    private final OperationMetrics searchBooks = LibraryMetrics.operation("searchBooks");
+    private final OperationMetrics updateBookStock = LibraryMetrics.operation("updateBookStock");
+    private final OperationMetrics updateBookDetails = LibraryMetrics.operation("updateBookDetails");
+    private final OperationMetrics removeBook = LibraryMetrics.operation("removeBook");
+    private final OperationMetrics importBooks = LibraryMetrics.operation("importBooks");
+    private final OperationMetrics addStudent = LibraryMetrics.operation("addStudent");
+    private final OperationMetrics addNewStudent = LibraryMetrics.operation("addNewStudent");
+    private final OperationMetrics updateStudentPassword = LibraryMetrics.operation("updateStudentPassword");
+    private final OperationMetrics authenticateStudent = LibraryMetrics.operation("authenticateStudent");
+    private final OperationMetrics importStudents = LibraryMetrics.operation("importStudents");
+    private final OperationMetrics addLibrarian = LibraryMetrics.operation("addLibrarian");
+    private final OperationMetrics updateLibrarianPassword = LibraryMetrics.operation("updateLibrarianPassword");
+    private final OperationMetrics authenticateLibrarian = LibraryMetrics.operation("authenticateLibrarian");
+    private final OperationMetrics issueBook = LibraryMetrics.operation("issueBook");
+    private final OperationMetrics returnBook = LibraryMetrics.operation("returnBook");
+    private final OperationMetrics hasIssuedBook = LibraryMetrics.operation("hasIssuedBook");
+    private final OperationMetrics getIssuedBooks = LibraryMetrics.operation("getIssuedBooks");
+    private final OperationMetrics getIssuedBooksPage = LibraryMetrics.operation("getIssuedBooksPage");
+    private final OperationMetrics getStudentLoans = LibraryMetrics.operation("getStudentLoans");
+    private final OperationMetrics accrueFines = LibraryMetrics.operation("accrueFines");
+    private final OperationMetrics exportReport = LibraryMetrics.operation("exportReport");
+    private final OperationMetrics getChangeRevision = LibraryMetrics.operation("getChangeRevision");
+    private final OperationMetrics getBookChanges = LibraryMetrics.operation("getBookChanges");
+    private final OperationMetrics getLoanChanges = LibraryMetrics.operation("getLoanChanges");
+    private final OperationMetrics getStudentLoansRevision = LibraryMetrics.operation("getStudentLoansRevision");
+    private final OperationMetrics pruneChanges = LibraryMetrics.operation("pruneChanges");
+
+    public MeteredLibraryStore(LibraryStore delegate) {
+        this.delegate = delegate;
+    }
+
+    public LibraryStore getDelegate() {
+        return delegate;
+    }
+
+    // === LIFECYCLE ===
+
+    @Override
+    public boolean testConnection() {
+        long start = System.nanoTime();
+        try {
+            return delegate.testConnection();
+        } catch (RuntimeException e) {
+            testConnection.recordError();
+            throw e;
+        } finally {
+            testConnection.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void initialize() {
+        long start = System.nanoTime();
+        try {
+            delegate.initialize();
+        } catch (RuntimeException e) {
+            initialize.recordError();
+            throw e;
+        } finally {
+            initialize.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    // === BOOKS ===
+
+    @Override
+    public boolean addBook(Book book) {
+        long start = System.nanoTime();
+        try {
+            return delegate.addBook(book);
+        } catch (RuntimeException e) {
+            addBook.recordError();
+            throw e;
+        } finally {
+            addBook.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Book getBook(int bookId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getBook(bookId);
+        } catch (RuntimeException e) {
+            getBook.recordError();
+            throw e;
+        } finally {
+            getBook.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Book> getAllBooks() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAllBooks();
+        } catch (RuntimeException e) {
+            getAllBooks.recordError();
+            throw e;
+        } finally {
+            getAllBooks.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean forEachBook(Consumer<Book> consumer) {
+        long start = System.nanoTime();
+        try {
+            return delegate.forEachBook(consumer);
+        } catch (RuntimeException e) {
+            forEachBook.recordError();
+            throw e;
+        } finally {
+            forEachBook.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Book> getBooksPage(int afterBookId, int pageSize) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getBooksPage(afterBookId, pageSize);
+        } catch (RuntimeException e) {
+            getBooksPage.recordError();
+            throw e;
+        } finally {
+            getBooksPage.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public SearchResult searchBooks(String query, int offset, int pageSize) {
+        long start = System.nanoTime();
+        try {
+            return delegate.searchBooks(query, offset, pageSize);
+        } catch (RuntimeException e) {
+            searchBooks.recordError();
+            throw e;
+        } finally {
+            searchBooks.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public BookUpdateResult updateBookStock(int bookId, int newStock, int expectedVersion) {
+        long start = System.nanoTime();
+        try {
+            return delegate.updateBookStock(bookId, newStock, expectedVersion);
+        } catch (RuntimeException e) {
+            updateBookStock.recordError();
+            throw e;
+        } finally {
+            updateBookStock.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public BookUpdateResult updateBookDetails(int bookId, String title, String publisher, String edition, int copies,
+                                              int expectedVersion) {
+        long start = System.nanoTime();
+        try {
+            return delegate.updateBookDetails(bookId, title, publisher, edition, copies, expectedVersion);
+        } catch (RuntimeException e) {
+            updateBookDetails.recordError();
+            throw e;
+        } finally {
+            updateBookDetails.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean removeBook(int bookId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.removeBook(bookId);
+        } catch (RuntimeException e) {
+            removeBook.recordError();
+            throw e;
+        } finally {
+            removeBook.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ImportSummary importBooks(Path file, Consumer<ImportSummary> progressListener)
+            throws IOException, SQLException {
+        long start = System.nanoTime();
+        try {
+            return delegate.importBooks(file, progressListener);
+        } catch (IOException | SQLException | RuntimeException e) {
+            importBooks.recordError();
+            throw e;
+        } finally {
+            importBooks.record(System.nanoTime() - start);
+        }
+    }
+
+    // === STUDENTS ===
+
+    @Override
+    public boolean addStudent(Student student) {
+        long start = System.nanoTime();
+        try {
+            return delegate.addStudent(student);
+        } catch (RuntimeException e) {
+            addStudent.recordError();
+            throw e;
+        } finally {
+            addStudent.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean addNewStudent(int studentId, String name, String department, String course) {
+        long start = System.nanoTime();
+        try {
+            return delegate.addNewStudent(studentId, name, department, course);
+        } catch (RuntimeException e) {
+            addNewStudent.recordError();
+            throw e;
+        } finally {
+            addNewStudent.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean updateStudentPassword(int studentId, String newPassword) {
+        long start = System.nanoTime();
+        try {
+            return delegate.updateStudentPassword(studentId, newPassword);
+        } catch (RuntimeException e) {
+            updateStudentPassword.recordError();
+            throw e;
+        } finally {
+            updateStudentPassword.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Student authenticateStudent(int studentId, String password) {
+        long start = System.nanoTime();
+        try {
+            return delegate.authenticateStudent(studentId, password);
+        } catch (RuntimeException e) {
+            authenticateStudent.recordError();
+            throw e;
+        } finally {
+            authenticateStudent.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ImportSummary importStudents(Path file, boolean dryRun, Consumer<ImportSummary> progressListener)
+            throws IOException, SQLException {
+        long start = System.nanoTime();
+        try {
+            return delegate.importStudents(file, dryRun, progressListener);
+        } catch (IOException | SQLException | RuntimeException e) {
+            importStudents.recordError();
+            throw e;
+        } finally {
+            importStudents.record(System.nanoTime() - start);
+        }
+    }
+
+    // === LIBRARIANS ===
+
+    @Override
+    public boolean addLibrarian(Librarian librarian) {
+        long start = System.nanoTime();
+        try {
+            return delegate.addLibrarian(librarian);
+        } catch (RuntimeException e) {
+            addLibrarian.recordError();
+            throw e;
+        } finally {
+            addLibrarian.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean updateLibrarianPassword(int librarianId, String newPassword) {
+        long start = System.nanoTime();
+        try {
+            return delegate.updateLibrarianPassword(librarianId, newPassword);
+        } catch (RuntimeException e) {
+            updateLibrarianPassword.recordError();
+            throw e;
+        } finally {
+            updateLibrarianPassword.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Librarian authenticateLibrarian(int librarianId, String password) {
+        long start = System.nanoTime();
+        try {
+            return delegate.authenticateLibrarian(librarianId, password);
+        } catch (RuntimeException e) {
+            authenticateLibrarian.recordError();
+            throw e;
+        } finally {
+            authenticateLibrarian.record(System.nanoTime() - start);
+        }
+    }
+
+    // === ISSUE RECORDS ===
+
+    @Override
+    public IssueResult issueBook(Student student, int bookId, Librarian librarian) {
+        long start = System.nanoTime();
+        try {
+            return delegate.issueBook(student, bookId, librarian);
+        } catch (RuntimeException e) {
+            issueBook.recordError();
+            throw e;
+        } finally {
+            issueBook.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ReturnResult returnBook(int studentId, int bookId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.returnBook(studentId, bookId);
+        } catch (RuntimeException e) {
+            returnBook.recordError();
+            throw e;
+        } finally {
+            returnBook.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean hasIssuedBook(int studentId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.hasIssuedBook(studentId);
+        } catch (RuntimeException e) {
+            hasIssuedBook.recordError();
+            throw e;
+        } finally {
+            hasIssuedBook.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<IssuedBookRow> getIssuedBooks() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getIssuedBooks();
+        } catch (RuntimeException e) {
+            getIssuedBooks.recordError();
+            throw e;
+        } finally {
+            getIssuedBooks.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<IssuedBookRow> getIssuedBooksPage(int afterIssueId, int pageSize) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getIssuedBooksPage(afterIssueId, pageSize);
+        } catch (RuntimeException e) {
+            getIssuedBooksPage.recordError();
+            throw e;
+        } finally {
+            getIssuedBooksPage.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<LoanStatus> getStudentLoans(int studentId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getStudentLoans(studentId);
+        } catch (RuntimeException e) {
+            getStudentLoans.recordError();
+            throw e;
+        } finally {
+            getStudentLoans.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public int accrueFines(FinePolicy policy, LocalDate asOf) {
+        long start = System.nanoTime();
+        try {
+            return delegate.accrueFines(policy, asOf);
+        } catch (RuntimeException e) {
+            accrueFines.recordError();
+            throw e;
+        } finally {
+            accrueFines.record(System.nanoTime() - start);
+        }
+    }
+
+    // === REPORTS ===
+
+    @Override
+    public ExportSummary exportReport(ReportType report, Path file, Consumer<ExportSummary> progressListener,
+                                      BooleanSupplier cancelled) throws IOException, SQLException {
+        long start = System.nanoTime();
+        try {
+            return delegate.exportReport(report, file, progressListener, cancelled);
+        } catch (IOException | SQLException | RuntimeException e) {
+            exportReport.recordError();
+            throw e;
+        } finally {
+            exportReport.record(System.nanoTime() - start);
+        }
+    }
+
+    // === CHANGE TRACKING ===
+
+    @Override
+    public long getChangeRevision() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getChangeRevision();
+        } catch (RuntimeException e) {
+            getChangeRevision.recordError();
+            throw e;
+        } finally {
+            getChangeRevision.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public BookChanges getBookChanges(long sinceRevision) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getBookChanges(sinceRevision);
+        } catch (RuntimeException e) {
+            getBookChanges.recordError();
+            throw e;
+        } finally {
+            getBookChanges.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public LoanChanges getLoanChanges(long sinceRevision) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getLoanChanges(sinceRevision);
+        } catch (RuntimeException e) {
+            getLoanChanges.recordError();
+            throw e;
+        } finally {
+            getLoanChanges.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public long getStudentLoansRevision(int studentId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getStudentLoansRevision(studentId);
+        } catch (RuntimeException e) {
+            getStudentLoansRevision.recordError();
+            throw e;
+        } finally {
+            getStudentLoansRevision.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public int pruneChanges() {
+        long start = System.nanoTime();
+        try {
+            return delegate.pruneChanges();
+        } catch (RuntimeException e) {
+            pruneChanges.recordError();
+            throw e;
+        } finally {
+            pruneChanges.record(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package librarysystem;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency histogram plus call and error counters of one operation, registered in JMX by LibraryMetrics.
+// Time a call with: long start = System.nanoTime(); ... metrics.record(System.nanoTime() - start);
+public class OperationMetrics implements OperationMetricsMBean {
+    private final String name;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private volatile long resetAtNanos = System.nanoTime();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // One finished call - allocation-free
+    public void record(long elapsedNanos) {
+        latencies.record(elapsedNanos);
+        count.increment();
+        totalNanos.add(elapsedNanos);
+    }
+
+    // A call that failed (exception or database error); it is timed by record() as well
+    public void recordError() {
+        errors.increment();
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getThroughputPerSecond() {
+        double seconds = (System.nanoTime() - resetAtNanos) / 1e9;
+        return seconds > 0 ? count.sum() / seconds : 0;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long calls = count.sum();
+        return calls == 0 ? 0 : totalNanos.sum() / 1_000.0 / calls;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latencies.snapshot().percentileNanos(0.50) / 1_000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latencies.snapshot().percentileNanos(0.99) / 1_000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latencies.snapshot().percentileNanos(0.999) / 1_000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latencies.snapshot().maxNanos() / 1_000.0;
+    }
+
+    @Override
+    public void reset() {
+        latencies.reset();
+        count.reset();
+        errors.reset();
+        totalNanos.reset();
+        resetAtNanos = System.nanoTime();
+    }
+
+    // One line for logs and the console, e.g. "issueBook: 120 calls, 0 errors, p50=850.0us ..."
+    @Override
+    public String toString() {
+        LatencyHistogram.Snapshot snapshot = latencies.snapshot();
+        return String.format("%s: %d calls, %d errors, %.1f/s, p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus",
+                name, getCount(), getErrors(), getThroughputPerSecond(),
+                snapshot.percentileNanos(0.50) / 1_000.0, snapshot.percentileNanos(0.99) / 1_000.0,
+                snapshot.percentileNanos(0.999) / 1_000.0, snapshot.maxNanos() / 1_000.0);
+    }
+}
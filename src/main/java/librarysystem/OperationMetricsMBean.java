@@ -0,0 +1,23 @@
+package librarysystem;
+
+// JMX view of one operation - times are in microseconds and cover the calls since the last reset
+public interface OperationMetricsMBean {
+
+    long getCount();
+
+    long getErrors();
+
+    double getThroughputPerSecond();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
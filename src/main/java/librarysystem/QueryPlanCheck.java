@@ -0,0 +1,209 @@
+package librarysystem;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Query-plan regression check for the open-loan queries in DatabaseManager.
+// Seeds a loan history into the configured database, runs EXPLAIN on every hot query and
+// fails if any of them reads a whole table instead of using an index. The seeded rows use
+// IDs from SEED_BASE_ID upwards and are deleted again at the end.
+//
+// Run against the embedded H2 database:   mvn -P query-plan-check verify
+// Run against a scratch MySQL database:   mvn -P query-plan-check verify -Dlibrary.db.url=jdbc:mysql://...
+public class QueryPlanCheck {
+    private static final int SEED_BASE_ID = 900_000_000;
+    private static final int SEED_STUDENTS = 2_000;
+    private static final int SEED_BOOKS = 2_000;
+    private static final int SEED_LOANS_PER_STUDENT = 20;  // Only the most recent loan of each student is still open
+
+    // H2 marks a full scan in the plan text as /* schema.table.tableScan */
+    private static final Pattern H2_TABLE_SCAN = Pattern.compile("/\\*\\s*([\\w.\"]+)\\.tableScan");
+
+    private record HotQuery(String name, String sql, Object... parameters) {
+    }
+
+    public static void main(String[] args) throws SQLException {
+        int studentId = SEED_BASE_ID + SEED_STUDENTS / 2;
+        int bookId = SEED_BASE_ID + SEED_BOOKS / 2;
+        int librarianId = SEED_BASE_ID;
+        FinePolicy policy = FinePolicy.current();
+        Date today = Date.valueOf(LocalDate.now());
+
+        List<HotQuery> queries = List.of(
+                new HotQuery("hasIssuedBook", DatabaseManager.OPEN_LOANS_SQL, studentId),
+                new HotQuery("getIssueDate", DatabaseManager.OPEN_LOAN_ISSUE_DATE_SQL, studentId, bookId),
+                new HotQuery("returnBookAtomically", DatabaseManager.LOCK_OPEN_LOAN_SQL, studentId, bookId),
+                new HotQuery("issueBookAtomically", DatabaseManager.LOCK_ISSUE_SQL, librarianId, bookId, studentId),
+                new HotQuery("getIssuedBooksPage", DatabaseManager.ISSUED_BOOKS_PAGE_SQL, 0, 100),
+                new HotQuery("getStudentLoans", DatabaseManager.STUDENT_LOANS_SQL, studentId),
+                new HotQuery("accrueFines", DatabaseManager.ACCRUE_FINES_SQL,
+                        today, policy.loanDays(), policy.finePerDay(), today, today),
+                new HotQuery("renameActiveLoanStudent", DatabaseManager.RENAME_ACTIVE_LOAN_STUDENT_SQL,
+                        "Student", studentId),
+                new HotQuery("renameActiveLoanBook", DatabaseManager.RENAME_ACTIVE_LOAN_BOOK_SQL, "Book", bookId),
+                new HotQuery("getBookChanges", ChangeLog.BOOK_CHANGES_SQL, 0L, ChangeLog.MAX_CHANGES + 1),
+                new HotQuery("getLoanChanges", ChangeLog.LOAN_CHANGES_SQL, 0L, ChangeLog.MAX_CHANGES + 1),
+                new HotQuery("getStudentLoansRevision", ChangeLog.STUDENT_LOANS_REVISION_SQL, studentId)
+        );
+
+        DatabaseManager.initializeDatabase();
+        List<String> failures = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            boolean mysql = conn.getMetaData().getDatabaseProductName().startsWith("MySQL");
+            try {
+                removeSeed(conn);
+                seed(conn);
+                analyze(conn, mysql);
+
+                System.out.println("=== QUERY PLAN CHECK (" + conn.getMetaData().getDatabaseProductName() + ") ===");
+                for (HotQuery query : queries) {
+                    List<String> scanned = explain(conn, query, mysql);
+                    if (scanned.isEmpty()) {
+                        System.out.println("✅ " + query.name());
+                    } else {
+                        System.out.println("❌ " + query.name() + " - full scan of " + String.join(", ", scanned));
+                        failures.add(query.name());
+                    }
+                }
+            } finally {
+                removeSeed(conn);
+            }
+        } finally {
+            DatabaseManager.shutdown();
+        }
+
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Full table scan in: " + String.join(", ", failures));
+        }
+    }
+
+    // Tables the plan reads from start to end
+    private static List<String> explain(Connection conn, HotQuery query, boolean mysql) throws SQLException {
+        List<String> scanned = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + query.sql())) {
+            for (int i = 0; i < query.parameters().length; i++) {
+                pstmt.setObject(i + 1, query.parameters()[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (mysql) {
+                        // One row per table - ALL is a table scan, index a scan of a whole index
+                        String type = rs.getString("type");
+                        if ("ALL".equals(type) || "index".equals(type)) {
+                            scanned.add(rs.getString("table"));
+                        }
+                    } else {
+                        Matcher matcher = H2_TABLE_SCAN.matcher(rs.getString(1));
+                        while (matcher.find()) {
+                            scanned.add(matcher.group(1));
+                        }
+                    }
+                }
+            }
+        }
+        return scanned;
+    }
+
+    // Loan history where most loans are returned, like a library that has been running for a while
+    private static void seed(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement librarian = conn.prepareStatement(
+                     "INSERT INTO librarians (librarian_id, name, password) VALUES (?, ?, ?)");
+             PreparedStatement student = conn.prepareStatement(
+                     "INSERT INTO students (student_id, name, department, course, password) VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement book = conn.prepareStatement(
+                     "INSERT INTO books (book_id, title, publisher, edition, copies) VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement loan = conn.prepareStatement(
+                     "INSERT INTO issue_records (student_id, book_id, issue_date, return_date, fine_amount, librarian_id) " +
+                             "VALUES (?, ?, ?, ?, 0, ?)")) {
+
+            librarian.setInt(1, SEED_BASE_ID);
+            librarian.setString(2, "Plan Check");
+            librarian.setString(3, "x");
+            librarian.executeUpdate();
+
+            for (int i = 0; i < SEED_STUDENTS; i++) {
+                student.setInt(1, SEED_BASE_ID + i);
+                student.setString(2, "Student " + i);
+                student.setString(3, "CSE");
+                student.setString(4, "B.Tech");
+                student.setString(5, "x");
+                student.addBatch();
+            }
+            student.executeBatch();
+
+            for (int i = 0; i < SEED_BOOKS; i++) {
+                book.setInt(1, SEED_BASE_ID + i);
+                book.setString(2, "Book " + i);
+                book.setString(3, "Publisher " + (i % 50));
+                book.setString(4, "1st");
+                book.setInt(5, 3);
+                book.addBatch();
+            }
+            book.executeBatch();
+
+            Random random = new Random(42);
+            java.sql.Date day = java.sql.Date.valueOf("2024-01-01");
+            for (int s = 0; s < SEED_STUDENTS; s++) {
+                for (int l = 0; l < SEED_LOANS_PER_STUDENT; l++) {
+                    boolean open = l == SEED_LOANS_PER_STUDENT - 1;
+                    loan.setInt(1, SEED_BASE_ID + s);
+                    loan.setInt(2, SEED_BASE_ID + random.nextInt(SEED_BOOKS));
+                    loan.setDate(3, day);
+                    loan.setDate(4, open ? null : day);
+                    loan.setInt(5, SEED_BASE_ID);
+                    loan.addBatch();
+                }
+                loan.executeBatch();
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("INSERT INTO active_loans (issue_id, student_id, student_name, book_id, book_title, " +
+                        "issue_date, librarian_id, librarian_name) " +
+                        "SELECT ir.id, ir.student_id, s.name, ir.book_id, b.title, ir.issue_date, ir.librarian_id, l.name " +
+                        "FROM issue_records ir " +
+                        "JOIN students s ON ir.student_id = s.student_id " +
+                        "JOIN books b ON ir.book_id = b.book_id " +
+                        "JOIN librarians l ON ir.librarian_id = l.librarian_id " +
+                        "WHERE ir.student_id >= " + SEED_BASE_ID + " AND ir.return_date IS NULL");
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Refresh optimizer statistics so the plans reflect the seeded volume
+    private static void analyze(Connection conn, boolean mysql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (mysql) {
+                stmt.execute("ANALYZE TABLE issue_records, active_loans, students, books, librarians");
+            } else {
+                stmt.execute("ANALYZE");
+            }
+        }
+    }
+
+    private static void removeSeed(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM active_loans WHERE student_id >= " + SEED_BASE_ID);
+            stmt.executeUpdate("DELETE FROM issue_records WHERE student_id >= " + SEED_BASE_ID);
+            stmt.executeUpdate("DELETE FROM students WHERE student_id >= " + SEED_BASE_ID);
+            stmt.executeUpdate("DELETE FROM books WHERE book_id >= " + SEED_BASE_ID);
+            stmt.executeUpdate("DELETE FROM librarians WHERE librarian_id >= " + SEED_BASE_ID);
+        }
+    }
+}
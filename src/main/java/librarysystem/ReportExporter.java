@@ -0,0 +1,181 @@
+package librarysystem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+// Exports the reports in ReportType to CSV. Rows are streamed from a forward-only result set
+// straight into the file, so memory stays flat however many loans there are. The listener gets
+// running totals every PROGRESS_INTERVAL rows; the cancel check is polled on every row and a
+// cancelled export stops the query and deletes the partial file.
+public class ReportExporter {
+    public static final int PROGRESS_INTERVAL = 5_000;
+
+    private static final String LOAN_JOINS = "FROM issue_records ir " +
+            "JOIN students s ON ir.student_id = s.student_id " +
+            "JOIN books b ON ir.book_id = b.book_id " +
+            "JOIN librarians l ON ir.librarian_id = l.librarian_id ";
+
+    // Open loans issued before the given day - today minus the loan period
+    static final String OVERDUE_LOANS_SQL = "SELECT ir.id, ir.student_id, s.name AS student_name, ir.book_id, " +
+            "b.title, ir.issue_date, ir.fine_amount, l.name AS librarian_name " + LOAN_JOINS +
+            "WHERE ir.return_date IS NULL AND ir.issue_date < ? ORDER BY ir.issue_date, ir.id";
+    static final String OVERDUE_LOANS_COUNT_SQL =
+            "SELECT COUNT(*) FROM issue_records WHERE return_date IS NULL AND issue_date < ?";
+
+    static final String LOANS_BY_LIBRARIAN_SQL = "SELECT ir.librarian_id, l.name AS librarian_name, ir.id, " +
+            "ir.student_id, s.name AS student_name, ir.book_id, b.title, ir.issue_date, ir.return_date, " +
+            "ir.fine_amount " + LOAN_JOINS + "ORDER BY ir.librarian_id, ir.id";
+    static final String LOANS_BY_LIBRARIAN_COUNT_SQL = "SELECT COUNT(*) FROM issue_records";
+
+    // Fines of returned loans plus the fines open loans have accrued so far
+    static final String FINES_OUTSTANDING_SQL = "SELECT ir.student_id, s.name AS student_name, ir.id, " +
+            "ir.book_id, b.title, ir.issue_date, ir.return_date, ir.fine_amount " + LOAN_JOINS +
+            "WHERE ir.fine_amount > 0 ORDER BY ir.student_id, ir.id";
+    static final String FINES_OUTSTANDING_COUNT_SQL = "SELECT COUNT(*) FROM issue_records WHERE fine_amount > 0";
+
+    private final FinePolicy policy;
+
+    public ReportExporter() {
+        this(FinePolicy.current());
+    }
+
+    public ReportExporter(FinePolicy policy) {
+        this.policy = policy;
+    }
+
+    // Write the report to the file. The listener may be null; cancelled is polled on every row.
+    public ExportSummary export(ReportType report, Path file, Consumer<ExportSummary> progressListener,
+                                BooleanSupplier cancelled) throws IOException, SQLException {
+        long start = System.nanoTime();
+        LocalDate today = LocalDate.now();
+        Date overdueBefore = Date.valueOf(today.minusDays(policy.loanDays()));
+        long rowsWritten = 0;
+        boolean stopped = false;
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            long totalRows = countRows(conn, report, overdueBefore);
+
+            try (DelimitedFileWriter writer = new DelimitedFileWriter(file);
+                 PreparedStatement pstmt = conn.prepareStatement(querySql(report),
+                         ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+                writer.writeRecord(report.getColumns());
+                if (report == ReportType.OVERDUE_LOANS) {
+                    pstmt.setDate(1, overdueBefore);
+                }
+                pstmt.setFetchSize(DatabaseManager.streamingFetchSize(conn));
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (cancelled.getAsBoolean()) {
+                            stopped = true;
+                            // A streaming MySQL result set reads every remaining row on close - stop the query first
+                            pstmt.cancel();
+                            break;
+                        }
+                        writeRow(writer, report, rs, today);
+                        if (++rowsWritten % PROGRESS_INTERVAL == 0 && progressListener != null) {
+                            progressListener.accept(new ExportSummary(report, rowsWritten, totalRows,
+                                    System.nanoTime() - start, false));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!stopped) {
+                    throw e;
+                }
+                // The cancelled query reports itself as interrupted - expected
+            }
+
+            ExportSummary summary = new ExportSummary(report, rowsWritten, Math.max(totalRows, rowsWritten),
+                    System.nanoTime() - start, stopped);
+            if (stopped) {
+                Files.deleteIfExists(file);
+            }
+            if (progressListener != null) {
+                progressListener.accept(summary);
+            }
+            return summary;
+        } catch (IOException | SQLException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private static long countRows(Connection conn, ReportType report, Date overdueBefore) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(countSql(report))) {
+            if (report == ReportType.OVERDUE_LOANS) {
+                pstmt.setDate(1, overdueBefore);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private static String querySql(ReportType report) {
+        return switch (report) {
+            case OVERDUE_LOANS -> OVERDUE_LOANS_SQL;
+            case LOANS_BY_LIBRARIAN -> LOANS_BY_LIBRARIAN_SQL;
+            case FINES_OUTSTANDING -> FINES_OUTSTANDING_SQL;
+        };
+    }
+
+    private static String countSql(ReportType report) {
+        return switch (report) {
+            case OVERDUE_LOANS -> OVERDUE_LOANS_COUNT_SQL;
+            case LOANS_BY_LIBRARIAN -> LOANS_BY_LIBRARIAN_COUNT_SQL;
+            case FINES_OUTSTANDING -> FINES_OUTSTANDING_COUNT_SQL;
+        };
+    }
+
+    // One CSV record in the column order of ReportType
+    private void writeRow(DelimitedFileWriter writer, ReportType report, ResultSet rs, LocalDate today)
+            throws SQLException, IOException {
+        LocalDate issueDate = rs.getDate("issue_date").toLocalDate();
+        Date returnDate = report == ReportType.OVERDUE_LOANS ? null : rs.getDate("return_date");
+        switch (report) {
+            case OVERDUE_LOANS -> writer.writeRecord(
+                    rs.getString("id"),
+                    rs.getString("student_id"),
+                    rs.getString("student_name"),
+                    rs.getString("book_id"),
+                    rs.getString("title"),
+                    issueDate.toString(),
+                    policy.dueDate(issueDate).toString(),
+                    String.valueOf(policy.daysLate(policy.daysKept(issueDate, today))),
+                    rs.getString("fine_amount"),
+                    rs.getString("librarian_name"));
+            case LOANS_BY_LIBRARIAN -> writer.writeRecord(
+                    rs.getString("librarian_id"),
+                    rs.getString("librarian_name"),
+                    rs.getString("id"),
+                    rs.getString("student_id"),
+                    rs.getString("student_name"),
+                    rs.getString("book_id"),
+                    rs.getString("title"),
+                    issueDate.toString(),
+                    returnDate == null ? null : returnDate.toString(),
+                    rs.getString("fine_amount"));
+            case FINES_OUTSTANDING -> writer.writeRecord(
+                    rs.getString("student_id"),
+                    rs.getString("student_name"),
+                    rs.getString("id"),
+                    rs.getString("book_id"),
+                    rs.getString("title"),
+                    issueDate.toString(),
+                    returnDate == null ? null : returnDate.toString(),
+                    returnDate == null ? "OPEN" : "RETURNED",
+                    rs.getString("fine_amount"));
+        }
+    }
+}
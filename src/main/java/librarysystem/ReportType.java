@@ -0,0 +1,46 @@
+package librarysystem;
+
+import java.util.List;
+
+// Reports a librarian can export to CSV - see ReportExporter for the queries behind them
+public enum ReportType {
+    OVERDUE_LOANS("Overdue loans", "overdue-loans",
+            List.of("issue_id", "student_id", "student_name", "book_id", "title", "issue_date",
+                    "due_date", "days_late", "fine", "librarian")),
+    LOANS_BY_LIBRARIAN("Loans by librarian", "loans-by-librarian",
+            List.of("librarian_id", "librarian", "issue_id", "student_id", "student_name", "book_id", "title",
+                    "issue_date", "return_date", "fine")),
+    FINES_OUTSTANDING("Fines outstanding", "fines-outstanding",
+            List.of("student_id", "student_name", "issue_id", "book_id", "title", "issue_date", "return_date",
+                    "status", "fine"));
+
+    private final String title;
+    private final String fileName;
+    private final List<String> columns;
+
+    ReportType(String title, String fileName, List<String> columns) {
+        this.title = title;
+        this.fileName = fileName;
+        this.columns = columns;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    // Suggested file name without extension
+    public String getFileName() {
+        return fileName;
+    }
+
+    // CSV header row
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    // Shown in the report combo box
+    @Override
+    public String toString() {
+        return title;
+    }
+}
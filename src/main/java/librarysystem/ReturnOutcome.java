@@ -0,0 +1,8 @@
+package librarysystem;
+
+// Possible outcomes of returning a book
+public enum ReturnOutcome {
+    RETURNED,   // Loan closed, fine recorded and copy put back in stock
+    NOT_ISSUED, // Student has no open loan for that book
+    ERROR       // Database error - nothing was changed
+}
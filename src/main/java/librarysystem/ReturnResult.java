@@ -0,0 +1,19 @@
+package librarysystem;
+
+import java.time.LocalDate;
+
+// Result of a return - dates, days kept and fine are only set when the book was RETURNED
+public record ReturnResult(ReturnOutcome outcome, LocalDate issueDate, LocalDate returnDate, long daysKept, int fine) {
+
+    public static ReturnResult of(ReturnOutcome outcome) {
+        return new ReturnResult(outcome, null, null, 0, 0);
+    }
+
+    public boolean isReturned() {
+        return outcome == ReturnOutcome.RETURNED;
+    }
+
+    public long daysLate() {
+        return FinePolicy.current().daysLate(daysKept);
+    }
+}
@@ -0,0 +1,264 @@
+package librarysystem;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+// Ordered schema migrations, tracked in the schema_version table.
+// A started database only needs the one SELECT in currentVersion(); migrations run only on a
+// fresh or older database. Append new migrations to the end of MIGRATIONS - never edit or
+// reorder one that has been released, because databases remember its number and skip it.
+// MySQL commits DDL implicitly, so every step is written to be safe to run again if a
+// start is interrupted before its version row is stored.
+class SchemaMigrations {
+    // SQL states for a missing table - 42S04 is H2's variant when the schema has no tables at all
+    private static final List<String> TABLE_NOT_FOUND = List.of("42S02", "42S04");
+
+    @FunctionalInterface
+    interface Step {
+        void apply(Statement stmt) throws SQLException;
+    }
+
+    record Migration(int version, String description, Step step) {
+    }
+
+    static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Create books, students, librarians and issue_records", SchemaMigrations::createTables),
+            new Migration(2, "Add password columns to tables created before login", SchemaMigrations::addPasswordColumns),
+            new Migration(3, "Index open-loan lookups on issue_records", SchemaMigrations::createOpenLoanIndexes),
+            new Migration(4, "Seed default librarians, students and books", SchemaMigrations::seedDefaults),
+            new Migration(5, "Track the day open-loan fines were accrued for", SchemaMigrations::addFineAccrualColumn),
+            new Migration(6, "Create active_loans and fill it from open issue records", SchemaMigrations::createActiveLoans),
+            new Migration(7, "Create change_log and the change_revision counter", SchemaMigrations::createChangeLog),
+            new Migration(8, "Add a row version to books", SchemaMigrations::addBookVersion),
+            new Migration(9, "Count each student's open loans on the student row", SchemaMigrations::addOpenLoanCounter),
+            new Migration(10, "Number change_log rows by AUTO_INCREMENT instead of a locked counter",
+                    SchemaMigrations::numberChangesByAutoIncrement)
+    );
+
+    // Apply every migration newer than the database - returns how many were applied
+    static int migrate(Connection conn) throws SQLException {
+        int current = currentVersion(conn);
+        int applied = 0;
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version() > current) {
+                apply(conn, migration);
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    // Highest applied version - 0 for a database that has never been migrated
+    static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            if (!TABLE_NOT_FOUND.contains(e.getSQLState())) {
+                throw e;
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version (" +
+                        "version INT PRIMARY KEY, " +
+                        "description VARCHAR(255) NOT NULL, " +
+                        "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+            }
+            return 0;
+        }
+    }
+
+    private static void apply(Connection conn, Migration migration) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            migration.step().apply(stmt);
+            stmt.executeUpdate("INSERT INTO schema_version (version, description) VALUES (" +
+                    migration.version() + ", '" + migration.description().replace("'", "''") + "')");
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new SQLException("Migration " + migration.version() + " failed: " + e.getMessage(),
+                    e.getSQLState(), e.getErrorCode(), e);
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    // === MIGRATIONS ===
+
+    private static void createTables(Statement stmt) throws SQLException {
+        stmt.executeUpdate("CREATE TABLE IF NOT EXISTS books (" +
+                "book_id INT PRIMARY KEY, " +
+                "title VARCHAR(255) NOT NULL, " +
+                "publisher VARCHAR(255) NOT NULL, " +
+                "edition VARCHAR(100) NOT NULL, " +
+                "copies INT NOT NULL DEFAULT 0)");
+
+        stmt.executeUpdate("CREATE TABLE IF NOT EXISTS students (" +
+                "student_id INT PRIMARY KEY, " +
+                "name VARCHAR(255) NOT NULL, " +
+                "department VARCHAR(100) NOT NULL, " +
+                "course VARCHAR(100) NOT NULL, " +
+                "password VARCHAR(100) DEFAULT NULL)");
+
+        stmt.executeUpdate("CREATE TABLE IF NOT EXISTS librarians (" +
+                "librarian_id INT PRIMARY KEY, " +
+                "name VARCHAR(255) NOT NULL, " +
+                "password VARCHAR(100) DEFAULT NULL)");
+
+        stmt.executeUpdate("CREATE TABLE IF NOT EXISTS issue_records (" +
+                "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                "student_id INT NOT NULL, " +
+                "book_id INT NOT NULL, " +
+                "issue_date DATE NOT NULL, " +
+                "return_date DATE NULL, " +
+                "fine_amount INT DEFAULT 0, " +
+                "librarian_id INT NOT NULL, " +
+                "FOREIGN KEY (student_id) REFERENCES students(student_id), " +
+                "FOREIGN KEY (book_id) REFERENCES books(book_id), " +
+                "FOREIGN KEY (librarian_id) REFERENCES librarians(librarian_id))");
+    }
+
+    // Tables from before login support lack the password columns; new ones already have them
+    private static void addPasswordColumns(Statement stmt) throws SQLException {
+        executeUnlessExists(stmt, "ALTER TABLE students ADD COLUMN password VARCHAR(100) DEFAULT NULL");
+        executeUnlessExists(stmt, "ALTER TABLE librarians ADD COLUMN password VARCHAR(100) DEFAULT NULL");
+    }
+
+    // return_date IS NULL marks a book still out - see the open-loan queries in DatabaseManager
+    private static void createOpenLoanIndexes(Statement stmt) throws SQLException {
+        executeUnlessExists(stmt, "CREATE INDEX idx_issue_student_open ON issue_records (student_id, return_date)");
+        executeUnlessExists(stmt, "CREATE INDEX idx_issue_book_open ON issue_records (book_id, return_date)");
+        executeUnlessExists(stmt, "CREATE INDEX idx_issue_open ON issue_records (return_date)");
+    }
+
+    // Default accounts (password = ID) and starter books - rows that already exist are left alone
+    private static void seedDefaults(Statement stmt) throws SQLException {
+        stmt.executeUpdate("INSERT IGNORE INTO librarians (librarian_id, name, password) VALUES " +
+                "(101, 'Mr. Sharma', '101'), " +
+                "(102, 'Mrs. Sumita', '102')");
+        stmt.executeUpdate("INSERT IGNORE INTO students (student_id, name, department, course, password) VALUES " +
+                "(201, 'Rahul', 'CSE', 'B.Tech', '201'), " +
+                "(202, 'Priya', 'ECE', 'B.Tech', '202')");
+        stmt.executeUpdate("INSERT IGNORE INTO books (book_id, title, publisher, edition, copies) VALUES " +
+                "(1001, 'Java Programming', 'Pearson', '3rd', 2), " +
+                "(1002, 'Data Structures', 'McGraw Hill', '2nd', 1), " +
+                "(1003, 'Database Systems', 'Elsevier', '4th', 3)");
+    }
+
+    // fine_amount of an open loan holds the fine accrued so far; this is the day it was computed for
+    private static void addFineAccrualColumn(Statement stmt) throws SQLException {
+        executeUnlessExists(stmt, "ALTER TABLE issue_records ADD COLUMN fine_accrued_on DATE NULL");
+    }
+
+    // One row per open loan with the names the Issued Books view shows - kept in step with
+    // issue_records by DatabaseManager in the same transactions that issue and return books
+    private static void createActiveLoans(Statement stmt) throws SQLException {
+        stmt.executeUpdate("CREATE TABLE IF NOT EXISTS active_loans (" +
+                "issue_id INT PRIMARY KEY, " +
+                "student_id INT NOT NULL, " +
+                "student_name VARCHAR(255) NOT NULL, " +
+                "book_id INT NOT NULL, " +
+                "book_title VARCHAR(255) NOT NULL, " +
+                "issue_date DATE NOT NULL, " +
+                "librarian_id INT NOT NULL, " +
+                "librarian_name VARCHAR(255) NOT NULL, " +
+                "fine_amount INT NOT NULL DEFAULT 0, " +
+                "fine_accrued_on DATE NULL, " +
+                "FOREIGN KEY (issue_id) REFERENCES issue_records(id))");
+        executeUnlessExists(stmt, "CREATE INDEX idx_active_student ON active_loans (student_id)");
+        executeUnlessExists(stmt, "CREATE INDEX idx_active_book ON active_loans (book_id)");
+        executeUnlessExists(stmt, "CREATE INDEX idx_active_librarian ON active_loans (librarian_id)");
+        stmt.executeUpdate("INSERT IGNORE INTO active_loans (issue_id, student_id, student_name, book_id, book_title, " +
+                "issue_date, librarian_id, librarian_name, fine_amount, fine_accrued_on) " +
+                "SELECT ir.id, ir.student_id, s.name, ir.book_id, b.title, ir.issue_date, ir.librarian_id, l.name, " +
+                "COALESCE(ir.fine_amount, 0), ir.fine_accrued_on " +
+                "FROM issue_records ir " +
+                "JOIN students s ON ir.student_id = s.student_id " +
+                "JOIN books b ON ir.book_id = b.book_id " +
+                "JOIN librarians l ON ir.librarian_id = l.librarian_id " +
+                "WHERE ir.return_date IS NULL");
+    }
+
+    // Book and loan changes by revision, for the delta refresh of the dashboards - see ChangeLog.
+    // entity is BOOK (entity_id = book_id) or LOAN (entity_id = issue_records.id, with the borrower).
+    private static void createChangeLog(Statement stmt) throws SQLException {
+        stmt.executeUpdate("CREATE TABLE IF NOT EXISTS change_revision (" +
+                "id INT PRIMARY KEY, " +
+                "revision BIGINT NOT NULL)");
+        stmt.executeUpdate("INSERT IGNORE INTO change_revision (id, revision) VALUES (1, 0)");
+        stmt.executeUpdate("CREATE TABLE IF NOT EXISTS change_log (" +
+                "entity CHAR(4) NOT NULL, " +
+                "revision BIGINT NOT NULL, " +
+                "entity_id INT NOT NULL, " +
+                "student_id INT NULL, " +
+                "changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                "PRIMARY KEY (entity, revision, entity_id))");
+        executeUnlessExists(stmt, "CREATE INDEX idx_change_student ON change_log (entity, student_id, revision)");
+    }
+
+    // Bumped by every write to a book row, so stock and detail edits can be made conditional
+    // on the version that was read - see DatabaseManager.updateBookStock
+    private static void addBookVersion(Statement stmt) throws SQLException {
+        executeUnlessExists(stmt, "ALTER TABLE books ADD COLUMN version INT NOT NULL DEFAULT 0");
+    }
+
+    // Kept equal to the student's rows in active_loans by every issue and return, so the loan limit
+    // is checked on the student row the issue locks anyway - see DatabaseManager.issueBookAtomically
+    private static void addOpenLoanCounter(Statement stmt) throws SQLException {
+        executeUnlessExists(stmt, "ALTER TABLE students ADD COLUMN open_loans INT NOT NULL DEFAULT 0");
+        stmt.executeUpdate("UPDATE students s SET open_loans = " +
+                "(SELECT COUNT(*) FROM active_loans a WHERE a.student_id = s.student_id)");
+    }
+
+    // Every writer used to lock the one change_revision row until its commit. change_log is created
+    // again with an AUTO_INCREMENT revision that starts after the old counter, so revisions keep
+    // growing across the switch. Its old rows are not kept - they were only there for dashboards
+    // that were open before the upgrade, which reload. change_revision is dropped last: once it is
+    // gone the step has finished, so running it again does nothing.
+    private static void numberChangesByAutoIncrement(Statement stmt) throws SQLException {
+        long counter;
+        try (ResultSet rs = stmt.executeQuery("SELECT revision FROM change_revision WHERE id = 1")) {
+            counter = rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            if (!TABLE_NOT_FOUND.contains(e.getSQLState())) {
+                throw e;
+            }
+            return;
+        }
+        stmt.executeUpdate("DROP TABLE IF EXISTS change_log");
+        stmt.executeUpdate("CREATE TABLE change_log (" +
+                "revision BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "entity CHAR(4) NOT NULL, " +
+                "entity_id INT NOT NULL, " +
+                "student_id INT NULL, " +
+                "changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        if (counter > 0) {
+            boolean mysql = stmt.getConnection().getMetaData().getDatabaseProductName().startsWith("MySQL");
+            stmt.executeUpdate(mysql
+                    ? "ALTER TABLE change_log AUTO_INCREMENT = " + (counter + 1)
+                    : "ALTER TABLE change_log ALTER COLUMN revision RESTART WITH " + (counter + 1));
+        }
+        executeUnlessExists(stmt, "CREATE INDEX idx_change_entity ON change_log (entity, revision)");
+        executeUnlessExists(stmt, "CREATE INDEX idx_change_student ON change_log (entity, student_id, revision)");
+        executeUnlessExists(stmt, "CREATE INDEX idx_change_time ON change_log (changed_at)");
+        stmt.executeUpdate("DROP TABLE change_revision");
+    }
+
+    // Run DDL, ignoring the error for a column or index that already exists:
+    // MySQL 1060/1061, H2 42S21/42S11
+    private static void executeUnlessExists(Statement stmt, String sql) throws SQLException {
+        try {
+            stmt.executeUpdate(sql);
+        } catch (SQLException e) {
+            int code = e.getErrorCode();
+            String state = e.getSQLState();
+            if (code != 1060 && code != 1061 && !"42S21".equals(state) && !"42S11".equals(state)) {
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package librarysystem;
+
+import java.util.List;
+
+// One page of catalog search results - totalHits counts every matching book, not just this page
+public record SearchResult(String query, List<Book> books, int totalHits, int offset, long elapsedNanos) {
+
+    public boolean hasMore() {
+        return offset + books.size() < totalHits;
+    }
+
+    public double elapsedMillis() {
+        return elapsedNanos / 1_000_000.0;
+    }
+}
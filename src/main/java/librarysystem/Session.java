@@ -0,0 +1,13 @@
+package librarysystem;
+
+// A logged-in user, handed out by AuthService - exactly one of librarian and student is set
+public record Session(String token, Librarian librarian, Student student) {
+
+    public boolean isLibrarian() {
+        return librarian != null;
+    }
+
+    public String userName() {
+        return isLibrarian() ? librarian.getName() : student.getName();
+    }
+}
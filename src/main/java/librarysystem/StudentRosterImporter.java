@@ -0,0 +1,213 @@
+package librarysystem;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+// Bulk enrolls students from a CSV/TSV roster with columns: student_id, name, department, course.
+// Each chunk is compared with the stored rows in one query, then new and changed students are
+// written with batched INSERT ... ON DUPLICATE KEY UPDATE in one transaction per chunk.
+// Passwords of existing students are never touched; new students get their ID as default password.
+public class StudentRosterImporter {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_CHUNK_SIZE = 5_000;
+
+    private final int batchSize;
+    private final int chunkSize;
+
+    public StudentRosterImporter() {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_CHUNK_SIZE);
+    }
+
+    public StudentRosterImporter(int batchSize, int chunkSize) {
+        if (batchSize < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("Batch and chunk sizes must be positive");
+        }
+        this.batchSize = batchSize;
+        this.chunkSize = Math.max(chunkSize, batchSize);
+    }
+
+    // Import the roster; with dryRun set the file is fully validated and classified but nothing is written
+    public ImportSummary importStudents(Path file, boolean dryRun, Consumer<ImportSummary> progressListener)
+            throws IOException, SQLException {
+        ImportCounters counters = new ImportCounters(dryRun);
+
+        try (DelimitedFileReader reader = new DelimitedFileReader(file);
+             Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+
+            // Later rows for the same ID replace earlier ones within a chunk
+            Map<Integer, Student> chunk = new LinkedHashMap<>();
+            boolean firstRecord = true;
+            List<String> fields;
+            while ((fields = reader.next()) != null) {
+                if (firstRecord) {
+                    firstRecord = false;
+                    if (ImportCounters.isHeader(fields)) {
+                        continue;
+                    }
+                }
+                counters.rowsRead++;
+
+                Student student = parseStudent(fields, reader.getLineNumber(), counters);
+                if (student == null) {
+                    continue;
+                }
+                if (chunk.put(student.getStudentId(), student) != null) {
+                    counters.skipped++; // Superseded by a later row for the same student
+                }
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(conn, chunk, dryRun, counters);
+                    chunk.clear();
+                    counters.report(progressListener, reader);
+                }
+            }
+            writeChunk(conn, chunk, dryRun, counters);
+            return counters.report(progressListener, reader);
+        }
+    }
+
+    static Student parseStudent(List<String> fields, long line, ImportCounters counters) {
+        if (fields.size() != 4) {
+            counters.reject(line, "expected 4 columns but found " + fields.size());
+            return null;
+        }
+        int studentId;
+        try {
+            studentId = Integer.parseInt(fields.get(0));
+        } catch (NumberFormatException e) {
+            counters.reject(line, "student ID must be a whole number");
+            return null;
+        }
+        String name = fields.get(1);
+        String department = fields.get(2);
+        String course = fields.get(3);
+
+        if (studentId <= 0) {
+            counters.reject(line, "student ID must be positive");
+            return null;
+        }
+        if (name.isEmpty() || department.isEmpty() || course.isEmpty()) {
+            counters.reject(line, "name, department and course are required");
+            return null;
+        }
+        if (name.length() > 255 || department.length() > 100 || course.length() > 100) {
+            counters.reject(line, "value longer than the column allows");
+            return null;
+        }
+        return new Student(studentId, name, department, course);
+    }
+
+    // Classify one chunk against the stored rows and upsert what changed in a single transaction
+    private void writeChunk(Connection conn, Map<Integer, Student> chunk, boolean dryRun,
+                            ImportCounters counters) throws SQLException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO students (student_id, name, department, course, password) " +
+                "VALUES (?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE name=VALUES(name), department=VALUES(department), course=VALUES(course)";
+
+        try {
+            Map<Integer, Student> stored = findStored(conn, new ArrayList<>(chunk.keySet()));
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql);
+                 PreparedStatement rename = conn.prepareStatement(DatabaseManager.RENAME_ACTIVE_LOAN_STUDENT_SQL)) {
+                int pending = 0;
+                List<Integer> renamed = new ArrayList<>();
+                for (Student student : chunk.values()) {
+                    Student current = stored.get(student.getStudentId());
+                    if (current == null) {
+                        counters.inserted++;
+                    } else if (sameDetails(current, student)) {
+                        counters.skipped++;
+                        continue;
+                    } else {
+                        counters.updated++;
+                    }
+                    if (dryRun) {
+                        continue;
+                    }
+
+                    pstmt.setInt(1, student.getStudentId());
+                    pstmt.setString(2, student.getName());
+                    pstmt.setString(3, student.getDepartment());
+                    pstmt.setString(4, student.getCourse());
+                    pstmt.setString(5, String.valueOf(student.getStudentId())); // Default password = ID
+                    pstmt.addBatch();
+
+                    // A renamed student keeps the new name on their open loans
+                    if (current != null && !Objects.equals(current.getName(), student.getName())) {
+                        rename.setString(1, student.getName());
+                        rename.setInt(2, student.getStudentId());
+                        rename.addBatch();
+                        renamed.add(student.getStudentId());
+                    }
+
+                    if (++pending == batchSize) {
+                        pstmt.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    pstmt.executeBatch();
+                }
+                if (!renamed.isEmpty()) {
+                    rename.executeBatch();
+                }
+                ChangeLog.openLoansChanged(conn, "student_id", renamed);
+            }
+            if (dryRun) {
+                conn.rollback();
+            } else {
+                conn.commit();
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    // Load the stored name/department/course for the given IDs, one IN query per batch
+    private Map<Integer, Student> findStored(Connection conn, List<Integer> ids) throws SQLException {
+        Map<Integer, Student> stored = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Integer> slice = ids.subList(from, Math.min(ids.size(), from + batchSize));
+            String sql = "SELECT student_id, name, department, course FROM students WHERE student_id IN (" +
+                    String.join(",", Collections.nCopies(slice.size(), "?")) + ")";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < slice.size(); i++) {
+                    pstmt.setInt(i + 1, slice.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        stored.put(rs.getInt("student_id"), new Student(
+                                rs.getInt("student_id"),
+                                rs.getString("name"),
+                                rs.getString("department"),
+                                rs.getString("course")
+                        ));
+                    }
+                }
+            }
+        }
+        return stored;
+    }
+
+    static boolean sameDetails(Student a, Student b) {
+        return Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getDepartment(), b.getDepartment())
+                && Objects.equals(a.getCourse(), b.getCourse());
+    }
+}
@@ -0,0 +1,102 @@
+package api;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonTest {
+
+    // === WRITE ===
+
+    @Test
+    void writesObjectsInKeyOrder() {
+        Map<String, Object> book = Json.object("id", 1, "title", "Java", "available", true, "due", null);
+
+        assertEquals("{\"id\":1,\"title\":\"Java\",\"available\":true,\"due\":null}", Json.write(book));
+    }
+
+    @Test
+    void writesListsAndOtherValuesByToString() {
+        Object value = Json.object("ids", List.of(1, 2), "due", LocalDate.of(2024, 3, 1), "fine", 2.5);
+
+        assertEquals("{\"ids\":[1,2],\"due\":\"2024-03-01\",\"fine\":2.5}", Json.write(value));
+    }
+
+    @Test
+    void escapesQuotesBackslashesAndControlCharacters() {
+        String written = Json.write("say \"hi\"\\\n\r\t\u0001");
+
+        assertEquals("\"say \\\"hi\\\"\\\\\\n\\r\\t\\u0001\"", written);
+    }
+
+    @Test
+    void writtenStringsParseBackUnchanged() {
+        String text = "quote \" slash \\ newline \n tab \t bell \u0007 é";
+
+        Map<String, Object> parsed = Json.parseObject(Json.write(Json.object("text", text)));
+
+        assertEquals(text, parsed.get("text"));
+    }
+
+    // === PARSE ===
+
+    @Test
+    void parsesFlatObjects() {
+        Map<String, Object> parsed = Json.parseObject(
+                " { \"studentId\" : 42, \"fine\": -1.5e1, \"name\": \"Ann\", \"active\": false, \"note\": null } ");
+
+        assertEquals(42L, parsed.get("studentId"));
+        assertEquals(-15.0, parsed.get("fine"));
+        assertEquals("Ann", parsed.get("name"));
+        assertEquals(false, parsed.get("active"));
+        assertTrue(parsed.containsKey("note"));
+        assertEquals(Arrays.asList("studentId", "fine", "name", "active", "note"), List.copyOf(parsed.keySet()));
+    }
+
+    @Test
+    void parsesEscapes() {
+        Map<String, Object> parsed = Json.parseObject("{\"s\":\"a\\\"b\\\\c\\/d\\n\\u00e9\"}");
+
+        assertEquals("a\"b\\c/d\né", parsed.get("s"));
+    }
+
+    @Test
+    void parsesAnEmptyObject() {
+        assertEquals(Map.of(), Json.parseObject("{}"));
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        for (String text : List.of(
+                "",
+                "[1, 2]",
+                "{\"a\": 1",
+                "{\"a\" 1}",
+                "{\"a\": 1,}",
+                "{\"a\": 1} trailing",
+                "{a: 1}",
+                "{\"a\": tru}",
+                "{\"a\": 1.2.3}",
+                "{\"a\": \"unterminated}",
+                "{\"a\": \"bad \\x escape\"}",
+                "{\"a\": \"short \\u12\"}",
+                "{\"a\": \"bad \\u12zz\"}")) {
+            assertThrows(IllegalArgumentException.class, () -> Json.parseObject(text), text);
+        }
+    }
+
+    @Test
+    void rejectsNestedValues() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> Json.parseObject("{\"book\": {\"id\": 1}}"));
+
+        assertTrue(e.getMessage().contains("position 9"), e.getMessage());
+    }
+}
@@ -0,0 +1,171 @@
+package librarysystem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogCacheTest {
+
+    private static Book book(int bookId, int copies, int version) {
+        return new Book(bookId, "Title " + bookId, "Publisher", "1st", copies, version);
+    }
+
+    private static CatalogCache cacheWith(Book book) {
+        CatalogCache cache = new CatalogCache(16);
+        cache.put(book, cache.generation());
+        return cache;
+    }
+
+    @Test
+    void updatesInOrderAreApplied() {
+        CatalogCache cache = cacheWith(book(1, 5, 3));
+
+        cache.updateCopies(1, 4, 4);
+        cache.update(book(1, 7, 5));
+
+        Book cached = cache.get(1);
+        assertEquals(7, cached.getCopies());
+        assertEquals(5, cached.getVersion());
+    }
+
+    // Two writers commit versions 4 and 5, but the one of version 4 reports back last
+    @Test
+    void olderUpdateArrivingLastDropsTheBook() {
+        CatalogCache cache = cacheWith(book(1, 5, 3));
+
+        cache.updateCopies(1, 3, 5);
+        cache.updateCopies(1, 4, 4);
+
+        assertNull(cache.get(1));
+        assertEquals(1, cache.getStats().invalidations());
+    }
+
+    @Test
+    void olderDetailsUpdateArrivingLastDropsTheBook() {
+        CatalogCache cache = cacheWith(book(1, 5, 3));
+
+        cache.update(book(1, 6, 5));
+        cache.update(book(1, 9, 4));
+
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void updateWithTheCachedVersionDropsTheBook() {
+        CatalogCache cache = cacheWith(book(1, 5, 3));
+
+        cache.updateCopies(1, 2, 3);
+
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void updateOfAnUncachedBookCachesNothing() {
+        CatalogCache cache = new CatalogCache(16);
+
+        cache.update(book(1, 5, 3));
+        cache.updateCopies(2, 5, 3);
+
+        assertNull(cache.get(1));
+        assertNull(cache.get(2));
+    }
+
+    @Test
+    void returnedBooksAreCopies() {
+        CatalogCache cache = cacheWith(book(1, 5, 3));
+
+        cache.get(1).setCopies(0);
+
+        assertEquals(5, cache.get(1).getCopies());
+    }
+
+    // === EVICTION ===
+
+    @Test
+    void newBookLessPopularThanTheEldestIsNotAdmitted() {
+        CatalogCache cache = new CatalogCache(2);
+        cache.put(book(1, 1, 0), cache.generation());
+        cache.put(book(2, 1, 0), cache.generation());
+        for (int i = 0; i < 3; i++) {
+            cache.get(1);
+            cache.get(2);
+        }
+
+        cache.put(book(3, 1, 0), cache.generation());   // Never asked for
+
+        assertEquals(1, cache.getStats().rejections());
+        assertNull(cache.get(3));
+        assertNotNull(cache.get(1));
+        assertNotNull(cache.get(2));
+    }
+
+    @Test
+    void popularNewBookEvictsTheLeastRecentlyUsed() {
+        CatalogCache cache = new CatalogCache(2);
+        cache.put(book(1, 1, 0), cache.generation());
+        cache.put(book(2, 1, 0), cache.generation());
+        cache.get(1);                                   // 2 is now the least recently used
+        for (int i = 0; i < 4; i++) {
+            cache.get(3);                               // Misses still count towards popularity
+        }
+
+        cache.put(book(3, 1, 0), cache.generation());
+
+        assertEquals(1, cache.getStats().evictions());
+        assertEquals(2, cache.getStats().size());
+        assertNotNull(cache.get(3));
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(2));
+    }
+
+    // === GENERATION GUARD ===
+
+    @Test
+    void loadThatRacedWithAWriteIsNotStored() {
+        CatalogCache cache = new CatalogCache(16);
+        long loadStarted = cache.generation();
+
+        cache.invalidate(1);                            // A write commits while the load runs
+        cache.put(book(1, 5, 3), loadStarted);
+
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void catalogLoadThatRacedWithAWriteIsNotStored() {
+        CatalogCache cache = new CatalogCache(16);
+        long loadStarted = cache.generation();
+
+        cache.updateCopies(7, 1, 2);
+        cache.putAll(List.of(book(1, 5, 3), book(2, 5, 3)), loadStarted);
+
+        assertNull(cache.getAll());
+    }
+
+    @Test
+    void anyWriteDropsTheCatalogSnapshot() {
+        CatalogCache cache = new CatalogCache(16);
+        cache.putAll(List.of(book(1, 5, 3), book(2, 5, 3)), cache.generation());
+        assertTrue(cache.getStats().catalogCached());
+
+        cache.invalidateCatalog();
+
+        assertFalse(cache.getStats().catalogCached());
+        assertNull(cache.getAll());
+    }
+
+    @Test
+    void catalogBiggerThanTheCacheIsNotKept() {
+        CatalogCache cache = new CatalogCache(1);
+
+        cache.putAll(List.of(book(1, 5, 3), book(2, 5, 3)), cache.generation());
+
+        assertNull(cache.getAll());
+    }
+}
@@ -0,0 +1,208 @@
+package librarysystem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogSearchIndexTest {
+
+    private static Book book(int bookId, String title, String publisher) {
+        return new Book(bookId, title, publisher, "1st", 1, 0);
+    }
+
+    private static CatalogSearchIndex indexOf(Book... books) {
+        CatalogSearchIndex index = new CatalogSearchIndex();
+        assertTrue(index.ensureBuilt(consumer -> {
+            for (Book book : books) {
+                consumer.accept(book);
+            }
+            return true;
+        }));
+        return index;
+    }
+
+    @Test
+    void tokenizeSplitsOnAnythingButLettersAndDigits() {
+        assertEquals(List.of("c", "for", "java8", "devs"), CatalogSearchIndex.tokenize("C++ for Java8-Devs!"));
+        assertEquals(List.of(), CatalogSearchIndex.tokenize(null));
+    }
+
+    // === RANKING ===
+
+    @Test
+    void titleMatchRanksAboveAPublisherMatch() {
+        CatalogSearchIndex index = indexOf(
+                book(1, "Cooking Basics", "Java Press"),
+                book(2, "Java Basics", "Kitchen Press"));
+
+        assertEquals(List.of(2, 1), index.search("java", 0, 10).bookIds());
+    }
+
+    @Test
+    void bookMatchingEveryWordRanksFirst() {
+        CatalogSearchIndex index = indexOf(
+                book(1, "Java Concurrency in Practice", "Pub"),
+                book(2, "Python Programming", "Pub"),
+                book(3, "Java Programming", "Pub"));
+
+        CatalogSearchIndex.Hits hits = index.search("java programming", 0, 10);
+
+        assertEquals(3, hits.bookIds().get(0));
+        assertEquals(3, hits.totalHits());
+    }
+
+    @Test
+    void shorterTitleRanksAboveALongerOneWithTheSameMatch() {
+        CatalogSearchIndex index = indexOf(
+                book(1, "Java Concurrency in Practice", "Pub"),
+                book(2, "Java", "Pub"));
+
+        assertEquals(List.of(2, 1), index.search("java", 0, 10).bookIds());
+    }
+
+    @Test
+    void equalScoresAreOrderedByBookId() {
+        CatalogSearchIndex index = indexOf(
+                book(9, "Algorithms", "Pub"),
+                book(4, "Algorithms", "Pub"),
+                book(6, "Algorithms", "Pub"));
+
+        assertEquals(List.of(4, 6, 9), index.search("algorithms", 0, 10).bookIds());
+    }
+
+    @Test
+    void lastWordAlsoMatchesAsAPrefix() {
+        CatalogSearchIndex index = indexOf(
+                book(1, "Programming Pearls", "Pub"),
+                book(2, "Progress Report", "Pub"),
+                book(3, "Poetry", "Pub"));
+
+        assertEquals(List.of(1, 2), index.search("prog", 0, 10).bookIds());
+        assertEquals(0, index.search("p", 0, 10).totalHits());   // Too short for a prefix
+    }
+
+    @Test
+    void pagesCountEveryMatch() {
+        CatalogSearchIndex index = indexOf(
+                book(1, "Data One", "Pub"),
+                book(2, "Data Two", "Pub"),
+                book(3, "Data Three", "Pub"));
+
+        CatalogSearchIndex.Hits page = index.search("data", 1, 1);
+
+        assertEquals(List.of(2), page.bookIds());
+        assertEquals(3, page.totalHits());
+        assertEquals(List.of(), index.search("data", 5, 10).bookIds());
+    }
+
+    // === TOMBSTONES ===
+
+    @Test
+    void removedBookIsNotFound() {
+        CatalogSearchIndex index = indexOf(
+                book(1, "Java Basics", "Pub"),
+                book(2, "Java Advanced", "Pub"));
+
+        index.remove(1);
+
+        CatalogSearchIndex.Hits hits = index.search("java", 0, 10);
+        assertEquals(List.of(2), hits.bookIds());
+        assertEquals(1, hits.totalHits());
+    }
+
+    @Test
+    void reindexedBookIsOnlyFoundByItsNewText() {
+        CatalogSearchIndex index = indexOf(book(1, "Old Title", "Pub"));
+
+        index.add(book(1, "New Title", "Pub"));
+
+        assertEquals(List.of(), index.search("old", 0, 10).bookIds());
+        assertEquals(List.of(1), index.search("new", 0, 10).bookIds());
+        assertEquals(1, index.search("title", 0, 10).totalHits());
+    }
+
+    @Test
+    void searchesStayCorrectAcrossCompaction() {
+        CatalogSearchIndex index = new CatalogSearchIndex();
+        index.ensureBuilt(consumer -> {
+            for (int id = 1; id <= 3_000; id++) {
+                consumer.accept(book(id, (id % 2 == 0 ? "Even" : "Odd") + " Volume " + id, "Pub"));
+            }
+            return true;
+        });
+
+        for (int id = 1; id <= 2_990; id++) {   // Enough removals to compact more than once
+            index.remove(id);
+        }
+
+        assertEquals(List.of(2992, 2994, 2996, 2998, 3000), index.search("even", 0, 10).bookIds());
+        assertEquals(10, index.search("volume", 0, 100).totalHits());
+        assertEquals(List.of(3000), index.search("3000", 0, 10).bookIds());
+    }
+
+    // === BUILD ===
+
+    @Test
+    void failedBuildLeavesTheIndexUnbuilt() {
+        CatalogSearchIndex index = new CatalogSearchIndex();
+
+        assertFalse(index.ensureBuilt(consumer -> false));
+        assertFalse(index.isBuilt());
+    }
+
+    @Test
+    void writesBeforeTheFirstBuildAreNotKept() {
+        CatalogSearchIndex index = new CatalogSearchIndex();
+        index.add(book(1, "Java", "Pub"));
+
+        index.ensureBuilt(consumer -> true);
+
+        assertEquals(0, index.search("java", 0, 10).totalHits());
+    }
+
+    @Test
+    void writesDuringABuildAreReplayedOntoIt() throws InterruptedException {
+        CatalogSearchIndex index = new CatalogSearchIndex();
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        Thread builder = new Thread(() -> index.ensureBuilt(consumer -> {
+            consumer.accept(book(1, "Java Basics", "Pub"));
+            reading.countDown();
+            try {
+                written.await();
+            } catch (InterruptedException e) {
+                return false;
+            }
+            consumer.accept(book(2, "Stale Title", "Pub"));   // Read before the write below reached the source
+            return true;
+        }));
+        builder.start();
+        reading.await();
+
+        index.add(book(2, "Fresh Title", "Pub"));   // Does not wait for the build
+        index.remove(1);
+        index.add(book(3, "Java Advanced", "Pub"));
+        written.countDown();
+        builder.join();
+
+        assertTrue(index.isBuilt());
+        assertEquals(List.of(3), index.search("java", 0, 10).bookIds());
+        assertEquals(List.of(2), index.search("fresh", 0, 10).bookIds());
+        assertEquals(0, index.search("stale", 0, 10).totalHits());
+    }
+
+    @Test
+    void invalidateForgetsEverything() {
+        CatalogSearchIndex index = indexOf(book(1, "Java", "Pub"));
+
+        index.invalidate();
+
+        assertFalse(index.isBuilt());
+        assertEquals(0, index.search("java", 0, 10).totalHits());
+    }
+}
@@ -0,0 +1,122 @@
+package librarysystem;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionPoolTest {
+    private static final String URL = "jdbc:h2:mem:pooltest;DB_CLOSE_DELAY=-1";
+
+    private ConnectionPool pool;
+
+    private ConnectionPool pool(int maxSize, long borrowTimeoutMillis) {
+        pool = new ConnectionPool(URL, "sa", "", maxSize, 0, borrowTimeoutMillis, 60_000);
+        return pool;
+    }
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void returnedConnectionIsReused() throws SQLException {
+        ConnectionPool pool = pool(2, 1_000);
+
+        pool.borrow().close();
+        pool.borrow().close();
+
+        assertEquals(1, pool.getStats().totalCreated());
+        assertEquals(2, pool.getStats().totalBorrowed());
+        assertEquals(0, pool.getStats().active());
+        assertEquals(1, pool.getStats().idle());
+    }
+
+    @Test
+    void borrowTimesOutWhenEveryConnectionIsInUse() throws SQLException {
+        ConnectionPool pool = pool(1, 100);
+
+        try (Connection held = pool.borrow()) {
+            assertThrows(SQLTimeoutException.class, pool::borrow);
+            assertEquals(1, pool.getStats().borrowTimeouts());
+        }
+        pool.borrow().close();   // Free again once the holder gave it back
+    }
+
+    @Test
+    void unfinishedTransactionIsRolledBackOnReturn() throws SQLException {
+        ConnectionPool pool = pool(1, 1_000);
+        try (Connection conn = pool.borrow(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS leak_check (id INT PRIMARY KEY)");
+            stmt.executeUpdate("DELETE FROM leak_check");
+        }
+
+        try (Connection conn = pool.borrow()) {
+            conn.setAutoCommit(false);
+            conn.createStatement().executeUpdate("INSERT INTO leak_check (id) VALUES (1)");
+            // Closed without commit
+        }
+
+        try (Connection conn = pool.borrow();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM leak_check")) {
+            assertTrue(conn.getAutoCommit());
+            rs.next();
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void statementsLeftOpenAreClosedOnReturn() throws SQLException {
+        ConnectionPool pool = pool(1, 1_000);
+        Statement leaked;
+        try (Connection conn = pool.borrow()) {
+            leaked = conn.createStatement();
+        }
+        assertTrue(leaked.isClosed());
+    }
+
+    @Test
+    void returnedLeaseCannotBeUsed() throws SQLException {
+        ConnectionPool pool = pool(1, 1_000);
+        Connection conn = pool.borrow();
+        conn.close();
+
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+    }
+
+    @Test
+    void closingTwiceReturnsTheConnectionOnce() throws SQLException {
+        ConnectionPool pool = pool(1, 100);
+        Connection conn = pool.borrow();
+        conn.close();
+        conn.close();
+
+        try (Connection held = pool.borrow()) {
+            assertThrows(SQLTimeoutException.class, pool::borrow);
+        }
+    }
+
+    @Test
+    void closedPoolRefusesToLend() throws SQLException {
+        ConnectionPool pool = pool(1, 1_000);
+        Connection borrowed = pool.borrow();
+        pool.close();
+
+        assertThrows(SQLException.class, pool::borrow);
+        borrowed.close();
+        assertEquals(0, pool.getStats().idle());   // Closed instead of kept
+    }
+}
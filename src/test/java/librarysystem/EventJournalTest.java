@@ -0,0 +1,148 @@
+package librarysystem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EventJournalTest {
+    private static final long SEGMENT_SIZE = EventJournal.HEADER_SIZE + 4L * EventJournal.RECORD_SIZE;
+
+    @TempDir
+    Path directory;
+
+    private List<JournalEvent> readAll(long fromSequence) throws IOException {
+        List<JournalEvent> events = new ArrayList<>();
+        JournalReader.forEach(directory, fromSequence, events::add);
+        return events;
+    }
+
+    private void appendIssues(EventJournal journal, int count) {
+        for (int i = 0; i < count; i++) {
+            journal.append(JournalEventType.BOOK_ISSUED, 100 + i, 200 + i, 1, i, 0);
+        }
+    }
+
+    // Flip one byte of the body of a record, so its checksum no longer matches
+    private void corruptRecord(Path segment, int recordIndex) throws IOException {
+        long offset = EventJournal.HEADER_SIZE + (long) recordIndex * EventJournal.RECORD_SIZE
+                + EventJournal.VALUE_OFFSET;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, offset);
+            one.put(0, (byte) (one.get(0) ^ 0x5A)).rewind();
+            channel.write(one, offset);
+        }
+    }
+
+    @Test
+    void appendedEventsReadBackInOrder() throws IOException {
+        try (EventJournal journal = EventJournal.open(directory, SEGMENT_SIZE)) {
+            assertEquals(1, journal.append(JournalEventType.BOOK_ISSUED, 7, 8, 9, 3, 0));
+            assertEquals(2, journal.append(JournalEventType.BOOK_RETURNED, 7, 8, 9, 250, 12));
+            assertEquals(2, journal.getLastSequence());
+        }
+
+        List<JournalEvent> events = readAll(1);
+
+        assertEquals(2, events.size());
+        JournalEvent returned = events.get(1);
+        assertEquals(JournalEventType.BOOK_RETURNED, returned.type());
+        assertEquals(2, returned.sequence());
+        assertEquals(7, returned.studentId());
+        assertEquals(8, returned.bookId());
+        assertEquals(9, returned.librarianId());
+        assertEquals(250, returned.value());
+        assertEquals(12, returned.extra());
+    }
+
+    @Test
+    void fullSegmentsRollOverAndReadAsOneStream() throws IOException {
+        try (EventJournal journal = EventJournal.open(directory, SEGMENT_SIZE)) {
+            appendIssues(journal, 10);   // 4 records per segment
+        }
+
+        assertEquals(3, JournalReader.segments(directory).size());
+        assertEquals(10, readAll(1).size());
+        List<JournalEvent> tail = readAll(6);
+        assertEquals(5, tail.size());
+        assertEquals(6, tail.get(0).sequence());
+    }
+
+    @Test
+    void reopenedJournalContinuesTheSequence() throws IOException {
+        try (EventJournal journal = EventJournal.open(directory, SEGMENT_SIZE)) {
+            appendIssues(journal, 3);
+        }
+        try (EventJournal journal = EventJournal.open(directory, SEGMENT_SIZE)) {
+            assertEquals(3, journal.getLastSequence());
+            assertEquals(4, journal.append(JournalEventType.BOOK_ADDED, 0, 5, 0, 1, 0));
+        }
+
+        assertEquals(4, readAll(1).size());
+    }
+
+    @Test
+    void readerStopsAtARecordThatFailsItsChecksum() throws IOException {
+        try (EventJournal journal = EventJournal.open(directory, SEGMENT_SIZE)) {
+            appendIssues(journal, 3);
+        }
+        corruptRecord(JournalReader.segments(directory).get(0), 1);
+
+        List<JournalEvent> events = readAll(1);
+
+        assertEquals(1, events.size());
+        assertEquals(1, events.get(0).sequence());
+    }
+
+    // A crash in the middle of the last append leaves a torn record at the end
+    @Test
+    void tornTailIsOverwrittenAfterRestart() throws IOException {
+        try (EventJournal journal = EventJournal.open(directory, SEGMENT_SIZE)) {
+            appendIssues(journal, 3);
+        }
+        corruptRecord(JournalReader.segments(directory).get(0), 2);
+
+        try (EventJournal journal = EventJournal.open(directory, SEGMENT_SIZE)) {
+            assertEquals(2, journal.getLastSequence());
+            assertEquals(3, journal.append(JournalEventType.BOOK_REMOVED, 0, 42, 0, 0, 0));
+        }
+
+        List<JournalEvent> events = readAll(1);
+        assertEquals(3, events.size());
+        assertEquals(JournalEventType.BOOK_REMOVED, events.get(2).type());
+        assertEquals(42, events.get(2).bookId());
+    }
+
+    @Test
+    void secondWriterIsRefused() throws IOException {
+        try (EventJournal journal = EventJournal.open(directory, SEGMENT_SIZE)) {
+            assertThrows(IOException.class, () -> EventJournal.open(directory, SEGMENT_SIZE));
+        }
+    }
+
+    @Test
+    void disabledJournalAppendsNothing() {
+        EventJournal journal = EventJournal.disabled();
+
+        assertEquals(-1, journal.append(JournalEventType.BOOK_ISSUED, 1, 2, 3, 0, 0));
+        assertEquals(0, journal.getLastSequence());
+    }
+
+    @Test
+    void segmentNamesSortBySequence() {
+        String name = JournalReader.segmentName(42);
+
+        assertEquals("journal-00000000000000000042.seg", name);
+        assertEquals(42, JournalReader.firstSequence(Path.of(name)));
+    }
+}
@@ -0,0 +1,150 @@
+package librarysystem;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryLibraryStoreTest {
+    private static final Librarian LIBRARIAN = new Librarian(101, "Desk");
+
+    private InMemoryLibraryStore store;
+
+    @BeforeEach
+    void createStore() {
+        store = new InMemoryLibraryStore();
+    }
+
+    // === STUDENTS ===
+
+    @Test
+    void addStudentStoresANewStudent() {
+        assertTrue(store.addStudent(new Student(301, "Asha", "CSE", "B.Tech")));
+
+        assertEquals("Asha", store.authenticateStudent(301, "301").getName());
+    }
+
+    // Same as the database: ON DUPLICATE KEY UPDATE that changes nothing affects 0 rows
+    @Test
+    void addStudentWithAnExistingIdAndSameDetailsReportsNothingAdded() {
+        store.addStudent(new Student(301, "Asha", "CSE", "B.Tech"));
+
+        assertFalse(store.addStudent(new Student(301, "Asha", "CSE", "B.Tech")));
+    }
+
+    @Test
+    void addStudentWithAnExistingIdUpdatesTheDetails() {
+        store.addStudent(new Student(301, "Asha", "CSE", "B.Tech"));
+        store.updateStudentPassword(301, "secret");
+
+        assertTrue(store.addStudent(new Student(301, "Asha Rao", "CSE", "M.Tech")));
+
+        Student stored = store.authenticateStudent(301, "secret");   // Password kept
+        assertEquals("Asha Rao", stored.getName());
+        assertEquals("M.Tech", stored.getCourse());
+    }
+
+    @Test
+    void addNewStudentRefusesAnExistingId() {
+        assertTrue(store.addNewStudent(301, "Asha", "CSE", "B.Tech"));
+
+        assertFalse(store.addNewStudent(301, "Someone Else", "ECE", "B.Tech"));
+    }
+
+    // === LIBRARIANS ===
+
+    @Test
+    void addLibrarianWithAnExistingIdAndSameNameReportsNothingAdded() {
+        assertTrue(store.addLibrarian(new Librarian(103, "Ms. Rao")));
+
+        assertFalse(store.addLibrarian(new Librarian(103, "Ms. Rao")));
+        assertTrue(store.addLibrarian(new Librarian(103, "Dr. Rao")));
+    }
+
+    // === LOANS ===
+
+    // One loan for each of the students 1..count, so loan IDs are 1..count too
+    private void issueOneBookEach(int count) {
+        store.addBook(new Book(1, "Java Programming", "Pearson", "3rd", count + 10));
+        for (int studentId = 1; studentId <= count; studentId++) {
+            Student student = new Student(studentId, "Student " + studentId, "CSE", "B.Tech");
+            store.addStudent(student);
+            assertTrue(store.issueBook(student, 1, LIBRARIAN).isIssued());
+        }
+    }
+
+    private List<Integer> pageThroughIssuedBooks(int pageSize) {
+        List<Integer> issueIds = new ArrayList<>();
+        int after = 0;
+        while (true) {
+            List<IssuedBookRow> page = store.getIssuedBooksPage(after, pageSize);
+            page.forEach(row -> issueIds.add(row.issueId()));
+            if (page.size() < pageSize) {
+                return issueIds;
+            }
+            after = page.get(page.size() - 1).issueId();
+        }
+    }
+
+    @Test
+    void issuedBooksPageInLoanIdOrderAfterReturns() {
+        issueOneBookEach(200);
+        for (int studentId = 1; studentId <= 200; studentId += 2) {
+            assertEquals(ReturnOutcome.RETURNED, store.returnBook(studentId, 1).outcome());
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int issueId = 2; issueId <= 200; issueId += 2) {
+            expected.add(issueId);
+        }
+        assertEquals(expected, pageThroughIssuedBooks(7));
+        assertEquals(100, store.getIssuedBooks().size());
+        assertEquals(List.of(102, 104), store.getIssuedBooksPage(100, 2).stream().map(IssuedBookRow::issueId).toList());
+    }
+
+    @Test
+    void loanIssuedAfterReturnsComesLast() {
+        issueOneBookEach(100);
+        for (int studentId = 1; studentId <= 90; studentId++) {
+            store.returnBook(studentId, 1);
+        }
+
+        store.issueBook(new Student(5, "Student 5", "CSE", "B.Tech"), 1, LIBRARIAN);
+
+        List<Integer> issueIds = pageThroughIssuedBooks(4);
+        assertEquals(11, issueIds.size());
+        assertEquals(91, issueIds.get(0));
+        assertEquals(101, issueIds.get(10));
+    }
+
+    @Test
+    void loanChangesReportReturnedLoansAsClosed() {
+        issueOneBookEach(3);
+        long before = store.getChangeRevision();
+
+        store.returnBook(2, 1);
+
+        LoanChanges changes = store.getLoanChanges(before);
+        assertEquals(List.of(2), changes.closedIssueIds());
+        assertEquals(List.of(), changes.open());
+    }
+
+    @Test
+    void studentLoansRevisionMovesOnlyForThatStudent() {
+        issueOneBookEach(2);
+        long first = store.getStudentLoansRevision(1);
+        long second = store.getStudentLoansRevision(2);
+
+        store.returnBook(1, 1);
+
+        assertNotEquals(first, store.getStudentLoansRevision(1));
+        assertEquals(second, store.getStudentLoansRevision(2));
+        assertEquals(0, store.getStudentLoansRevision(999));
+    }
+}
@@ -0,0 +1,134 @@
+package librarysystem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntHashMapTest {
+
+    @Test
+    void putReturnsThePreviousValue() {
+        IntHashMap<String> map = new IntHashMap<>();
+
+        assertNull(map.put(7, "a"));
+        assertEquals("a", map.put(7, "b"));
+        assertEquals("b", map.get(7));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void zeroAndNegativeKeysAreOrdinaryKeys() {
+        IntHashMap<String> map = new IntHashMap<>();
+        map.put(0, "zero");
+        map.put(-1, "minus one");
+        map.put(Integer.MIN_VALUE, "min");
+
+        assertEquals("zero", map.get(0));
+        assertEquals("minus one", map.get(-1));
+        assertEquals("min", map.get(Integer.MIN_VALUE));
+        assertFalse(map.containsKey(1));
+    }
+
+    @Test
+    void nullValuesAreRejected() {
+        IntHashMap<String> map = new IntHashMap<>();
+
+        assertThrows(IllegalArgumentException.class, () -> map.put(1, null));
+    }
+
+    @Test
+    void removeReturnsTheValueAndForgetsTheKey() {
+        IntHashMap<String> map = new IntHashMap<>();
+        map.put(1, "a");
+
+        assertEquals("a", map.remove(1));
+        assertNull(map.remove(1));
+        assertFalse(map.containsKey(1));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        IntHashMap<Integer> map = new IntHashMap<>(4);
+        for (int key = 0; key < 10_000; key++) {
+            map.put(key, key * 2);
+        }
+
+        assertEquals(10_000, map.size());
+        for (int key = 0; key < 10_000; key++) {
+            assertEquals(key * 2, map.get(key));
+        }
+    }
+
+    // Removals shift later entries of a probe run back - every key must stay reachable
+    @Test
+    void matchesHashMapUnderRandomPutsAndRemoves() {
+        IntHashMap<Integer> map = new IntHashMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+        for (int key = -1_000; key < 1_000; key++) {
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+        }
+    }
+
+    @Test
+    void sortedKeysAreAscending() {
+        IntHashMap<String> map = new IntHashMap<>();
+        for (int key : new int[]{42, -3, 7, 0, 1_000_000}) {
+            map.put(key, "v");
+        }
+        map.remove(7);
+
+        assertArrayEquals(new int[]{-3, 0, 42, 1_000_000}, map.sortedKeys());
+    }
+
+    @Test
+    void forEachValueVisitsEveryValueOnce() {
+        IntHashMap<Integer> map = new IntHashMap<>();
+        for (int key = 1; key <= 100; key++) {
+            map.put(key, key);
+        }
+        List<Integer> seen = new ArrayList<>();
+
+        map.forEachValue(seen::add);
+
+        assertEquals(100, seen.size());
+        assertEquals(5_050, seen.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        IntHashMap<String> map = new IntHashMap<>();
+        map.put(1, "a");
+        map.put(2, "b");
+
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertNull(map.get(1));
+        map.put(1, "c");
+        assertTrue(map.containsKey(1));
+    }
+}
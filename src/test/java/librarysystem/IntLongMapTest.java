@@ -0,0 +1,72 @@
+package librarysystem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntLongMapTest {
+
+    @Test
+    void missingKeysReturnTheGivenDefault() {
+        IntLongMap map = new IntLongMap();
+
+        assertEquals(-1, map.get(7, -1));
+        assertFalse(map.containsKey(7));
+    }
+
+    @Test
+    void zeroIsAnOrdinaryValue() {
+        IntLongMap map = new IntLongMap();
+        map.put(0, 0);
+
+        assertTrue(map.containsKey(0));
+        assertEquals(0, map.get(0, -1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void putReplacesTheValue() {
+        IntLongMap map = new IntLongMap();
+        map.put(-5, 10);
+        map.put(-5, Long.MAX_VALUE);
+
+        assertEquals(Long.MAX_VALUE, map.get(-5, 0));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void matchesHashMapWhileGrowing() {
+        IntLongMap map = new IntLongMap(2);
+        Map<Integer, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(20_000) - 10_000;
+            long value = random.nextLong();
+            map.put(key, value);
+            expected.put(key, value);
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key, 0)));
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        IntLongMap map = new IntLongMap();
+        map.put(1, 1);
+        map.put(2, 2);
+
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(1));
+        map.put(1, 3);
+        assertEquals(3, map.get(1, 0));
+    }
+}
@@ -0,0 +1,80 @@
+package librarysystem;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void valuesBelowThirtyTwoHaveABucketEach() {
+        for (int value = 0; value < 32; value++) {
+            assertEquals(value, LatencyHistogram.bucketIndex(value));
+            assertEquals(value, LatencyHistogram.bucketUpperBound(value));
+        }
+        assertEquals(32, LatencyHistogram.bucketIndex(32));
+    }
+
+    // The upper bound of every bucket falls into it, and one more falls into the next
+    @Test
+    void bucketBoundariesLineUp() {
+        int lastBucket = LatencyHistogram.bucketIndex((1L << 44) - 1);
+        for (int index = 0; index < lastBucket; index++) {
+            long upper = LatencyHistogram.bucketUpperBound(index);
+            assertEquals(index, LatencyHistogram.bucketIndex(upper), "upper bound of bucket " + index);
+            assertEquals(index + 1, LatencyHistogram.bucketIndex(upper + 1), "value after bucket " + index);
+        }
+    }
+
+    @Test
+    void bucketsAreWithinThreePercentOfTheirValues() {
+        for (long value = 32; value < (1L << 40); value = value * 3 / 2 + 7) {
+            long upper = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(value));
+            assertTrue(upper >= value && upper - value <= value * 0.032, "value " + value + " reported as " + upper);
+        }
+    }
+
+    @Test
+    void percentilesOfAKnownDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 1_000; micros++) {
+            histogram.record(micros * 1_000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1_000, snapshot.totalCount());
+        assertEquals(1_000_000, snapshot.maxNanos());
+        assertWithinThreePercent(500_000, snapshot.percentileNanos(0.5));
+        assertWithinThreePercent(990_000, snapshot.percentileNanos(0.99));
+        assertEquals(1_000_000, snapshot.percentileNanos(1.0));   // Never above the largest value recorded
+    }
+
+    @Test
+    void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(2, snapshot.totalCount());
+        assertEquals(0, snapshot.percentileNanos(0.5));
+        assertEquals((1L << 44) - 1, snapshot.maxNanos());
+    }
+
+    @Test
+    void emptyAndResetHistogramsReportZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().percentileNanos(0.99));
+
+        histogram.record(1_234);
+        histogram.reset();
+
+        assertEquals(0, histogram.snapshot().totalCount());
+        assertEquals(0, histogram.snapshot().maxNanos());
+    }
+
+    private static void assertWithinThreePercent(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected * 0.03, "expected about " + expected + " but was " + actual);
+    }
+}
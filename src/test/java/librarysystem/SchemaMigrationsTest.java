@@ -0,0 +1,138 @@
+package librarysystem;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs the migrations against an embedded H2 database in MySQL mode, a fresh one per test
+class SchemaMigrationsTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private Connection conn;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:h2:mem:migrations" + DATABASES.incrementAndGet()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        conn.close();
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static int latestVersion() {
+        return SchemaMigrations.MIGRATIONS.get(SchemaMigrations.MIGRATIONS.size() - 1).version();
+    }
+
+    // Bring the database to the given version the way an older release left it
+    private void migrateTo(int version) throws SQLException {
+        SchemaMigrations.currentVersion(conn);
+        try (Statement stmt = conn.createStatement()) {
+            for (SchemaMigrations.Migration migration : SchemaMigrations.MIGRATIONS) {
+                if (migration.version() <= version) {
+                    migration.step().apply(stmt);
+                    stmt.executeUpdate("INSERT INTO schema_version (version, description) VALUES ("
+                            + migration.version() + ", 'test')");
+                }
+            }
+        }
+    }
+
+    @Test
+    void versionsAreConsecutiveFromOne() {
+        for (int i = 0; i < SchemaMigrations.MIGRATIONS.size(); i++) {
+            assertEquals(i + 1, SchemaMigrations.MIGRATIONS.get(i).version());
+        }
+    }
+
+    @Test
+    void freshDatabaseGetsEveryMigration() throws SQLException {
+        assertEquals(0, SchemaMigrations.currentVersion(conn));
+
+        assertEquals(SchemaMigrations.MIGRATIONS.size(), SchemaMigrations.migrate(conn));
+
+        assertEquals(latestVersion(), SchemaMigrations.currentVersion(conn));
+        assertEquals(latestVersion(), queryLong("SELECT COUNT(*) FROM schema_version"));
+    }
+
+    @Test
+    void upToDateDatabaseIsLeftAlone() throws SQLException {
+        SchemaMigrations.migrate(conn);
+        long books = queryLong("SELECT COUNT(*) FROM books");
+
+        assertEquals(0, SchemaMigrations.migrate(conn));
+        assertEquals(books, queryLong("SELECT COUNT(*) FROM books"));
+    }
+
+    @Test
+    void olderDatabaseGetsOnlyTheNewerMigrations() throws SQLException {
+        migrateTo(latestVersion() - 2);
+
+        assertEquals(2, SchemaMigrations.migrate(conn));
+        assertEquals(latestVersion(), SchemaMigrations.currentVersion(conn));
+    }
+
+    // Migration 10 replaces the locked change_revision counter by AUTO_INCREMENT -
+    // revisions must keep growing across the switch, or open dashboards would miss changes
+    @Test
+    void changeRevisionsContinueAfterTheOldCounter() throws SQLException {
+        migrateTo(9);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE change_revision SET revision = 41 WHERE id = 1");
+        }
+
+        assertEquals(1, SchemaMigrations.migrate(conn));
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO change_log (entity, entity_id) VALUES ('BOOK', 1)");
+        }
+        assertEquals(42, queryLong("SELECT MAX(revision) FROM change_log"));
+        assertThrows(SQLException.class, () -> queryLong("SELECT revision FROM change_revision"));
+    }
+
+    // MySQL commits DDL as it goes, so a step may run again after an interrupted start
+    @Test
+    void changeLogMigrationCanRunAgain() throws SQLException {
+        SchemaMigrations.migrate(conn);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO change_log (entity, entity_id) VALUES ('BOOK', 1)");
+            SchemaMigrations.MIGRATIONS.get(9).step().apply(stmt);
+        }
+
+        assertEquals(1, queryLong("SELECT COUNT(*) FROM change_log"));
+    }
+
+    @Test
+    void failedMigrationIsReportedAndNotRecorded() throws SQLException {
+        migrateTo(9);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DROP TABLE change_revision");
+            stmt.executeUpdate("CREATE TABLE change_revision (id INT PRIMARY KEY, revision VARCHAR(20))");
+            stmt.executeUpdate("INSERT INTO change_revision VALUES (1, 'not a number')");
+        }
+
+        SQLException e = assertThrows(SQLException.class, () -> SchemaMigrations.migrate(conn));
+
+        assertTrue(e.getMessage().startsWith("Migration 10 failed"), e.getMessage());
+        assertEquals(9, SchemaMigrations.currentVersion(conn));
+    }
+}